@@ -0,0 +1,70 @@
+// Нагрузочный сценарий для сравнения режимов потоков (k6, https://k6.io).
+// Прогон дважды - с SPRING_THREADS_VIRTUAL_ENABLED=false и =true - и сравнение
+// http_reqs/s и p(99) по тегам endpoint:my и endpoint:upload.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e USERNAME=student -e PASSWORD=secret \
+//          -e TASK_ID=1 load-tests/virtual-threads.js
+
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TASK_ID = __ENV.TASK_ID || '1';
+const VUS = Number(__ENV.VUS || 400);
+
+// решение ~256 КБ: загрузка упирается в MinIO, а не в разбор multipart
+const solution = 'x'.repeat(256 * 1024);
+
+export const options = {
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    scenarios: {
+        my_tasks: {
+            executor: 'constant-vus',
+            exec: 'myTasks',
+            vus: VUS,
+            duration: __ENV.DURATION || '2m',
+        },
+        upload: {
+            executor: 'constant-vus',
+            exec: 'upload',
+            vus: Math.max(1, Math.floor(VUS / 10)),
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    thresholds: {
+        'http_req_duration{endpoint:my}': ['p(99)<1000'],
+        'http_req_duration{endpoint:upload}': ['p(99)<3000'],
+        // 503 от bulkhead допустимы, но не массово
+        'http_req_failed': ['rate<0.01'],
+    },
+};
+
+export function setup() {
+    const res = http.post(`${BASE_URL}/auth/login`, JSON.stringify({
+        username: __ENV.USERNAME || 'student',
+        password: __ENV.PASSWORD || 'password',
+    }), { headers: { 'Content-Type': 'application/json' } });
+    const token = res.json('jwt-token');
+    if (!token) {
+        throw new Error(`login failed: ${res.status} ${res.body}`);
+    }
+    return { token };
+}
+
+export function myTasks(data) {
+    const res = http.get(`${BASE_URL}/task/my`, {
+        headers: { Authorization: `Bearer ${data.token}` },
+        tags: { endpoint: 'my' },
+    });
+    check(res, { 'my: 200': (r) => r.status === 200 });
+}
+
+export function upload(data) {
+    const res = http.post(`${BASE_URL}/minio/tasks/${TASK_ID}/solution`, {
+        file: http.file(solution, 'solution.txt', 'text/plain'),
+    }, {
+        headers: { Authorization: `Bearer ${data.token}` },
+        tags: { endpoint: 'upload' },
+    });
+    check(res, { 'upload: 200': (r) => r.status === 200 });
+}
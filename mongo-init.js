@@ -5,8 +5,9 @@ db = db.getSiblingDB('todo_db');
 db.createCollection('comments');
 
 // Создаем индексы для оптимизации запросов
-db.comments.createIndex({ "taskId": 1 });
-db.comments.createIndex({ "parentId": 1 });
+// ветки обсуждения: страница верхнего уровня по задаче и ответы по родителю, в порядке (createdAt, _id)
+db.comments.createIndex({ "taskId": 1, "parentId": 1, "createdAt": 1, "_id": 1 }, { name: "taskId_1_parentId_1_createdAt_1__id_1" });
+db.comments.createIndex({ "parentId": 1, "createdAt": 1, "_id": 1 }, { name: "parentId_1_createdAt_1__id_1" });
 db.comments.createIndex({ "createdAt": 1 });
 db.comments.createIndex({ "authorId": 1 });
 
@@ -0,0 +1,178 @@
+package ru.danon.spring.ToDo.benchmarks;
+
+import ru.danon.spring.ToDo.models.Comment;
+import ru.danon.spring.ToDo.models.Person;
+import ru.danon.spring.ToDo.models.Task;
+import ru.danon.spring.ToDo.repositories.jpa.projections.MyTaskRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.ReportRow;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Данные для бенчмарков. Вместо Postgres и Mongo - заранее собранные в памяти сущности и строки проекций,
+ * которые отдают заглушки репозиториев: измеряется код сервиса, а не сеть и диск.
+ */
+final class BenchmarkData {
+
+    static final LocalDateTime NOW = LocalDateTime.of(2025, 10, 1, 12, 0);
+    private static final String[] STATUSES = {"NOT_STARTED", "IN_PROGRESS", "COMPLETED", "OVERDUE"};
+
+    private BenchmarkData() {
+    }
+
+    static Person person(int id, String role) {
+        Person person = new Person();
+        person.setId(id);
+        person.setUsername("user-" + id);
+        person.setEmail("user-" + id + "@example.com");
+        person.setPassword("$2a$10$abcdefghijklmnopqrstuv");
+        person.setRole(role);
+        person.setCreatedAt(NOW);
+        return person;
+    }
+
+    static Task task(int id, Person author) {
+        Task task = new Task();
+        task.setId(id);
+        task.setTitle("Лабораторная работа №" + id);
+        task.setDescription("Описание задачи " + id + ": реализовать и протестировать алгоритм");
+        task.setDeadline(NOW.plusDays(id % 30));
+        task.setPriority(id % 2 == 0 ? "HIGH" : "LOW");
+        task.setAuthor(author);
+        task.setCreatedAt(NOW);
+        return task;
+    }
+
+    static Comment comment(int id) {
+        Comment comment = new Comment(id % 100, id, "user-" + id, "ROLE_STUDENT", "Комментарий " + id);
+        comment.setId(Integer.toHexString(id));
+        comment.setCreatedAt(NOW);
+        comment.setUpdatedAt(NOW);
+        return comment;
+    }
+
+    static List<ReportRow> reportRows(int count) {
+        int students = 100;
+        List<ReportRow> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int studentId = i % students + 1;
+            int taskId = i / students + 1;
+            result.add(new ReportLine(
+                    "student" + studentId,
+                    "Группа " + (studentId % 4 + 1),
+                    "Задача " + taskId,
+                    NOW.plusDays(taskId % 30),
+                    STATUSES[i % STATUSES.length],
+                    i % 3 == 0 ? 2 + i % 4 : null,
+                    i % 5 == 0 ? "Хорошая работа, но стоит доработать оформление" : null,
+                    NOW));
+        }
+        return result;
+    }
+
+    static List<MyTaskRow> myTaskRows(int tasks, int tagsPerTask) {
+        List<MyTaskRow> rows = new ArrayList<>(tasks * Math.max(1, tagsPerTask));
+        for (int i = 1; i <= tasks; i++) {
+            if (tagsPerTask == 0) {
+                rows.add(new Row(i, null, null));
+            }
+            for (int t = 1; t <= tagsPerTask; t++) {
+                rows.add(new Row(i, t, "tag-" + t));
+            }
+        }
+        return rows;
+    }
+
+    private record Row(Integer id, Integer tagId, String tagName) implements MyTaskRow {
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public String getTitle() {
+            return "Задача " + id;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Описание задачи " + id;
+        }
+
+        @Override
+        public LocalDateTime getDeadline() {
+            return NOW.plusDays(id % 30);
+        }
+
+        @Override
+        public String getPriority() {
+            return "HIGH";
+        }
+
+        @Override
+        public Integer getAuthorId() {
+            return 0;
+        }
+
+        @Override
+        public String getUserStatus() {
+            return "IN_PROGRESS";
+        }
+
+        @Override
+        public Integer getTagId() {
+            return tagId;
+        }
+
+        @Override
+        public String getTagName() {
+            return tagName;
+        }
+    }
+
+    private record ReportLine(String username, String groupName, String taskTitle, LocalDateTime deadline,
+                              String status, Integer grade, String teacherComment,
+                              LocalDateTime updatedAt) implements ReportRow {
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public String getGroupName() {
+            return groupName;
+        }
+
+        @Override
+        public String getTaskTitle() {
+            return taskTitle;
+        }
+
+        @Override
+        public LocalDateTime getDeadline() {
+            return deadline;
+        }
+
+        @Override
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public Integer getGrade() {
+            return grade;
+        }
+
+        @Override
+        public String getTeacherComment() {
+            return teacherComment;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.danon.spring.ToDo.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.danon.spring.ToDo.services.FileStorageService;
+import ru.danon.spring.ToDo.util.Bulkhead;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка загружаемого файла перед отправкой в MinIO (сам клиент S3 не вызывается).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileValidationBenchmark {
+
+    private FileStorageService fileStorageService;
+    private MockMultipartFile file;
+
+    @Setup
+    public void setUp() {
+        Bulkhead bulkhead = new Bulkhead("storage", 1, 1, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        fileStorageService = new FileStorageService(null, null, bulkhead, null);
+        file = new MockMultipartFile("file", "solution.pdf", "application/pdf", new byte[64 * 1024]);
+    }
+
+    @Benchmark
+    public MockMultipartFile validateFileSafety() {
+        fileStorageService.validateFileSafety(file);
+        return file;
+    }
+}
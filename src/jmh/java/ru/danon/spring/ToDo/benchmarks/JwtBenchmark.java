@@ -0,0 +1,38 @@
+package ru.danon.spring.ToDo.benchmarks;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.openjdk.jmh.annotations.*;
+import ru.danon.spring.ToDo.security.JWTUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск и проверка JWT - выполняются на каждом входе и каждом запросе соответственно.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JWTUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JWTUtil("benchmark-secret-benchmark-secret");
+        token = jwtUtil.generateToken(BenchmarkData.person(1, "ROLE_STUDENT"));
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtil.generateToken(BenchmarkData.person(1, "ROLE_STUDENT"));
+    }
+
+    @Benchmark
+    public DecodedJWT verify() {
+        return jwtUtil.verify(token);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.danon.spring.ToDo.benchmarks;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.danon.spring.ToDo.dto.CommentDTO;
+import ru.danon.spring.ToDo.dto.PersonResponseDTO;
+import ru.danon.spring.ToDo.dto.TaskResponseDTO;
+import ru.danon.spring.ToDo.models.Comment;
+import ru.danon.spring.ToDo.models.Person;
+import ru.danon.spring.ToDo.models.Task;
+import ru.danon.spring.ToDo.util.DtoMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость преобразования одной сущности в DTO: ModelMapper против явных преобразований DtoMapper.
+ * Разницу в выделении памяти показывает запуск с профилировщиком: -Djmh.args="MappingBenchmark -prof gc".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private Person person;
+    private Task task;
+    private Comment comment;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        person = BenchmarkData.person(1, "ROLE_STUDENT");
+        task = BenchmarkData.task(1, BenchmarkData.person(2, "ROLE_TEACHER"));
+        comment = BenchmarkData.comment(1);
+
+        // первое обращение строит TypeMap - в измерение попадает только установившийся режим
+        modelMapper.map(person, PersonResponseDTO.class);
+        modelMapper.map(task, TaskResponseDTO.class);
+        modelMapper.map(comment, CommentDTO.class);
+    }
+
+    @Benchmark
+    public PersonResponseDTO personModelMapper() {
+        return modelMapper.map(person, PersonResponseDTO.class);
+    }
+
+    @Benchmark
+    public PersonResponseDTO personManual() {
+        return DtoMapper.toPersonResponse(person);
+    }
+
+    @Benchmark
+    public TaskResponseDTO taskModelMapper() {
+        return modelMapper.map(task, TaskResponseDTO.class);
+    }
+
+    @Benchmark
+    public TaskResponseDTO taskManual() {
+        return DtoMapper.toTaskResponse(task);
+    }
+
+    @Benchmark
+    public CommentDTO commentModelMapper() {
+        return modelMapper.map(comment, CommentDTO.class);
+    }
+
+    @Benchmark
+    public CommentDTO commentManual() {
+        return DtoMapper.toComment(comment);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.danon.spring.ToDo.benchmarks;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danon.spring.ToDo.dto.MyTaskDTO;
+import ru.danon.spring.ToDo.models.Person;
+import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskTagRepository;
+import ru.danon.spring.ToDo.services.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TaskService.findMyTasks без БД: репозиторий отдаёт готовые строки проекции,
+ * измеряется свёртка строк "задача + тег" в MyTaskDTO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MyTasksBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tasks;
+
+    @Param({"0", "3"})
+    public int tagsPerTask;
+
+    private TaskService taskService;
+
+    @Setup
+    public void setUp() {
+        PeopleService peopleService = mock(PeopleService.class);
+        TaskAssignmentRepository taskAssignmentRepository = mock(TaskAssignmentRepository.class);
+
+        Person student = BenchmarkData.person(1, "ROLE_STUDENT");
+        when(peopleService.findByUsername("student")).thenReturn(Optional.of(student));
+        when(taskAssignmentRepository.findMyTaskRowsByUserId(student.getId()))
+                .thenReturn(BenchmarkData.myTaskRows(tasks, tagsPerTask));
+
+        taskService = new TaskService(peopleService, mock(GroupService.class), mock(TaskRepository.class),
+                mock(TaskTagRepository.class), taskAssignmentRepository, mock(NotificationProducerService.class),
+                mock(MLClient.class), mock(TagService.class), mock(TaskFileService.class),
+                mock(FileStorageService.class), mock(NotificationSchedulingService.class),
+                mock(ApplicationEventPublisher.class), mock(TransactionTemplate.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        Mockito.framework().clearInlineMocks();
+    }
+
+    @Benchmark
+    public List<MyTaskDTO> findMyTasks() {
+        return taskService.findMyTasks("student");
+    }
+}
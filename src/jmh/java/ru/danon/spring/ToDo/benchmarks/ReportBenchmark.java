@@ -0,0 +1,86 @@
+package ru.danon.spring.ToDo.benchmarks;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.danon.spring.ToDo.dto.ReportRequestDTO;
+import ru.danon.spring.ToDo.repositories.jpa.*;
+import ru.danon.spring.ToDo.repositories.jpa.projections.ReportRow;
+import ru.danon.spring.ToDo.repositories.mongo.CommentRepository;
+import ru.danon.spring.ToDo.services.ReportService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Построение отчёта по успеваемости целиком на 1k/10k/100k строк: Excel (SXSSF + запись файла),
+ * CSV и NDJSON со сжатием gzip.
+ * Строки отчёта отдаёт заглушка репозитория из памяти, файл пишется в пустой поток.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private ReportService reportService;
+    private ReportRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        List<ReportRow> reportRows = BenchmarkData.reportRows(rows);
+
+        TaskAssignmentRepository taskAssignmentRepository = mock(TaskAssignmentRepository.class);
+        when(taskAssignmentRepository.streamReportRows(any(), any(), anyBoolean()))
+                .thenAnswer(invocation -> reportRows.stream());
+
+        reportService = new ReportService(mock(TaskRepository.class), taskAssignmentRepository,
+                mock(GroupRepository.class), mock(CommentRepository.class),
+                mock(PlatformTransactionManager.class), 200, 1, 1000);
+
+        request = new ReportRequestDTO();
+        request.setReportType("STUDENT_PROGRESS");
+        request.setGroupId("all");
+        request.setPeriod("ALL_TIME");
+        request.setIncludeProgress(true);
+        request.setIncludeDeadlines(true);
+        request.setIncludeGrades(true);
+        request.setIncludeComments(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Mockito.framework().clearInlineMocks();
+    }
+
+    @Benchmark
+    public void studentProgressExcel() throws IOException {
+        reportService.writeExcelReport(request, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void studentProgressCsv() throws IOException {
+        request.setFormat("csv");
+        request.setGzip(false);
+        reportService.writeRowsReport(request, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void studentProgressNdjsonGzip() throws IOException {
+        request.setFormat("ndjson");
+        request.setGzip(true);
+        reportService.writeRowsReport(request, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,30 @@
+package ru.danon.spring.ToDo.cache;
+
+import ru.danon.spring.ToDo.models.Person;
+
+import java.time.LocalDateTime;
+
+/**
+ * Снимок пользователя для кэша. Ленивые связи (taughtGroups) не кэшируются.
+ * Пароль хранится в виде bcrypt-хэша: он нужен при аутентификации и при сохранении отдетаченной сущности.
+ */
+public record CachedPerson(Integer id, String username, String email, String password,
+                           String role, LocalDateTime createdAt) {
+
+    public static CachedPerson of(Person person) {
+        return new CachedPerson(person.getId(), person.getUsername(), person.getEmail(),
+                person.getPassword(), person.getRole(), person.getCreatedAt());
+    }
+
+    // каждый раз новая отдетаченная сущность - изменения вызывающего кода не попадают в кэш
+    public Person toPerson() {
+        Person person = new Person();
+        person.setId(id);
+        person.setUsername(username);
+        person.setEmail(email);
+        person.setPassword(password);
+        person.setRole(role);
+        person.setCreatedAt(createdAt);
+        return person;
+    }
+}
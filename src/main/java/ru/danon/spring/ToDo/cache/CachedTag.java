@@ -0,0 +1,20 @@
+package ru.danon.spring.ToDo.cache;
+
+import ru.danon.spring.ToDo.models.Tag;
+
+/**
+ * Снимок тега для кэша (без связей taskTags)
+ */
+public record CachedTag(Integer id, String name) {
+
+    public static CachedTag of(Tag tag) {
+        return new CachedTag(tag.getId(), tag.getName());
+    }
+
+    public Tag toTag() {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setName(name);
+        return tag;
+    }
+}
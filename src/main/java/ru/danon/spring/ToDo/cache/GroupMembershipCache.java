@@ -0,0 +1,31 @@
+package ru.danon.spring.ToDo.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Кэш принадлежности пользователя к группе: userId -> groupId
+ */
+@Component
+public class GroupMembershipCache {
+
+    private final TwoLevelCache<Integer> groupByUserId;
+
+    @Autowired
+    public GroupMembershipCache(TwoLevelCacheManager cacheManager) {
+        this.groupByUserId = cacheManager.create("groups.byUserId", Integer.class);
+    }
+
+    public Optional<Integer> findGroupId(Integer userId, Supplier<Optional<Integer>> loader) {
+        return groupByUserId.get(userId == null ? null : userId.toString(), loader);
+    }
+
+    public void evict(Integer userId) {
+        if (userId != null) {
+            groupByUserId.evict(userId.toString());
+        }
+    }
+}
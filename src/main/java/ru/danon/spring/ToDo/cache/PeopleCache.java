@@ -0,0 +1,46 @@
+package ru.danon.spring.ToDo.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.danon.spring.ToDo.models.Person;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Кэш пользователей по username и по id
+ */
+@Component
+public class PeopleCache {
+
+    private final TwoLevelCache<CachedPerson> byUsername;
+    private final TwoLevelCache<CachedPerson> byId;
+
+    @Autowired
+    public PeopleCache(TwoLevelCacheManager cacheManager) {
+        this.byUsername = cacheManager.create("people.byUsername", CachedPerson.class);
+        this.byId = cacheManager.create("people.byId", CachedPerson.class);
+    }
+
+    public Optional<Person> findByUsername(String username, Supplier<Optional<Person>> loader) {
+        return byUsername.get(username, () -> loader.get().map(CachedPerson::of))
+                .map(CachedPerson::toPerson);
+    }
+
+    public Optional<Person> findById(Integer id, Supplier<Optional<Person>> loader) {
+        return byId.get(id == null ? null : id.toString(), () -> loader.get().map(CachedPerson::of))
+                .map(CachedPerson::toPerson);
+    }
+
+    /**
+     * Сбрасывает пользователя по id и по всем переданным именам (старому и новому при переименовании)
+     */
+    public void evict(Integer id, String... usernames) {
+        if (id != null) {
+            byId.evict(id.toString());
+        }
+        for (String username : usernames) {
+            byUsername.evict(username);
+        }
+    }
+}
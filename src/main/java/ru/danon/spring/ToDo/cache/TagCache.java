@@ -0,0 +1,31 @@
+package ru.danon.spring.ToDo.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.danon.spring.ToDo.models.Tag;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Кэш тегов по имени
+ */
+@Component
+public class TagCache {
+
+    private final TwoLevelCache<CachedTag> byName;
+
+    @Autowired
+    public TagCache(TwoLevelCacheManager cacheManager) {
+        this.byName = cacheManager.create("tags.byName", CachedTag.class);
+    }
+
+    public Optional<Tag> findByName(String name, Supplier<Optional<Tag>> loader) {
+        return byName.get(name, () -> loader.get().map(CachedTag::of))
+                .map(CachedTag::toTag);
+    }
+
+    public void evict(String name) {
+        byName.evict(name);
+    }
+}
@@ -0,0 +1,154 @@
+package ru.danon.spring.ToDo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Двухуровневый кэш: Caffeine в памяти узла (L1) перед Redis (L2), дальше - загрузчик из БД.
+ * Значения - неизменяемые снимки (record), поэтому L1 можно отдавать без копирования.
+ * Redis недоступен - кэш деградирует до L1 + БД, запросы не падают.
+ */
+@Slf4j
+public class TwoLevelCache<V> {
+
+    private final String name;
+    private final Class<V> type;
+    private final Cache<String, V> local;
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final Duration redisTtl;
+    private final Consumer<String> evictionBroadcast;
+
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter redisErrors;
+
+    TwoLevelCache(String name, Class<V> type, Cache<String, V> local, StringRedisTemplate redis,
+                  ObjectMapper objectMapper, Duration redisTtl, Consumer<String> evictionBroadcast,
+                  MeterRegistry meterRegistry) {
+        this.name = name;
+        this.type = type;
+        this.local = local;
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.redisTtl = redisTtl;
+        this.evictionBroadcast = evictionBroadcast;
+
+        this.redisHits = redisCounter(meterRegistry, "hit");
+        this.redisMisses = redisCounter(meterRegistry, "miss");
+        this.redisErrors = redisCounter(meterRegistry, "error");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * L1 -> L2 -> loader. Найденное загрузчиком кладётся в оба уровня; отсутствие значения не кэшируется.
+     */
+    public Optional<V> get(String key, Supplier<Optional<V>> loader) {
+        if (key == null) {
+            return loader.get();
+        }
+
+        V value = local.getIfPresent(key);
+        if (value != null) {
+            return Optional.of(value);
+        }
+
+        value = readRedis(key);
+        if (value != null) {
+            local.put(key, value);
+            return Optional.of(value);
+        }
+
+        Optional<V> loaded = loader.get();
+        loaded.ifPresent(v -> {
+            local.put(key, v);
+            writeRedis(key, v);
+        });
+        return loaded;
+    }
+
+    /**
+     * Сбрасывает ключ на всех узлах. Внутри транзакции сброс повторяется после коммита,
+     * чтобы параллельное чтение не вернуло в кэш незакоммиченное старое значение.
+     */
+    public void evict(String key) {
+        if (key == null) {
+            return;
+        }
+        evictEverywhere(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictEverywhere(key);
+                }
+            });
+        }
+    }
+
+    void evictLocal(String key) {
+        local.invalidate(key);
+    }
+
+    private void evictEverywhere(String key) {
+        local.invalidate(key);
+        try {
+            redis.delete(redisKey(key));
+            evictionBroadcast.accept(key);
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.warn("Cache {}: failed to evict {} in Redis: {}", name, key, e.getMessage());
+        }
+    }
+
+    private V readRedis(String key) {
+        try {
+            String json = redis.opsForValue().get(redisKey(key));
+            if (json == null) {
+                redisMisses.increment();
+                return null;
+            }
+            redisHits.increment();
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.debug("Cache {}: Redis read failed for {}: {}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, V value) {
+        try {
+            redis.opsForValue().set(redisKey(key), objectMapper.writeValueAsString(value), redisTtl);
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.debug("Cache {}: Redis write failed for {}: {}", name, key, e.getMessage());
+        }
+    }
+
+    private String redisKey(String key) {
+        return "todo:cache:" + name + ":" + key;
+    }
+
+    private Counter redisCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.redis.requests")
+                .description("Обращения к Redis-уровню двухуровневого кэша")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
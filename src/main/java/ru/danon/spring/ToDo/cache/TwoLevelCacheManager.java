@@ -0,0 +1,86 @@
+package ru.danon.spring.ToDo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Создаёт двухуровневые кэши и синхронизирует L1 между узлами:
+ * сброс ключа публикуется в Redis-канал, остальные узлы сбрасывают его у себя в Caffeine.
+ */
+@Component
+@Slf4j
+public class TwoLevelCacheManager implements MessageListener {
+
+    public static final String EVICTION_CHANNEL = "todo:cache:evict";
+
+    // чтобы не обрабатывать собственные сообщения о сбросе
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache<?>> caches = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final long localMaxSize;
+    private final Duration localTtl;
+    private final Duration redisTtl;
+
+    @Autowired
+    public TwoLevelCacheManager(StringRedisTemplate redis,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${cache.local.max-size:10000}") long localMaxSize,
+                                @Value("${cache.local.ttl-seconds:60}") long localTtlSeconds,
+                                @Value("${cache.redis.ttl-seconds:600}") long redisTtlSeconds) {
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = Duration.ofSeconds(localTtlSeconds);
+        this.redisTtl = Duration.ofSeconds(redisTtlSeconds);
+    }
+
+    public <V> TwoLevelCache<V> create(String name, Class<V> type) {
+        Cache<String, V> local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                // короткий TTL - страховка на случай потерянного сообщения о сбросе
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name);
+
+        TwoLevelCache<V> cache = new TwoLevelCache<>(name, type, local, redis, objectMapper, redisTtl,
+                key -> redis.convertAndSend(EVICTION_CHANNEL, nodeId + "\n" + name + "\n" + key),
+                meterRegistry);
+        caches.put(name, cache);
+        return cache;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache<?> cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.evictLocal(parts[2]);
+            log.debug("Cache {}: evicted {} by remote node", parts[1], parts[2]);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.danon.spring.ToDo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.danon.spring.ToDo.util.Bulkhead;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Ограничители параллелизма перед пулом соединений с БД и клиентом MinIO.
+ * Нужны в первую очередь в режиме виртуальных потоков (spring.threads.virtual.enabled=true):
+ * там каждый запрос получает свой поток, и ограничением служит уже не пул Tomcat, а эти семафоры.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public Bulkhead databaseBulkhead(MeterRegistry meterRegistry,
+                                     @Value("${bulkhead.db.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+                                     @Value("${bulkhead.db.max-waiting:200}") int maxWaiting,
+                                     @Value("${bulkhead.db.max-wait-ms:5000}") long maxWaitMs) {
+        return new Bulkhead("db", maxConcurrent, maxWaiting, Duration.ofMillis(maxWaitMs), meterRegistry);
+    }
+
+    @Bean
+    public Bulkhead storageBulkhead(MeterRegistry meterRegistry,
+                                    @Value("${bulkhead.storage.max-concurrent:32}") int maxConcurrent,
+                                    @Value("${bulkhead.storage.max-waiting:200}") int maxWaiting,
+                                    @Value("${bulkhead.storage.max-wait-ms:10000}") long maxWaitMs) {
+        return new Bulkhead("storage", maxConcurrent, maxWaiting, Duration.ofMillis(maxWaitMs), meterRegistry);
+    }
+
+    // оборачиваем DataSource из автоконфигурации; ограничитель берётся лениво, при создании DataSource
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor(BeanFactory beanFactory,
+                                                                    @Value("${bulkhead.db.enabled:true}") boolean enabled) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+                    return new BulkheadDataSource(dataSource, beanFactory.getBean("databaseBulkhead", Bulkhead.class));
+                }
+                return bean;
+            }
+        };
+    }
+}
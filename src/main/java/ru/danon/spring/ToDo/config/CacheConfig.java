@@ -0,0 +1,22 @@
+package ru.danon.spring.ToDo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import ru.danon.spring.ToDo.cache.TwoLevelCacheManager;
+
+@Configuration
+public class CacheConfig {
+
+    // подписка на сбросы кэша с других узлов
+    @Bean
+    public RedisMessageListenerContainer cacheEvictionListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.EVICTION_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.danon.spring.ToDo.config;
+
+import org.flywaydb.core.api.Location;
+import org.flywaydb.database.postgresql.PostgreSQLConfigurationExtension;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Миграции только для PostgreSQL (CREATE INDEX CONCURRENTLY, секционирование) лежат в db/postgresql
+ * и подключаются, только если приложение работает с PostgreSQL: контексты на H2 выполняют лишь общие миграции.
+ */
+@Configuration
+public class FlywayConfig {
+
+    private static final String POSTGRESQL_LOCATION = "classpath:db/postgresql";
+
+    @Bean
+    public FlywayConfigurationCustomizer postgresqlMigrationsCustomizer() {
+        return configuration -> {
+            if (!isPostgresql(configuration.getDataSource())) {
+                return;
+            }
+            List<Location> locations = new ArrayList<>(Arrays.asList(configuration.getLocations()));
+            locations.add(new Location(POSTGRESQL_LOCATION));
+            configuration.locations(locations.toArray(Location[]::new));
+            // CREATE INDEX CONCURRENTLY ждёт завершения всех открытых транзакций, в том числе той,
+            // что держит блокировку Flyway, - с транзакционной блокировкой миграция V3 зависает
+            configuration.getPluginRegister()
+                    .getPlugin(PostgreSQLConfigurationExtension.class)
+                    .setTransactionalLock(false);
+        };
+    }
+
+    private boolean isPostgresql(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            throw new RuntimeException("Не удалось определить тип базы данных для миграций", e);
+        }
+    }
+}
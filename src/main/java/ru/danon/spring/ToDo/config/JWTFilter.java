@@ -1,6 +1,7 @@
 package ru.danon.spring.ToDo.config;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,22 +10,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.security.JWTUtil;
+import ru.danon.spring.ToDo.security.PersonDetails;
+import ru.danon.spring.ToDo.security.TokenRevocationService;
 import ru.danon.spring.ToDo.services.PersonDetailsService;
 
 
 import java.io.IOException;
+import java.time.Instant;
 @Component
 public class JWTFilter extends OncePerRequestFilter {
     private final JWTUtil jwtUtil;
     private final PersonDetailsService personDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Autowired
-    public JWTFilter(JWTUtil jwtUtil, PersonDetailsService personDetailsService) {
+    public JWTFilter(JWTUtil jwtUtil, PersonDetailsService personDetailsService, TokenRevocationService tokenRevocationService) {
         this.jwtUtil = jwtUtil;
         this.personDetailsService = personDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
     }
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
@@ -37,8 +45,7 @@ public class JWTFilter extends OncePerRequestFilter {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid JWT token in Bearer header");
             else {
                 try {
-                    String username = jwtUtil.validateTokenAndRetrieveClaim(token);
-                    UserDetails userDetails = personDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = toUserDetails(jwtUtil.verify(token));
 
                     UsernamePasswordAuthenticationToken authenticationToken =
                             new UsernamePasswordAuthenticationToken(
@@ -51,10 +58,33 @@ public class JWTFilter extends OncePerRequestFilter {
                     }
                 }catch(JWTVerificationException e){
                     response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid JWT token");
+                }catch(UsernameNotFoundException e){
+                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "User not found");
+                    return;
                 }
             }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // пользователь собирается из claims токена без похода в БД
+    private UserDetails toUserDetails(DecodedJWT jwt) {
+        String username = jwt.getClaim("username").asString();
+        Integer userId = jwt.getClaim("userId").asInt();
+        String role = jwt.getClaim("role").asString();
+        Instant issuedAt = jwt.getIssuedAtAsInstant();
+
+        // токены старого формата и токены, выданные до смены роли/имени, - через БД
+        if (userId == null || role == null || issuedAt == null
+                || tokenRevocationService.isStale(userId, issuedAt)) {
+            return personDetailsService.loadUserByUsername(username);
+        }
+
+        Person person = new Person();
+        person.setId(userId);
+        person.setUsername(username);
+        person.setRole(role);
+        return new PersonDetails(person);
+    }
 }
@@ -0,0 +1,19 @@
+package ru.danon.spring.ToDo.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Секционированные таблицы (scheduled_notifications, V4) драйвер PostgreSQL отдаёт с типом
+ * "PARTITIONED TABLE", а не "TABLE": без этой настройки ddl-auto=validate их не находит.
+ */
+@Configuration
+public class JpaSchemaConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer partitionedTablesHibernateCustomizer() {
+        return properties -> properties.putIfAbsent(AvailableSettings.EXTRA_PHYSICAL_TABLE_TYPES, "PARTITIONED TABLE");
+    }
+}
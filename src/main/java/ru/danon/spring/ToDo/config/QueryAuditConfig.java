@@ -0,0 +1,83 @@
+package ru.danon.spring.ToDo.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Map;
+
+/**
+ * Аудит формы запросов к БД (включается query-audit.enabled=true, для разработки и стендов).
+ * По каждому HTTP-запросу пишет предупреждения о повторяющихся запросах (N+1: загрузка
+ * связей или проверка exists по одному элементу в цикле), о выборках целых таблиц без условия
+ * и о превышении общего числа запросов. Такие места переводятся на count/exists-запросы
+ * и проекции по id.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "query-audit.enabled", havingValue = "true")
+public class QueryAuditConfig implements WebMvcConfigurer {
+
+    private final QueryAuditInspector inspector = new QueryAuditInspector();
+    private final int repeatThreshold;
+    private final int maxStatements;
+
+    @Autowired
+    public QueryAuditConfig(@Value("${query-audit.repeat-threshold:5}") int repeatThreshold,
+                            @Value("${query-audit.max-statements:30}") int maxStatements) {
+        this.repeatThreshold = repeatThreshold;
+        this.maxStatements = maxStatements;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryAuditHibernateCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                inspector.begin();
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                        Object handler, Exception ex) {
+                report(request.getMethod() + " " + request.getRequestURI(), inspector.end());
+            }
+        });
+    }
+
+    private void report(String endpoint, Map<String, Integer> statements) {
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : statements.entrySet()) {
+            total += entry.getValue();
+            if (entry.getValue() >= repeatThreshold) {
+                log.warn("Query audit {}: statement repeated {} times (N+1?): {}",
+                        endpoint, entry.getValue(), entry.getKey());
+            }
+            if (QueryAuditInspector.isUnfilteredSelect(entry.getKey())) {
+                log.warn("Query audit {}: full table load, use count/exists or projection: {}",
+                        endpoint, entry.getKey());
+            }
+        }
+        if (total > maxStatements) {
+            log.warn("Query audit {}: {} statements ({} distinct)", endpoint, total, statements.size());
+        } else if (total > 0) {
+            log.debug("Query audit {}: {} statements ({} distinct)", endpoint, total, statements.size());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.danon.spring.ToDo.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Считает SQL-запросы, выполненные в рамках одного HTTP-запроса.
+ * Hibernate передаёт сюда каждый подготовленный запрос уже с плейсхолдерами "?",
+ * поэтому одинаковые по форме запросы с разными параметрами совпадают по тексту.
+ */
+public class QueryAuditInspector implements StatementInspector {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ThreadLocal<Map<String, Integer>> statements = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Map<String, Integer> current = statements.get();
+        if (current != null) {
+            current.merge(WHITESPACE.matcher(sql.trim()).replaceAll(" "), 1, Integer::sum);
+        }
+        return sql;
+    }
+
+    public void begin() {
+        statements.set(new HashMap<>());
+    }
+
+    /**
+     * Завершает учёт и возвращает запросы текущего потока с числом повторов.
+     */
+    public Map<String, Integer> end() {
+        Map<String, Integer> current = statements.get();
+        statements.remove();
+        return current != null ? current : Map.of();
+    }
+
+    /**
+     * SELECT по таблице без WHERE: так выглядит findAll(), после которого обычно берут size()
+     * или ищут один элемент в памяти.
+     */
+    public static boolean isUnfilteredSelect(String sql) {
+        String lower = sql.toLowerCase(Locale.ROOT);
+        return lower.startsWith("select") && !lower.contains(" where ")
+                && !lower.contains("count(") && !lower.contains(" limit ") && !lower.contains(" fetch first ");
+    }
+}
@@ -13,6 +13,7 @@ import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.models.RoleAuditLog;
 import ru.danon.spring.ToDo.services.AdminService;
 import ru.danon.spring.ToDo.services.PeopleService;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import javax.management.relation.Role;
 import java.time.LocalDateTime;
@@ -114,7 +115,7 @@ public class AdminController {
 
     private List<PersonResponseDTO> convertToResponsePerson(List<Person> allUsers) {
         return allUsers.stream()
-                .map(user -> modelMapper.map(user, PersonResponseDTO.class))
+                .map(DtoMapper::toPersonResponse)
                 .collect(Collectors.toList());
 
     }
@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,6 +19,7 @@ import ru.danon.spring.ToDo.dto.PersonDTO;
 import ru.danon.spring.ToDo.dto.ResetPasswordRequest;
 import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.security.JWTUtil;
+import ru.danon.spring.ToDo.security.PersonDetails;
 import ru.danon.spring.ToDo.services.PeopleService;
 import ru.danon.spring.ToDo.services.RegistrationService;
 import ru.danon.spring.ToDo.util.PersonValidator;
@@ -60,7 +62,7 @@ public class AuthController {
         }
 
         registrationService.register(person);
-        String token = jwtUtil.generateToken(personDTO.getUsername());
+        String token = jwtUtil.generateToken(person);
 
         return Map.of("jwt-token", token);
 
@@ -71,13 +73,16 @@ public class AuthController {
         UsernamePasswordAuthenticationToken authInputToken =
                 new UsernamePasswordAuthenticationToken(authenticationDTO.getUsername(), authenticationDTO.getPassword());
 
+        Authentication authentication;
         try {
-            authenticationManager.authenticate(authInputToken);
+            authentication = authenticationManager.authenticate(authInputToken);
         }catch (BadCredentialsException e){
             return Map.of("message","Incorrect credentials!");
         }
 
-        String token = jwtUtil.generateToken(authenticationDTO.getUsername());
+        // id и роль попадают в claims, чтобы JWTFilter не ходил в БД на каждый запрос
+        Person person = ((PersonDetails) authentication.getPrincipal()).getPerson();
+        String token = jwtUtil.generateToken(person);
         return Map.of("jwt-token", token);
     }
 
@@ -1,15 +1,17 @@
 package ru.danon.spring.ToDo.controllers;
 
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import ru.danon.spring.ToDo.dto.CommentDTO;
 import ru.danon.spring.ToDo.dto.CommentRequest;
+import ru.danon.spring.ToDo.dto.CommentThreadDTO;
+import ru.danon.spring.ToDo.dto.CursorPageDTO;
 import ru.danon.spring.ToDo.models.Comment;
 import ru.danon.spring.ToDo.services.CommentsService;
 import ru.danon.spring.ToDo.services.PeopleService;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import java.util.List;
 
@@ -20,7 +22,6 @@ public class CommentsController {
 
     private final CommentsService commentsService;
     private final PeopleService peopleService;
-    private final ModelMapper modelMapper;
 
     @GetMapping
     public ResponseEntity<List<CommentDTO>> getComments(@PathVariable Integer taskId) {
@@ -34,6 +35,19 @@ public class CommentsController {
         }
     }
 
+    // ветки обсуждения постранично: комментарии верхнего уровня с первыми ответами
+    @GetMapping("/threads")
+    public ResponseEntity<CursorPageDTO<CommentThreadDTO>> getThreads(@PathVariable Integer taskId,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(required = false) Integer size,
+                                                                     @RequestParam(required = false) Integer replies) {
+        try {
+            return ResponseEntity.ok(commentsService.getTaskThreads(taskId, cursor, size, replies));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping
     public ResponseEntity<CommentDTO> createComment(@PathVariable Integer taskId,
                                                     @RequestBody CommentDTO commentDTO,
@@ -111,7 +125,7 @@ public class CommentsController {
     }
 
     private CommentDTO convertToCommentDTO(Comment comment) {
-        return modelMapper.map(comment, CommentDTO.class);
+        return DtoMapper.toComment(comment);
     }
 
 }
@@ -1,11 +1,14 @@
 package ru.danon.spring.ToDo.controllers;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.danon.spring.ToDo.util.BulkheadFullException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -28,5 +31,16 @@ public class GlobalExceptionHandler {
 
         return ResponseEntity.badRequest().body(response);
     }
+
+    // БД или хранилище перегружены: клиенту лучше повторить позже, чем ждать таймаута пула
+    @ExceptionHandler({BulkheadFullException.class, CannotCreateTransactionException.class})
+    public ResponseEntity<Map<String, Object>> handleOverload(RuntimeException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Сервис перегружен, повторите запрос позже");
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
 }
 
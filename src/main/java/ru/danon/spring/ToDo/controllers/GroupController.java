@@ -1,7 +1,6 @@
 package ru.danon.spring.ToDo.controllers;
 
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,6 +14,7 @@ import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.services.AdminService;
 import ru.danon.spring.ToDo.services.GroupService;
 import ru.danon.spring.ToDo.services.TaskService;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import java.util.List;
 import java.util.Set;
@@ -27,14 +27,12 @@ public class GroupController {
     private final GroupService groupService;
     private final AdminService adminService;
     private final TaskService taskService;
-    private final ModelMapper modelMapper;
 
     @Autowired
-    public GroupController(GroupService groupService, AdminService adminService, TaskService taskService, ModelMapper modelMapper) {
+    public GroupController(GroupService groupService, AdminService adminService, TaskService taskService) {
         this.groupService = groupService;
         this.adminService = adminService;
         this.taskService = taskService;
-        this.modelMapper = modelMapper;
     }
 
     @PreAuthorize("hasRole('ADMIN') or hasRole('TEACHER') or hasRole('STUDENT')")
@@ -117,7 +115,7 @@ public class GroupController {
 
     private List<PersonResponseDTO> convertToResponsePerson(List<Person> allUsers) {
         return allUsers.stream()
-                .map(user -> modelMapper.map(user, PersonResponseDTO.class))
+                .map(DtoMapper::toPersonResponse)
                 .collect(Collectors.toList());
     }
 }
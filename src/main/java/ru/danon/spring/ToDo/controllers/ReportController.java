@@ -1,56 +1,80 @@
 package ru.danon.spring.ToDo.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import ru.danon.spring.ToDo.dto.ReportRequestDTO;
+import ru.danon.spring.ToDo.services.ReportJobService;
 import ru.danon.spring.ToDo.services.ReportService;
 
 import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/reports")
 @RequiredArgsConstructor
 public class ReportController {
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
 
     @PostMapping("/generate")
     @PreAuthorize("hasRole('ROLE_TEACHER') or hasRole('ROLE_ADMIN')")
-    public ResponseEntity<byte[]> generateReport(@RequestBody ReportRequestDTO request) {
+    public void generateReport(@RequestBody ReportRequestDTO request, HttpServletResponse response) throws IOException {
         try {
-            byte[] reportBytes = reportService.generateReport(request);
+            reportService.validateRequest(request);
+            response.setContentType(reportService.getContentType(request));
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(reportService.getFileName(request)).build().toString());
 
-            // Определяем тип контента и расширение файла
-            String contentType;
-            String fileExtension;
             if ("doc".equalsIgnoreCase(request.getFormat())) {
-                contentType = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
-                fileExtension = "docx";
+                byte[] reportBytes = reportService.generateReport(request);
+                response.setContentLength(reportBytes.length);
+                response.getOutputStream().write(reportBytes);
             } else {
-                contentType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
-                fileExtension = "xlsx";
+                // Excel, CSV и NDJSON пишутся в ответ потоком, без промежуточного byte[]
+                reportService.writeReport(request, response.getOutputStream());
             }
+            response.flushBuffer();
+        } catch (IllegalArgumentException e) {
+            sendErrorIfPossible(response, HttpServletResponse.SC_BAD_REQUEST);
+        } catch (IOException e) {
+            sendErrorIfPossible(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
 
-            // Генерируем имя файла
-            String reportType = request.getReportType().toLowerCase().replace("_", "-");
-            String timestamp = java.time.LocalDate.now().toString();
-            String filename = String.format("report_%s_%s.%s", reportType, timestamp, fileExtension);
+    @PostMapping("/jobs")
+    @PreAuthorize("hasRole('ROLE_TEACHER') or hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> submitReportJob(@RequestBody ReportRequestDTO request) {
+        try {
+            return ResponseEntity.accepted().body(reportJobService.submit(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("message", e.getMessage()));
+        }
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(contentType));
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(reportBytes.length);
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ROLE_TEACHER') or hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> getReportJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(reportJobService.getJob(jobId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
 
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(reportBytes);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().build();
+    // Если часть файла уже ушла клиенту, статус поменять нельзя - остаётся оборвать ответ
+    private void sendErrorIfPossible(HttpServletResponse response, int status) throws IOException {
+        if (response.isCommitted()) {
+            throw new IOException("Report generation failed after the response was committed");
         }
+        response.reset();
+        response.setStatus(status);
     }
 }
@@ -12,7 +12,9 @@ import ru.danon.spring.ToDo.dto.SolutionDTO;
 import ru.danon.spring.ToDo.dto.TaskDTO;
 import ru.danon.spring.ToDo.services.TaskService;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/minio/tasks/{taskId}/solution")
@@ -30,6 +32,18 @@ public class SolutionController {
         return ResponseEntity.ok().build();
     }
 
+    // Большие решения: тело запроса - сам файл, передаётся в MinIO потоком, без буферизации multipart
+    @PutMapping("/stream")
+    public ResponseEntity<Void> uploadSolutionStream(
+            @PathVariable Integer taskId,
+            @RequestParam("fileName") String fileName,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            InputStream content,
+            Authentication authentication) {
+        taskService.uploadSolutionStream(taskId, content, fileName, contentType, authentication.getName());
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/download")
     public ResponseEntity<String> getSolutionDownloadUrl(
             @PathVariable Integer taskId,
@@ -66,6 +80,15 @@ public class SolutionController {
         return ResponseEntity.ok(solutions);
     }
 
+    // Ссылки на все решения задачи одним запросом: id студента -> ссылка
+    @GetMapping("/all/download-urls")
+    @PreAuthorize("hasRole('ROLE_TEACHER')")
+    public ResponseEntity<Map<Integer, String>> getAllSolutionDownloadUrls(
+            @PathVariable Integer taskId,
+            Authentication authentication) {
+        return ResponseEntity.ok(taskService.getSolutionDownloadUrlsForTask(taskId, authentication.getName()));
+    }
+
     // Преподаватель оценивает решение
     @PutMapping("/{studentId}/grade")
     public ResponseEntity<Void> gradeSolution(
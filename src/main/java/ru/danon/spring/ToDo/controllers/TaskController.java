@@ -56,6 +56,12 @@ public class TaskController {
                 .collect(Collectors.toList()));
     }
 
+    @PreAuthorize("hasRole('TEACHER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<TaskDTO>> getTasksPage(TaskFilterDTO filter) {
+        return ResponseEntity.ok(taskService.findTasksPage(filter));
+    }
+
     //работает
     @PreAuthorize("hasRole('TEACHER')")
     @GetMapping("/{taskId}")
@@ -90,6 +96,14 @@ public class TaskController {
         return ResponseEntity.ok().build();
     }
 
+    @PreAuthorize("hasRole('TEACHER')")
+    @PostMapping("/assign/bulk")
+    public ResponseEntity<BulkAssignResultDTO> assignTasksForGroups(@RequestBody BulkAssignRequestDTO request,
+                                                                    Authentication authentication) {
+        return ResponseEntity.ok(taskService.assignTasksForGroups(
+                request.getTaskIds(), request.getGroupIds(), authentication.getName()));
+    }
+
     //работает
     @PreAuthorize("hasRole('TEACHER')")
     @GetMapping("/{id}/{taskId}/status")
@@ -108,6 +122,12 @@ public class TaskController {
         return ResponseEntity.ok(tasks);
     }
 
+    @PreAuthorize("hasRole('STUDENT')")
+    @GetMapping("/my/page")
+    public ResponseEntity<CursorPageDTO<MyTaskDTO>> getMyTasksPage(TaskFilterDTO filter, Authentication authentication) {
+        return ResponseEntity.ok(taskService.findMyTasksPage(authentication.getName(), filter));
+    }
+
     //работает
     @PreAuthorize("hasRole('STUDENT')")
     @GetMapping("/my/{taskId}")
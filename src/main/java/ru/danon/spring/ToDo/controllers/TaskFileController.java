@@ -10,6 +10,7 @@ import ru.danon.spring.ToDo.dto.TaskFileDTO;
 import ru.danon.spring.ToDo.models.TaskFile;
 import ru.danon.spring.ToDo.services.TaskFileService;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -30,6 +31,20 @@ public class TaskFileController {
         return ResponseEntity.ok(taskFile);
     }
 
+    // Большие файлы: тело запроса - сам файл, передаётся в MinIO потоком, без буферизации multipart
+    @PutMapping("/stream")
+    public ResponseEntity<TaskFileDTO> uploadTaskFileStream(
+            @PathVariable Integer taskId,
+            @RequestParam("fileName") String fileName,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            InputStream content,
+            Authentication authentication) {
+
+        TaskFileDTO taskFile = convertToTaskFileDTO(
+                taskFileService.uploadTaskFileStream(taskId, content, fileName, contentType, authentication));
+        return ResponseEntity.ok(taskFile);
+    }
+
     @GetMapping
     public ResponseEntity<List<TaskFileDTO>> getTaskFiles(@PathVariable Integer taskId) {
         return ResponseEntity.ok(taskFileService.getTaskFiles(taskId)
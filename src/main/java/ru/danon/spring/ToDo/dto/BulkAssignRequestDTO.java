@@ -0,0 +1,11 @@
+package ru.danon.spring.ToDo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkAssignRequestDTO {
+    private List<Integer> taskIds;
+    private List<Integer> groupIds;
+}
@@ -0,0 +1,16 @@
+package ru.danon.spring.ToDo.dto;
+
+import lombok.Data;
+
+@Data
+public class BulkAssignResultDTO {
+    private Integer assigned;
+    private Integer skipped;
+
+    public BulkAssignResultDTO() {}
+
+    public BulkAssignResultDTO(Integer assigned, Integer skipped) {
+        this.assigned = assigned;
+        this.skipped = skipped;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.danon.spring.ToDo.dto;
+
+import java.util.List;
+
+/**
+ * Комментарий верхнего уровня с первыми ответами.
+ * hasMoreReplies - ответов больше, чем вернулось; остальные доступны через /{commentId}/replies.
+ */
+public class CommentThreadDTO {
+    private CommentDTO comment;
+    private List<CommentDTO> replies;
+    private boolean hasMoreReplies;
+
+    public CommentThreadDTO() {
+    }
+
+    public CommentThreadDTO(CommentDTO comment, List<CommentDTO> replies, boolean hasMoreReplies) {
+        this.comment = comment;
+        this.replies = replies;
+        this.hasMoreReplies = hasMoreReplies;
+    }
+
+    public CommentDTO getComment() {
+        return comment;
+    }
+
+    public void setComment(CommentDTO comment) {
+        this.comment = comment;
+    }
+
+    public List<CommentDTO> getReplies() {
+        return replies;
+    }
+
+    public void setReplies(List<CommentDTO> replies) {
+        this.replies = replies;
+    }
+
+    public boolean isHasMoreReplies() {
+        return hasMoreReplies;
+    }
+
+    public void setHasMoreReplies(boolean hasMoreReplies) {
+        this.hasMoreReplies = hasMoreReplies;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.danon.spring.ToDo.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ReportJobDTO {
+    private String id;
+    private String status; // QUEUED, RUNNING, DONE, FAILED
+    private String reportType;
+    private String format;
+    private String fileName;
+    private String fileKey;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private String downloadUrl; // только в ответе для DONE, в хранилище не пишется
+}
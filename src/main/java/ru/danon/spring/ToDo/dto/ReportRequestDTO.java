@@ -11,5 +11,6 @@ public class ReportRequestDTO {
     private Boolean includeComments;
     private Boolean includeDeadlines;
     private Boolean includeProgress;
-    private String format; // "excel" or "doc"
+    private String format; // "excel", "doc", "csv" or "ndjson"
+    private Boolean gzip; // только для csv/ndjson
 }
\ No newline at end of file
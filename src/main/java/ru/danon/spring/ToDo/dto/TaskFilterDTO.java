@@ -0,0 +1,26 @@
+package ru.danon.spring.ToDo.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+// Параметры фильтрации и keyset-пагинации списка задач
+@Data
+public class TaskFilterDTO {
+    private String status;
+    private String priority;
+    private String tag;
+    private Integer authorId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime deadlineFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime deadlineTo;
+
+    private String sort;      // "deadline" (по умолчанию) или "createdAt"
+    private String direction; // "asc" (по умолчанию) или "desc"
+    private String cursor;    // nextCursor из предыдущей страницы
+    private Integer size;
+}
@@ -0,0 +1,38 @@
+package ru.danon.spring.ToDo.events;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Изменились данные, из которых собираются счётчики дашборда.
+ * userIds - студенты, у которых изменились назначения или группа;
+ * taskIds - задачи, чьих авторов надо пересчитать (для удалённых задач автора передают в teacherIds);
+ * teacherIds - преподаватели, пересчитываемые явно; totals - общие счётчики (пользователи, группы, задачи, роли).
+ * Обрабатывается DashboardStatsService после коммита транзакции
+ */
+public class DashboardStatsChangedEvent {
+    private final Set<Integer> userIds;
+    private final Set<Integer> taskIds;
+    private final Set<Integer> teacherIds;
+    private final boolean totals;
+
+    public DashboardStatsChangedEvent(Collection<Integer> userIds, Collection<Integer> taskIds,
+                                      Collection<Integer> teacherIds, boolean totals) {
+        this.userIds = Set.copyOf(userIds);
+        this.taskIds = Set.copyOf(taskIds);
+        this.teacherIds = Set.copyOf(teacherIds);
+        this.totals = totals;
+    }
+
+    public static DashboardStatsChangedEvent ofAssignments(Collection<Integer> userIds, Collection<Integer> taskIds) {
+        return new DashboardStatsChangedEvent(userIds, taskIds, Set.of(), false);
+    }
+
+    public Set<Integer> getUserIds() { return userIds; }
+
+    public Set<Integer> getTaskIds() { return taskIds; }
+
+    public Set<Integer> getTeacherIds() { return teacherIds; }
+
+    public boolean isTotals() { return totals; }
+}
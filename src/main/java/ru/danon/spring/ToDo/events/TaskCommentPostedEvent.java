@@ -0,0 +1,27 @@
+package ru.danon.spring.ToDo.events;
+
+/**
+ * Преподаватель оставил комментарий к задаче.
+ * Получатели уведомления вычисляются после коммита в фоне, см. CommentNotificationFanoutService
+ */
+public class TaskCommentPostedEvent {
+    private final Integer taskId;
+    private final String taskTitle;
+    private final Integer authorId;
+    private final String authorName;
+
+    public TaskCommentPostedEvent(Integer taskId, String taskTitle, Integer authorId, String authorName) {
+        this.taskId = taskId;
+        this.taskTitle = taskTitle;
+        this.authorId = authorId;
+        this.authorName = authorName;
+    }
+
+    public Integer getTaskId() { return taskId; }
+
+    public String getTaskTitle() { return taskTitle; }
+
+    public Integer getAuthorId() { return authorId; }
+
+    public String getAuthorName() { return authorName; }
+}
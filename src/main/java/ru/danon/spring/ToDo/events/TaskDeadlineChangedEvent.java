@@ -0,0 +1,21 @@
+package ru.danon.spring.ToDo.events;
+
+import java.time.LocalDateTime;
+
+/**
+ * Дедлайн задачи создан, изменён или задача удалена (deadline == null).
+ * Обрабатывается планировщиком дедлайнов после коммита транзакции
+ */
+public class TaskDeadlineChangedEvent {
+    private final Integer taskId;
+    private final LocalDateTime deadline;
+
+    public TaskDeadlineChangedEvent(Integer taskId, LocalDateTime deadline) {
+        this.taskId = taskId;
+        this.deadline = deadline;
+    }
+
+    public Integer getTaskId() { return taskId; }
+
+    public LocalDateTime getDeadline() { return deadline; }
+}
@@ -0,0 +1,32 @@
+package ru.danon.spring.ToDo.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Уведомление, ожидающее отправки в Kafka (transactional outbox)
+ */
+@Entity
+@Table(name = "notification_outbox")
+@Data
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, length = 64)
+    private String eventId;
+
+    // ключ сообщения Kafka (id пользователя) - сохраняет порядок событий одного пользователя
+    @Column(name = "message_key", length = 64)
+    private String messageKey;
+
+    // NotificationEvent в JSON
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -28,7 +28,7 @@ public class ScheduledNotification {
     private LocalDateTime notificationTime;
 
     @Column(name = "status", nullable = false, length = 20)
-    private String status; // PENDING, SENT, CANCELLED, FAILED
+    private String status; // PENDING, PROCESSING, SENT, CANCELLED, FAILED
 
     @Column(name = "attempt_count")
     private Integer attemptCount = 0;
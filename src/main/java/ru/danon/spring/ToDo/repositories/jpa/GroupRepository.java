@@ -1,12 +1,25 @@
 package ru.danon.spring.ToDo.repositories.jpa;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.danon.spring.ToDo.models.Group;
+import ru.danon.spring.ToDo.repositories.jpa.projections.IdCountRow;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface GroupRepository extends JpaRepository<Group, Integer> {
     List<Group> findByTeacherId(Integer teacherId);
+
+    @Query("SELECT g.teacher.id AS id, COUNT(g.id) AS total FROM Group g " +
+            "WHERE g.teacher.id IN :teacherIds GROUP BY g.teacher.id")
+    List<IdCountRow> countByTeacherIds(@Param("teacherIds") Collection<Integer> teacherIds);
+
+    // Преподаватели групп, в которых состоят студенты
+    @Query("SELECT DISTINCT g.teacher.id FROM UserGroup ug JOIN ug.group g " +
+            "WHERE ug.user.id IN :userIds AND g.teacher IS NOT NULL")
+    List<Integer> findTeacherIdsByStudentIds(@Param("userIds") Collection<Integer> userIds);
 }
@@ -0,0 +1,28 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import ru.danon.spring.ToDo.models.NotificationOutbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationOutboxBatchRepository {
+
+    /**
+     * Вставляет сообщения outbox одним JDBC-батчем в текущей транзакции
+     */
+    void insertAll(List<NotificationOutbox> messages);
+
+    /**
+     * Блокирует до limit самых старых сообщений (FOR UPDATE SKIP LOCKED).
+     * Вызывать внутри транзакции: блокировка держится до удаления отправленных строк.
+     */
+    List<NotificationOutbox> lockBatch(int limit);
+
+    void deleteAllByIds(Collection<Long> ids);
+
+    /**
+     * Время создания самого старого неотправленного сообщения, null - outbox пуст
+     */
+    LocalDateTime findOldestCreatedAt();
+}
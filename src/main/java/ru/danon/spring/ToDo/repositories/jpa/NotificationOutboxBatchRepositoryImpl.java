@@ -0,0 +1,77 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.danon.spring.ToDo.models.NotificationOutbox;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public class NotificationOutboxBatchRepositoryImpl implements NotificationOutboxBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notification_outbox (event_id, message_key, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final String LOCK_BATCH_SQL =
+            "SELECT id, event_id, message_key, payload, created_at FROM notification_outbox " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM notification_outbox WHERE id = ANY (?)";
+
+    private static final String OLDEST_SQL =
+            "SELECT created_at FROM notification_outbox ORDER BY id LIMIT 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public NotificationOutboxBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<NotificationOutbox> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, messages, BATCH_SIZE, (ps, message) -> {
+            ps.setString(1, message.getEventId());
+            ps.setString(2, message.getMessageKey());
+            ps.setString(3, message.getPayload());
+            ps.setTimestamp(4, Timestamp.valueOf(message.getCreatedAt()));
+        });
+    }
+
+    @Override
+    public List<NotificationOutbox> lockBatch(int limit) {
+        return jdbcTemplate.query(LOCK_BATCH_SQL, ps -> ps.setInt(1, limit), (rs, rowNum) -> {
+            NotificationOutbox message = new NotificationOutbox();
+            message.setId(rs.getLong("id"));
+            message.setEventId(rs.getString("event_id"));
+            message.setMessageKey(rs.getString("message_key"));
+            message.setPayload(rs.getString("payload"));
+            message.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            return message;
+        });
+    }
+
+    @Override
+    public void deleteAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(DELETE_SQL, ps ->
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    @Override
+    public LocalDateTime findOldestCreatedAt() {
+        List<Timestamp> oldest = jdbcTemplate.queryForList(OLDEST_SQL, Timestamp.class);
+        return oldest.isEmpty() ? null : oldest.get(0).toLocalDateTime();
+    }
+}
@@ -0,0 +1,9 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.danon.spring.ToDo.models.NotificationOutbox;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long>, NotificationOutboxBatchRepository {
+}
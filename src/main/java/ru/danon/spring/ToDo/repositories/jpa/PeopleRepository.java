@@ -1,8 +1,11 @@
 package ru.danon.spring.ToDo.repositories.jpa;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.danon.spring.ToDo.models.Person;
+import ru.danon.spring.ToDo.repositories.jpa.projections.RoleCountRow;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +15,13 @@ public interface PeopleRepository extends JpaRepository<Person, Integer> {
     Optional<Person> findByUsername(String username);
     Optional<Person> findByEmail(String email);
     List<Person> findByRole(String role);
+
+    @Query("SELECT p.id FROM Person p")
+    List<Integer> findAllIds();
+
+    @Query("SELECT p.id FROM Person p WHERE p.role = :role")
+    List<Integer> findIdsByRole(@Param("role") String role);
+
+    @Query("SELECT p.role AS role, COUNT(p.id) AS total FROM Person p GROUP BY p.role")
+    List<RoleCountRow> countByRoles();
 }
@@ -0,0 +1,65 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import ru.danon.spring.ToDo.models.ScheduledNotification;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface ScheduledNotificationBatchRepository {
+
+    /**
+     * Вставляет запланированные уведомления одним JDBC-батчем
+     */
+    void insertAll(List<ScheduledNotification> notifications);
+
+    /**
+     * Забирает (claim) до limit готовых к отправке уведомлений: PENDING в окне [from, to],
+     * FAILED с attempt_count меньше maxAttempts и зависшие в PROCESSING дольше staleBefore.
+     * Повторы и зависшие строки ищутся только среди запланированных позже retrySince,
+     * поэтому запрос читает лишь последние секции таблицы. Строки выбираются через FOR UPDATE SKIP LOCKED,
+     * переводятся в PROCESSING с увеличением attempt_count и возвращаются одним UPDATE ... RETURNING,
+     * поэтому несколько экземпляров приложения никогда не заберут одну и ту же строку.
+     */
+    List<ScheduledNotification> claimDue(LocalDateTime from, LocalDateTime to,
+                                         LocalDateTime staleBefore, LocalDateTime retrySince,
+                                         int maxAttempts, int limit);
+
+    /**
+     * Записывает status, notification_time и updated_at одним JDBC-батчем.
+     * Строка ищется по id и scheduled_time, поэтому у уведомлений должно быть заполнено scheduledTime
+     */
+    void updateStatuses(List<ScheduledNotification> notifications);
+
+    /**
+     * true, если таблица секционирована (V4__Scheduled_notifications_partitioning.sql)
+     */
+    boolean isPartitioned();
+
+    /**
+     * Advisory-блокировка обслуживания секций до конца текущей транзакции: true, если её взял этот узел
+     */
+    boolean tryLockPartitionMaintenance();
+
+    /**
+     * Создаёт недостающие месячные секции с from по to включительно, возвращает число созданных
+     */
+    int ensurePartitions(YearMonth from, YearMonth to);
+
+    /**
+     * Месяцы, за которые есть секции, по возрастанию.
+     * Секции с именем не по шаблону scheduled_notifications_pYYYY_MM пропускаются
+     */
+    List<YearMonth> findPartitionMonths();
+
+    /**
+     * Удаляет секцию месяца целиком (DROP TABLE), а при archive отсоединяет её
+     * в отдельную таблицу scheduled_notifications_archive_YYYY_MM
+     */
+    void removePartition(YearMonth month, boolean archive);
+
+    /**
+     * Удаляет из DEFAULT-секции строки, запланированные раньше before
+     */
+    int deleteUnpartitionedBefore(LocalDateTime before);
+}
@@ -0,0 +1,182 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.danon.spring.ToDo.models.ScheduledNotification;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+public class ScheduledNotificationBatchRepositoryImpl implements ScheduledNotificationBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO scheduled_notifications " +
+            "(user_id, task_id, event_type, scheduled_time, status, attempt_count, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String CLAIM_SQL =
+            "UPDATE scheduled_notifications sn " +
+            "SET status = 'PROCESSING', attempt_count = COALESCE(sn.attempt_count, 0) + 1, updated_at = ? " +
+            "WHERE sn.id IN (" +
+            "  SELECT id FROM scheduled_notifications " +
+            "  WHERE (status = 'PENDING' AND scheduled_time BETWEEN ? AND ?) " +
+            "     OR (status = 'FAILED' AND COALESCE(attempt_count, 0) < ? AND scheduled_time > ?) " +
+            "     OR (status = 'PROCESSING' AND updated_at < ? AND scheduled_time > ?) " +
+            "  ORDER BY scheduled_time " +
+            "  LIMIT ? " +
+            "  FOR UPDATE SKIP LOCKED" +
+            ") " +
+            "RETURNING sn.id, sn.user_id, sn.task_id, sn.event_type, sn.scheduled_time, sn.attempt_count";
+
+    // scheduled_time - ключ секционирования: с ним UPDATE идёт в одну секцию, а не проверяет все
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE scheduled_notifications SET status = ?, notification_time = ?, updated_at = ? " +
+            "WHERE id = ? AND scheduled_time = ?";
+
+    private static final String PARTITION_PREFIX = "scheduled_notifications_p";
+    private static final String ARCHIVE_PREFIX = "scheduled_notifications_archive_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String IS_PARTITIONED_SQL =
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+            "JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = 'scheduled_notifications')";
+
+    private static final String FIND_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'scheduled_notifications'::regclass AND c.relname LIKE 'scheduled\\_notifications\\_p%' " +
+            "ORDER BY c.relname";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ScheduledNotificationBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<ScheduledNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, notifications, BATCH_SIZE, (ps, notification) -> {
+            ps.setInt(1, notification.getUserId());
+            ps.setInt(2, notification.getTaskId());
+            ps.setString(3, notification.getEventType());
+            ps.setTimestamp(4, Timestamp.valueOf(notification.getScheduledTime()));
+            ps.setString(5, notification.getStatus());
+            ps.setInt(6, notification.getAttemptCount());
+            ps.setTimestamp(7, Timestamp.valueOf(notification.getCreatedAt()));
+            ps.setTimestamp(8, Timestamp.valueOf(notification.getUpdatedAt()));
+        });
+    }
+
+    @Override
+    public List<ScheduledNotification> claimDue(LocalDateTime from, LocalDateTime to,
+                                                LocalDateTime staleBefore, LocalDateTime retrySince,
+                                                int maxAttempts, int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            ps.setInt(4, maxAttempts);
+            ps.setTimestamp(5, Timestamp.valueOf(retrySince));
+            ps.setTimestamp(6, Timestamp.valueOf(staleBefore));
+            ps.setTimestamp(7, Timestamp.valueOf(retrySince));
+            ps.setInt(8, limit);
+        }, (rs, rowNum) -> {
+            ScheduledNotification notification = new ScheduledNotification();
+            notification.setId(rs.getInt("id"));
+            notification.setUserId(rs.getInt("user_id"));
+            notification.setTaskId(rs.getInt("task_id"));
+            notification.setEventType(rs.getString("event_type"));
+            notification.setScheduledTime(rs.getTimestamp("scheduled_time").toLocalDateTime());
+            notification.setAttemptCount(rs.getInt("attempt_count"));
+            notification.setStatus("PROCESSING");
+            return notification;
+        });
+    }
+
+    @Override
+    public void updateStatuses(List<ScheduledNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, notifications, BATCH_SIZE, (ps, notification) -> {
+            ps.setString(1, notification.getStatus());
+            ps.setTimestamp(2, notification.getNotificationTime() != null
+                    ? Timestamp.valueOf(notification.getNotificationTime()) : null);
+            ps.setTimestamp(3, now);
+            ps.setInt(4, notification.getId());
+            ps.setTimestamp(5, Timestamp.valueOf(notification.getScheduledTime()));
+        });
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class));
+    }
+
+    @Override
+    public boolean tryLockPartitionMaintenance() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('scheduled_notifications_partitions'))", Boolean.class));
+    }
+
+    @Override
+    public int ensurePartitions(YearMonth from, YearMonth to) {
+        int created = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT scheduled_notifications_ensure_partition(?)", Boolean.class,
+                    Date.valueOf(month.atDay(1))))) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public List<YearMonth> findPartitionMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(FIND_PARTITIONS_SQL, String.class)) {
+            // секции, созданные вручную под другим именем, обслуживанию не подлежат
+            try {
+                months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            } catch (DateTimeParseException e) {
+                log.warn("Partition {} does not match {}YYYY_MM and is skipped", name, PARTITION_PREFIX);
+            }
+        }
+        return months;
+    }
+
+    @Override
+    public void removePartition(YearMonth month, boolean archive) {
+        // имена собираются из YearMonth, пользовательского ввода в DDL нет
+        String partition = PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+        if (archive) {
+            jdbcTemplate.execute("ALTER TABLE scheduled_notifications DETACH PARTITION " + partition);
+            jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + ARCHIVE_PREFIX + month.format(PARTITION_SUFFIX));
+        } else {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+    }
+
+    @Override
+    public int deleteUnpartitionedBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM scheduled_notifications_default WHERE scheduled_time < ?",
+                Timestamp.valueOf(before));
+    }
+}
@@ -1,14 +1,16 @@
 package ru.danon.spring.ToDo.repositories.jpa;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.danon.spring.ToDo.models.ScheduledNotification;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface ScheduledNotificationRepository extends JpaRepository<ScheduledNotification, Integer> {
+public interface ScheduledNotificationRepository extends JpaRepository<ScheduledNotification, Integer>, ScheduledNotificationBatchRepository {
     // Для обработки: находим уведомления, готовые к отправке
     List<ScheduledNotification> findByStatusAndScheduledTimeBetween(
             String status, LocalDateTime start, LocalDateTime end);
@@ -17,18 +19,25 @@ public interface ScheduledNotificationRepository extends JpaRepository<Scheduled
     List<ScheduledNotification> findByTaskIdAndUserIdAndStatus(
             Integer taskId, Integer userId, String status);
 
+    // То же самое сразу для набора пользователей (массовое назначение)
+    List<ScheduledNotification> findByTaskIdAndUserIdInAndStatus(
+            Integer taskId, Collection<Integer> userIds, String status);
+
     // Проверяем, не было ли уже запланировано такое уведомление
     boolean existsByTaskIdAndUserIdAndEventTypeAndStatus(
             Integer taskId, Integer userId, String eventType, String status);
 
-    // Для повторной обработки failed уведомлений
-    List<ScheduledNotification> findByStatusAndAttemptCountLessThan(
-            String status, Integer maxAttempts);
-
     // Находим уведомления по задаче и пользователю
     @Query("SELECT sn FROM ScheduledNotification sn WHERE sn.taskId = :taskId AND sn.userId = :userId")
     List<ScheduledNotification> findByTaskAndUser(@Param("taskId") Integer taskId,
                                                   @Param("userId") Integer userId);
 
     List<ScheduledNotification> findByTaskId(Integer taskId);
+
+    // Отмена всех ещё не отправленных напоминаний по набору задач одним UPDATE
+    @Modifying
+    @Query("UPDATE ScheduledNotification sn SET sn.status = 'CANCELLED', sn.updatedAt = :now " +
+            "WHERE sn.taskId IN :taskIds AND sn.status = 'PENDING'")
+    int cancelPendingByTaskIds(@Param("taskIds") Collection<Integer> taskIds,
+                               @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,31 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import ru.danon.spring.ToDo.models.TaskAssignment;
+import ru.danon.spring.ToDo.models.id.TaskAssignmentId;
+import ru.danon.spring.ToDo.repositories.jpa.projections.AssignmentRecipientRow;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface TaskAssignmentBatchRepository {
+
+    /**
+     * Вставляет назначения одним JDBC-батчем, пропуская уже существующие пары (task_id, user_id).
+     * Возвращает только реально вставленные назначения.
+     */
+    List<TaskAssignment> insertAllIgnoringExisting(List<TaskAssignment> assignments);
+
+    /**
+     * Одним UPDATE ... RETURNING переводит в OVERDUE активные назначения задач с дедлайном не позже now.
+     * taskIds == null - по всем задачам (догоняющий проход при старте).
+     * Возвращает переведённые назначения вместе с названием задачи и ролью пользователя.
+     */
+    List<AssignmentRecipientRow> markOverdue(Collection<Integer> taskIds, LocalDateTime now);
+
+    /**
+     * Из переданных пар (task_id, user_id) возвращает те, по которым ещё актуальны напоминания:
+     * назначение не завершено и не просрочено, дедлайн позже now. Один запрос на всю пачку.
+     */
+    List<AssignmentRecipientRow> findActiveRecipients(Collection<TaskAssignmentId> assignments, LocalDateTime now);
+}
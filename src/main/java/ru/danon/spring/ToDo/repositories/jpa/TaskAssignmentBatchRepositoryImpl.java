@@ -0,0 +1,119 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.danon.spring.ToDo.models.TaskAssignment;
+import ru.danon.spring.ToDo.models.id.TaskAssignmentId;
+import ru.danon.spring.ToDo.repositories.jpa.projections.AssignmentRecipientRow;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class TaskAssignmentBatchRepositoryImpl implements TaskAssignmentBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO task_assignments (task_id, user_id, assigned_by, status, assigned_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (task_id, user_id) DO NOTHING";
+
+    private static final String MARK_OVERDUE_SQL =
+            "UPDATE task_assignments ta SET status = 'OVERDUE', updated_at = ? " +
+            "FROM tasks t, users u " +
+            "WHERE t.id = ta.task_id AND u.id = ta.user_id " +
+            "AND t.deadline <= ? AND ta.status IN ('NOT_STARTED', 'IN_PROGRESS') ";
+
+    private static final String MARK_OVERDUE_RETURNING =
+            "RETURNING ta.task_id, ta.user_id, t.title, u.role";
+
+    private static final String ACTIVE_RECIPIENTS_SQL =
+            "SELECT ta.task_id, ta.user_id, t.title, u.role " +
+            "FROM unnest(?, ?) AS p(task_id, user_id) " +
+            "JOIN task_assignments ta ON ta.task_id = p.task_id AND ta.user_id = p.user_id " +
+            "JOIN tasks t ON t.id = ta.task_id " +
+            "JOIN users u ON u.id = ta.user_id " +
+            "WHERE ta.status NOT IN ('COMPLETED', 'OVERDUE') AND t.deadline > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TaskAssignmentBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<TaskAssignment> insertAllIgnoringExisting(List<TaskAssignment> assignments) {
+        if (assignments.isEmpty()) {
+            return List.of();
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, assignments, BATCH_SIZE, (ps, assignment) -> {
+            ps.setInt(1, assignment.getTaskId());
+            ps.setInt(2, assignment.getUserId());
+            ps.setInt(3, assignment.getAssignedBy().getId());
+            ps.setString(4, assignment.getStatus());
+            ps.setTimestamp(5, Timestamp.valueOf(assignment.getAssignedAt()));
+            ps.setTimestamp(6, Timestamp.valueOf(assignment.getUpdated_At()));
+        });
+
+        List<TaskAssignment> inserted = new ArrayList<>(assignments.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // 0 - строка уже была (ON CONFLICT), SUCCESS_NO_INFO - драйвер не сообщил количество
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    inserted.add(assignments.get(index));
+                }
+                index++;
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public List<AssignmentRecipientRow> markOverdue(Collection<Integer> taskIds, LocalDateTime now) {
+        if (taskIds != null && taskIds.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = taskIds == null
+                ? MARK_OVERDUE_SQL + MARK_OVERDUE_RETURNING
+                : MARK_OVERDUE_SQL + "AND ta.task_id = ANY (?) " + MARK_OVERDUE_RETURNING;
+
+        return jdbcTemplate.query(sql, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setTimestamp(2, Timestamp.valueOf(now));
+            if (taskIds != null) {
+                ps.setArray(3, ps.getConnection().createArrayOf("integer", taskIds.toArray()));
+            }
+        }, (rs, rowNum) -> new AssignmentRecipientRow(
+                rs.getInt("task_id"),
+                rs.getInt("user_id"),
+                rs.getString("title"),
+                rs.getString("role")));
+    }
+
+    @Override
+    public List<AssignmentRecipientRow> findActiveRecipients(Collection<TaskAssignmentId> assignments, LocalDateTime now) {
+        if (assignments.isEmpty()) {
+            return List.of();
+        }
+
+        Integer[] taskIds = assignments.stream().map(TaskAssignmentId::getTaskId).toArray(Integer[]::new);
+        Integer[] userIds = assignments.stream().map(TaskAssignmentId::getUserId).toArray(Integer[]::new);
+
+        return jdbcTemplate.query(ACTIVE_RECIPIENTS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("integer", taskIds));
+            ps.setArray(2, ps.getConnection().createArrayOf("integer", userIds));
+            ps.setTimestamp(3, Timestamp.valueOf(now));
+        }, (rs, rowNum) -> new AssignmentRecipientRow(
+                rs.getInt("task_id"),
+                rs.getInt("user_id"),
+                rs.getString("title"),
+                rs.getString("role")));
+    }
+}
@@ -1,24 +1,120 @@
 package ru.danon.spring.ToDo.repositories.jpa;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.models.Task;
 import ru.danon.spring.ToDo.models.TaskAssignment;
 import ru.danon.spring.ToDo.models.id.TaskAssignmentId;
+import ru.danon.spring.ToDo.repositories.jpa.projections.IdCountRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.MyTaskRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.ReportRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.SolutionFileRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.StatusCountRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.UserStatusCountRow;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TaskAssignmentRepository extends JpaRepository<TaskAssignment, TaskAssignmentId> {
+public interface TaskAssignmentRepository extends JpaRepository<TaskAssignment, TaskAssignmentId>, TaskAssignmentBatchRepository {
+    int REPORT_FETCH_SIZE = 500;
+
     List<TaskAssignment> findByTask(Task task);
     List<TaskAssignment> findByUser(Person user);
 
+    // Задачи пользователя вместе с автором и тегами одним запросом (вместо N+1 по тегам)
+    @Query("SELECT t.id AS id, t.title AS title, t.description AS description, t.deadline AS deadline, " +
+            "t.priority AS priority, a.id AS authorId, ta.status AS userStatus, tg.id AS tagId, tg.name AS tagName " +
+            "FROM TaskAssignment ta JOIN ta.task t LEFT JOIN t.author a " +
+            "LEFT JOIN t.taskTags tt LEFT JOIN tt.tag tg " +
+            "WHERE ta.userId = :userId ORDER BY t.id, tg.id")
+    List<MyTaskRow> findMyTaskRowsByUserId(@Param("userId") Integer userId);
+
+    @Query("SELECT t.id AS id, t.title AS title, t.description AS description, t.deadline AS deadline, " +
+            "t.priority AS priority, a.id AS authorId, ta.status AS userStatus, tg.id AS tagId, tg.name AS tagName " +
+            "FROM TaskAssignment ta JOIN ta.task t LEFT JOIN t.author a " +
+            "LEFT JOIN t.taskTags tt LEFT JOIN tt.tag tg " +
+            "WHERE ta.userId = :userId AND ta.taskId IN :taskIds ORDER BY t.id, tg.id")
+    List<MyTaskRow> findMyTaskRowsByUserIdAndTaskIds(@Param("userId") Integer userId,
+                                                     @Param("taskIds") Collection<Integer> taskIds);
+
+    // Строки отчётов одним запросом курсором: назначение + студент + группа + задача, период и группа - в SQL.
+    // Строки читаются порциями по REPORT_FETCH_SIZE. groupId == null - все группы (студент из нескольких групп
+    // попадает в отчёт по строке на каждую), since == null - за всё время. Вызывать внутри транзакции и закрывать поток.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + REPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u.username AS username, g.name AS groupName, t.title AS taskTitle, t.deadline AS deadline, " +
+            "ta.status AS status, ta.grade AS grade, ta.teacherComment AS teacherComment, ta.updated_At AS updatedAt " +
+            "FROM TaskAssignment ta JOIN ta.user u JOIN ta.task t " +
+            "LEFT JOIN UserGroup ug ON ug.user.id = ta.userId LEFT JOIN ug.group g " +
+            "WHERE (:groupId IS NULL OR g.id = :groupId) " +
+            "AND (:since IS NULL OR ta.assignedAt > :since) " +
+            "AND (:gradedOnly = false OR ta.grade IS NOT NULL) " +
+            "ORDER BY g.name, u.username, t.id")
+    Stream<ReportRow> streamReportRows(@Param("groupId") Integer groupId,
+                                       @Param("since") LocalDateTime since,
+                                       @Param("gradedOnly") boolean gradedOnly);
+
+    // То же для студентов, которые не состоят ни в одной группе (groupName = null)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + REPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u.username AS username, g.name AS groupName, t.title AS taskTitle, t.deadline AS deadline, " +
+            "ta.status AS status, ta.grade AS grade, ta.teacherComment AS teacherComment, ta.updated_At AS updatedAt " +
+            "FROM TaskAssignment ta JOIN ta.user u JOIN ta.task t " +
+            "LEFT JOIN UserGroup ug ON ug.user.id = ta.userId LEFT JOIN ug.group g " +
+            "WHERE g.id IS NULL " +
+            "AND (:since IS NULL OR ta.assignedAt > :since) " +
+            "AND (:gradedOnly = false OR ta.grade IS NOT NULL) " +
+            "ORDER BY u.username, t.id")
+    Stream<ReportRow> streamUngroupedReportRows(@Param("since") LocalDateTime since,
+                                                @Param("gradedOnly") boolean gradedOnly);
+
+    // Дешёвая "версия" данных отчётов: меняется при назначении, смене статуса/оценки, новой задаче
+    // и изменении состава групп. Правки, которые её не меняют, подхватятся по истечении TTL готового отчёта.
+    @Query(value = "SELECT (SELECT COUNT(*) FROM task_assignments) || ':' || " +
+            "COALESCE((SELECT MAX(updated_at) FROM task_assignments)::text, '') || ':' || " +
+            "COALESCE((SELECT MAX(id) FROM tasks), 0) || ':' || " +
+            "(SELECT COUNT(*) FROM user_groups) || ':' || " +
+            "COALESCE((SELECT MAX(created_at) FROM user_groups)::text, '')", nativeQuery = true)
+    String findReportDataVersion();
+
+    // Счётчики дашборда: назначения пользователей по статусам
+    @Query("SELECT ta.userId AS userId, ta.status AS status, COUNT(ta.taskId) AS total FROM TaskAssignment ta " +
+            "WHERE ta.userId IN :userIds GROUP BY ta.userId, ta.status")
+    List<UserStatusCountRow> countStatusesByUserIds(@Param("userIds") Collection<Integer> userIds);
+
+    @Query("SELECT ta.userId FROM TaskAssignment ta WHERE ta.taskId = :taskId")
+    List<Integer> findUserIdsByTaskId(@Param("taskId") Integer taskId);
+
+    // Ближайший дедлайн среди незавершённых и непросроченных назначений пользователя
+    @Query("SELECT MIN(t.deadline) FROM TaskAssignment ta JOIN ta.task t " +
+            "WHERE ta.userId = :userId AND ta.status NOT IN ('COMPLETED', 'OVERDUE')")
+    LocalDateTime findNextDeadline(@Param("userId") Integer userId);
+
+    // Невыполненные назначения с истёкшим дедлайном на задачи преподавателя у студентов его групп
+    @Query("SELECT t.author.id AS id, COUNT(ta.taskId) AS total FROM TaskAssignment ta JOIN ta.task t, UserGroup ug " +
+            "WHERE ug.user.id = ta.userId AND ug.group.teacher.id = t.author.id AND t.author.id IN :teacherIds " +
+            "AND ta.status <> 'COMPLETED' AND t.deadline < :now GROUP BY t.author.id")
+    List<IdCountRow> countOverdueByTeacherIds(@Param("teacherIds") Collection<Integer> teacherIds,
+                                              @Param("now") LocalDateTime now);
+
+    @Query("SELECT COUNT(ta.taskId) FROM TaskAssignment ta WHERE ta.assignedBy.id = :teacherId " +
+            "AND ta.status <> 'COMPLETED' AND ta.status <> 'OVERDUE' AND ta.updated_At < :twoWeeksAgo")
+    long countStuckByTeacherId(@Param("teacherId") Integer teacherId, @Param("twoWeeksAgo") LocalDateTime twoWeeksAgo);
+
     @Query("SELECT ta FROM TaskAssignment ta WHERE ta.user.id = :userId AND ta.task.id = :taskId")
     Optional<TaskAssignment> findByUserIdAndTaskId(@Param("userId") Integer userId,
                                                    @Param("taskId") Integer taskId);
@@ -28,20 +124,38 @@ public interface TaskAssignmentRepository extends JpaRepository<TaskAssignment,
     List<TaskAssignment> findByGroupIdAndTaskId(@Param("groupId") Integer groupId,
                                                 @Param("taskId") Integer taskId);
 
+    // Пути ко всем загруженным решениям задачи - для пакетной выдачи ссылок на скачивание
+    @Query("SELECT ta.userId AS userId, ta.solutionFilePath AS solutionFilePath FROM TaskAssignment ta " +
+            "WHERE ta.taskId = :taskId AND ta.solutionFilePath IS NOT NULL")
+    List<SolutionFileRow> findSolutionFilesByTaskId(@Param("taskId") Integer taskId);
+
+    // Статистика по группе: счётчики в БД вместо загрузки назначений вместе с задачей и пользователями
+    @Query("SELECT ta.status AS status, COUNT(ta.taskId) AS total FROM TaskAssignment ta, UserGroup ug " +
+            "WHERE ug.user.id = ta.userId AND ug.group.id = :groupId AND ta.taskId = :taskId GROUP BY ta.status")
+    List<StatusCountRow> countStatusesByGroupIdAndTaskId(@Param("groupId") Integer groupId,
+                                                         @Param("taskId") Integer taskId);
+
+    // Студенты групп преподавателя, которым назначена задача
+    @Query("SELECT DISTINCT p FROM TaskAssignment ta JOIN ta.user p, UserGroup ug " +
+            "WHERE ug.user.id = p.id AND ug.group.teacher.id = :teacherId AND ta.taskId = :taskId")
+    List<Person> findAssigneesInTeacherGroups(@Param("taskId") Integer taskId,
+                                              @Param("teacherId") Integer teacherId);
+
+    // Участники группы (кроме excludeUserId), которым назначена задача
+    @Query("SELECT p FROM TaskAssignment ta JOIN ta.user p, UserGroup ug " +
+            "WHERE ug.user.id = p.id AND ug.group.id = :groupId AND ta.taskId = :taskId AND p.id <> :excludeUserId")
+    List<Person> findAssigneesInGroup(@Param("taskId") Integer taskId,
+                                      @Param("groupId") Integer groupId,
+                                      @Param("excludeUserId") Integer excludeUserId);
+
     void deleteByTaskId(Integer taskId);
 
     boolean existsByTaskAndUser(Task task, Person user);
 
-    @Modifying
-    @Query("UPDATE TaskAssignment ta SET ta.status = 'OVERDUE' " +
-            "WHERE ta.task.deadline < :now " +
-            "AND ta.status IN ('NOT_STARTED', 'IN_PROGRESS')")
-    void updateOverdueTaskAssignments(@Param("now") LocalDateTime now);
-
-    @Query("SELECT ta FROM TaskAssignment ta " +
-            "WHERE ta.task.deadline < :now " +
-            "AND ta.status IN ('NOT_STARTED', 'IN_PROGRESS')")
-    List<TaskAssignment> findOverdueTaskAssignments(@Param("now") LocalDateTime now);
+    @Query("SELECT new ru.danon.spring.ToDo.models.id.TaskAssignmentId(ta.taskId, ta.userId) FROM TaskAssignment ta " +
+            "WHERE ta.taskId IN :taskIds AND ta.userId IN :userIds")
+    List<TaskAssignmentId> findExistingIds(@Param("taskIds") Collection<Integer> taskIds,
+                                           @Param("userIds") Collection<Integer> userIds);
 
     @Query("SELECT ta FROM TaskAssignment ta " +
             "WHERE ta.task.deadline BETWEEN :windowStart AND :windowEnd " +
@@ -1,14 +1,56 @@
 package ru.danon.spring.ToDo.repositories.jpa;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.danon.spring.ToDo.models.Task;
+import ru.danon.spring.ToDo.repositories.jpa.projections.TaskDeadlineRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.TaskStatusCountRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.TeacherTaskCountRow;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface TaskRepository extends JpaRepository<Task, Integer> {
+public interface TaskRepository extends JpaRepository<Task, Integer>, JpaSpecificationExecutor<Task> {
     List<Task> findByAuthorId(Integer authorId);
 
     Task findTaskById(Integer taskId);
+
+    // Страница дедлайнов после курсора (deadline, id) и не позже until - для ленивой подгрузки планировщика
+    @Query("SELECT t.id AS id, t.deadline AS deadline FROM Task t " +
+            "WHERE (t.deadline > :afterDeadline OR (t.deadline = :afterDeadline AND t.id > :afterId)) " +
+            "AND t.deadline <= :until " +
+            "ORDER BY t.deadline, t.id")
+    List<TaskDeadlineRow> findDeadlinesPage(@Param("afterDeadline") LocalDateTime afterDeadline,
+                                            @Param("afterId") Integer afterId,
+                                            @Param("until") LocalDateTime until,
+                                            Pageable pageable);
+
+    // Статистика отчёта одним запросом: назначения каждой задачи по статусам.
+    // since == null - за всё время; groupId == null - все задачи, иначе задачи, назначенные кому-то из группы
+    @Query("SELECT t.id AS taskId, t.title AS title, a.username AS authorName, t.deadline AS deadline, " +
+            "ta.status AS status, COUNT(ta.taskId) AS assignmentCount " +
+            "FROM Task t LEFT JOIN t.author a LEFT JOIN TaskAssignment ta ON ta.taskId = t.id " +
+            "WHERE (:since IS NULL OR t.createdAt > :since) " +
+            "AND (:groupId IS NULL OR EXISTS (SELECT 1 FROM TaskAssignment ga, UserGroup ug " +
+            "WHERE ga.taskId = t.id AND ug.user.id = ga.userId AND ug.group.id = :groupId)) " +
+            "GROUP BY t.id, t.title, a.username, t.deadline, ta.status " +
+            "ORDER BY t.id")
+    List<TaskStatusCountRow> findTaskStatusCounts(@Param("since") LocalDateTime since,
+                                                  @Param("groupId") Integer groupId);
+
+    @Query("SELECT DISTINCT t.author.id FROM Task t WHERE t.id IN :taskIds AND t.author IS NOT NULL")
+    List<Integer> findAuthorIdsByTaskIds(@Param("taskIds") Collection<Integer> taskIds);
+
+    // Счётчики дашборда: сколько задач создал преподаватель и сколько из них назначено
+    @Query("SELECT t.author.id AS teacherId, COUNT(DISTINCT t.id) AS createdTasks, " +
+            "COUNT(DISTINCT ta.taskId) AS assignedTasks " +
+            "FROM Task t LEFT JOIN TaskAssignment ta ON ta.taskId = t.id " +
+            "WHERE t.author.id IN :teacherIds GROUP BY t.author.id")
+    List<TeacherTaskCountRow> countTasksByAuthorIds(@Param("teacherIds") Collection<Integer> teacherIds);
 }
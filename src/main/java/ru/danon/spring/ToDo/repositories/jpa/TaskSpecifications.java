@@ -0,0 +1,137 @@
+package ru.danon.spring.ToDo.repositories.jpa;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+import ru.danon.spring.ToDo.dto.TaskFilterDTO;
+import ru.danon.spring.ToDo.models.Task;
+import ru.danon.spring.ToDo.models.TaskAssignment;
+import ru.danon.spring.ToDo.models.TaskTag;
+import ru.danon.spring.ToDo.util.KeysetCursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фильтры списка задач, которые выполняются на стороне БД
+ */
+public final class TaskSpecifications {
+
+    private TaskSpecifications() {
+    }
+
+    // Общие фильтры по полям задачи (без статуса - он зависит от того, чей список смотрим)
+    public static Specification<Task> matching(TaskFilterDTO filter) {
+        List<Specification<Task>> specs = new ArrayList<>();
+        if (filter.getPriority() != null) {
+            specs.add(hasPriority(filter.getPriority()));
+        }
+        if (filter.getTag() != null) {
+            specs.add(hasTag(filter.getTag()));
+        }
+        if (filter.getAuthorId() != null) {
+            specs.add(hasAuthor(filter.getAuthorId()));
+        }
+        if (filter.getDeadlineFrom() != null || filter.getDeadlineTo() != null) {
+            specs.add(deadlineBetween(filter.getDeadlineFrom(), filter.getDeadlineTo()));
+        }
+        return Specification.allOf(specs);
+    }
+
+    public static Specification<Task> hasPriority(String priority) {
+        return (root, query, cb) -> cb.equal(root.get("priority"), priority);
+    }
+
+    public static Specification<Task> hasAuthor(Integer authorId) {
+        return (root, query, cb) -> cb.equal(root.get("author").get("id"), authorId);
+    }
+
+    public static Specification<Task> deadlineBetween(LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> deadline = root.get("deadline");
+            if (from != null && to != null) {
+                return cb.between(deadline, from, to);
+            }
+            return from != null ? cb.greaterThanOrEqualTo(deadline, from) : cb.lessThanOrEqualTo(deadline, to);
+        };
+    }
+
+    public static Specification<Task> hasTag(String tagName) {
+        return (root, query, cb) -> {
+            Subquery<Integer> subquery = query.subquery(Integer.class);
+            Root<TaskTag> taskTag = subquery.from(TaskTag.class);
+            subquery.select(taskTag.get("taskId"))
+                    .where(cb.equal(taskTag.get("taskId"), root.get("id")),
+                            cb.equal(taskTag.get("tag").get("name"), tagName));
+            return cb.exists(subquery);
+        };
+    }
+
+    // Есть хотя бы одно назначение в указанном статусе (список преподавателя)
+    public static Specification<Task> hasAssignmentStatus(String status) {
+        return (root, query, cb) -> {
+            Subquery<Integer> subquery = query.subquery(Integer.class);
+            Root<TaskAssignment> assignment = subquery.from(TaskAssignment.class);
+            subquery.select(assignment.get("taskId"))
+                    .where(cb.equal(assignment.get("taskId"), root.get("id")),
+                            cb.equal(assignment.get("status"), status));
+            return cb.exists(subquery);
+        };
+    }
+
+    // Задача назначена пользователю (и, если указан, в нужном статусе) - список студента
+    public static Specification<Task> assignedTo(Integer userId, String status) {
+        return (root, query, cb) -> {
+            Join<Task, TaskAssignment> assignment = root.join("taskAssignments");
+            Predicate predicate = cb.equal(assignment.get("userId"), userId);
+            if (status != null) {
+                predicate = cb.and(predicate, cb.equal(assignment.get("status"), status));
+            }
+            return predicate;
+        };
+    }
+
+    // Автор нужен для DTO, подтягиваем его тем же запросом
+    public static Specification<Task> fetchAuthor() {
+        return (root, query, cb) -> {
+            if (!Long.class.equals(query.getResultType()) && !long.class.equals(query.getResultType())) {
+                root.fetch("author", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Строки строго после курсора при сортировке (attribute, id).
+     * Порядок NULL совпадает с PostgreSQL: в конце при ASC, в начале при DESC.
+     */
+    public static Specification<Task> after(String attribute, boolean ascending, KeysetCursor cursor) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> value = root.get(attribute);
+            Path<Integer> id = root.get("id");
+            LocalDateTime lastValue = cursor.getValue();
+            Integer lastId = cursor.getId();
+
+            if (ascending) {
+                if (lastValue == null) {
+                    return cb.and(cb.isNull(value), cb.greaterThan(id, lastId));
+                }
+                return cb.or(
+                        cb.and(cb.greaterThanOrEqualTo(value, lastValue),
+                                cb.or(cb.greaterThan(value, lastValue), cb.greaterThan(id, lastId))),
+                        cb.isNull(value));
+            }
+
+            if (lastValue == null) {
+                return cb.or(cb.and(cb.isNull(value), cb.lessThan(id, lastId)), cb.isNotNull(value));
+            }
+            return cb.and(cb.lessThanOrEqualTo(value, lastValue),
+                    cb.or(cb.lessThan(value, lastValue), cb.lessThan(id, lastId)));
+        };
+    }
+}
@@ -8,12 +8,21 @@ import org.springframework.stereotype.Repository;
 import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.models.UserGroup;
 import ru.danon.spring.ToDo.models.id.UserGroupId;
+import ru.danon.spring.ToDo.repositories.jpa.projections.TeacherStudentProgressRow;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface UserGroupRepository extends JpaRepository<UserGroup, UserGroupId> {
     List<UserGroup> findByGroupId(Integer groupId);
+
+    @Query("SELECT DISTINCT ug.user FROM UserGroup ug WHERE ug.group.id IN :groupIds")
+    List<Person> findUsersByGroupIds(@Param("groupIds") Collection<Integer> groupIds);
+
+    // Все студенты, состоящие хотя бы в одной группе, одним запросом (без ленивой загрузки user на каждую связь)
+    @Query("SELECT DISTINCT ug.user FROM UserGroup ug")
+    List<Person> findAllGroupMembers();
     boolean existsByGroupIdAndUserId(Integer groupId, Integer userId);
 
     @Modifying
@@ -25,6 +34,13 @@ public interface UserGroupRepository extends JpaRepository<UserGroup, UserGroupI
 
     Integer countByGroupId(Integer groupId);
 
+    // Счётчики дашборда: назначения каждого студента из групп преподавателей (студенты без задач - с нулями)
+    @Query("SELECT g.teacher.id AS teacherId, ug.user.id AS studentId, COUNT(ta.taskId) AS total, " +
+            "SUM(CASE WHEN ta.status = 'COMPLETED' THEN 1 ELSE 0 END) AS completed " +
+            "FROM UserGroup ug JOIN ug.group g LEFT JOIN TaskAssignment ta ON ta.userId = ug.user.id " +
+            "WHERE g.teacher.id IN :teacherIds GROUP BY g.teacher.id, ug.user.id")
+    List<TeacherStudentProgressRow> findStudentProgressByTeacherIds(@Param("teacherIds") Collection<Integer> teacherIds);
+
     @Query("Select g.name from Group g where g.id = :groupId")
     String getGroupName(@Param("groupId") Integer groupId);
 }
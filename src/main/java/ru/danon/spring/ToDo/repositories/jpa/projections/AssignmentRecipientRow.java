@@ -0,0 +1,26 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Назначение вместе с названием задачи и ролью пользователя - всё, что нужно для уведомления получателя
+ */
+public class AssignmentRecipientRow {
+    private final Integer taskId;
+    private final Integer userId;
+    private final String taskTitle;
+    private final String userRole;
+
+    public AssignmentRecipientRow(Integer taskId, Integer userId, String taskTitle, String userRole) {
+        this.taskId = taskId;
+        this.userId = userId;
+        this.taskTitle = taskTitle;
+        this.userRole = userRole;
+    }
+
+    public Integer getTaskId() { return taskId; }
+
+    public Integer getUserId() { return userId; }
+
+    public String getTaskTitle() { return taskTitle; }
+
+    public String getUserRole() { return userRole; }
+}
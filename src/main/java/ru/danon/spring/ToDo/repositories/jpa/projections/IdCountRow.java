@@ -0,0 +1,9 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Результат GROUP BY по id: сам id и число строк
+ */
+public interface IdCountRow {
+    Integer getId();
+    Long getTotal();
+}
@@ -0,0 +1,19 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоская строка "назначение + задача + тег" для списка задач пользователя.
+ * У задачи с несколькими тегами будет несколько строк, без тегов - одна строка с tagId = null.
+ */
+public interface MyTaskRow {
+    Integer getId();
+    String getTitle();
+    String getDescription();
+    LocalDateTime getDeadline();
+    String getPriority();
+    Integer getAuthorId();
+    String getUserStatus();
+    Integer getTagId();
+    String getTagName();
+}
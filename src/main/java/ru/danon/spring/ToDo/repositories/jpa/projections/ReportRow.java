@@ -0,0 +1,18 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоская строка отчёта: назначение вместе со студентом, его группой и задачей.
+ * Студент без группы - groupName = null.
+ */
+public interface ReportRow {
+    String getUsername();
+    String getGroupName();
+    String getTaskTitle();
+    LocalDateTime getDeadline();
+    String getStatus();
+    Integer getGrade();
+    String getTeacherComment();
+    LocalDateTime getUpdatedAt();
+}
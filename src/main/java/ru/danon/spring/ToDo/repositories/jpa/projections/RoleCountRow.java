@@ -0,0 +1,9 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Число пользователей с ролью
+ */
+public interface RoleCountRow {
+    String getRole();
+    Long getTotal();
+}
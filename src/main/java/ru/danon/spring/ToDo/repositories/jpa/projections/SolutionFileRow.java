@@ -0,0 +1,9 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Путь к загруженному решению студента
+ */
+public interface SolutionFileRow {
+    Integer getUserId();
+    String getSolutionFilePath();
+}
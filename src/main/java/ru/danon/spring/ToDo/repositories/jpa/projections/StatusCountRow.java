@@ -0,0 +1,9 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Число назначений в одном статусе
+ */
+public interface StatusCountRow {
+    String getStatus();
+    Long getTotal();
+}
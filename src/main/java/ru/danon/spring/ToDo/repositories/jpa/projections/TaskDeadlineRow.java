@@ -0,0 +1,11 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Id и дедлайн задачи - всё, что нужно планировщику просрочек
+ */
+public interface TaskDeadlineRow {
+    Integer getId();
+    LocalDateTime getDeadline();
+}
@@ -0,0 +1,15 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Число назначений задачи в одном статусе. Для задачи без назначений - одна строка со status = null и assignmentCount = 0
+ */
+public interface TaskStatusCountRow {
+    Integer getTaskId();
+    String getTitle();
+    String getAuthorName();
+    LocalDateTime getDeadline();
+    String getStatus();
+    Long getAssignmentCount();
+}
@@ -0,0 +1,11 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Студент из группы преподавателя: всего назначений и сколько из них выполнено
+ */
+public interface TeacherStudentProgressRow {
+    Integer getTeacherId();
+    Integer getStudentId();
+    Long getTotal();
+    Long getCompleted();
+}
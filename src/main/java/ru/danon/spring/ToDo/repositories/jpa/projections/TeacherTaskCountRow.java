@@ -0,0 +1,10 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Задачи преподавателя: сколько создано и сколько из них кому-то назначено
+ */
+public interface TeacherTaskCountRow {
+    Integer getTeacherId();
+    Long getCreatedTasks();
+    Long getAssignedTasks();
+}
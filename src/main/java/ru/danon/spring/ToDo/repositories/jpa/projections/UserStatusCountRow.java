@@ -0,0 +1,10 @@
+package ru.danon.spring.ToDo.repositories.jpa.projections;
+
+/**
+ * Число назначений пользователя в одном статусе
+ */
+public interface UserStatusCountRow {
+    Integer getUserId();
+    String getStatus();
+    Long getTotal();
+}
@@ -9,7 +9,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CommentRepository extends MongoRepository<Comment, Integer> {
+public interface CommentRepository extends MongoRepository<Comment, Integer>, CommentThreadRepository {
 
     Optional<Comment> findById(String id);
 
@@ -0,0 +1,36 @@
+package ru.danon.spring.ToDo.repositories.mongo;
+
+import ru.danon.spring.ToDo.models.Comment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CommentThreadRepository {
+
+    /**
+     * Страница комментариев верхнего уровня задачи вместе с первыми repliesLimit ответами на каждый -
+     * одна агрегация ($match + $sort + $limit + $lookup). Порядок (createdAt, _id), страница начинается
+     * строго после (afterCreatedAt, afterId); afterCreatedAt == null - с начала.
+     */
+    List<CommentThread> findThreadPage(Integer taskId, LocalDateTime afterCreatedAt, String afterId,
+                                       int limit, int repliesLimit);
+
+    /**
+     * Атомарно меняет счётчик ответов у родительского комментария ($inc, без чтения документа)
+     */
+    void incrementRepliesCount(String parentId, int delta);
+
+    /**
+     * Пересчитывает repliesCount всех комментариев по фактическому числу ответов
+     * (старые данные: счётчик увеличивался у ответа, а не у родителя). Возвращает число изменённых документов.
+     */
+    long recountReplies();
+
+    /**
+     * Составные индексы под выборку веток; на существующей базе mongo-init.js повторно не выполняется
+     */
+    void ensureThreadIndexes();
+
+    record CommentThread(Comment comment, List<Comment> replies) {
+    }
+}
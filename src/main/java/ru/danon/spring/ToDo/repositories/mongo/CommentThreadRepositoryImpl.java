@@ -0,0 +1,141 @@
+package ru.danon.spring.ToDo.repositories.mongo;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import ru.danon.spring.ToDo.models.Comment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class CommentThreadRepositoryImpl implements CommentThreadRepository {
+
+    private static final String COLLECTION = "comments";
+    private static final int BULK_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public CommentThreadRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<CommentThread> findThreadPage(Integer taskId, LocalDateTime afterCreatedAt, String afterId,
+                                              int limit, int repliesLimit) {
+        Document match = new Document("taskId", taskId).append("parentId", null);
+        if (afterCreatedAt != null) {
+            Object createdAt = mongoTemplate.getConverter().convertToMongoType(afterCreatedAt);
+            match.append("$or", List.of(
+                    new Document("createdAt", new Document("$gt", createdAt)),
+                    new Document("createdAt", createdAt).append("_id", new Document("$gt", new ObjectId(afterId)))));
+        }
+
+        // parentId хранится строкой, поэтому _id родителя приводится к строке;
+        // $eq внутри $expr подзапроса $lookup использует индекс {parentId, createdAt, _id}
+        Document lookup = new Document("from", COLLECTION)
+                .append("let", new Document("pid", new Document("$toString", "$_id")))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr", new Document("$eq", List.of("$parentId", "$$pid")))),
+                        new Document("$sort", new Document("createdAt", 1).append("_id", 1)),
+                        new Document("$limit", repliesLimit)))
+                .append("as", "replies");
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(context -> new Document("$match", match));
+        stages.add(context -> new Document("$sort", new Document("createdAt", 1).append("_id", 1)));
+        stages.add(context -> new Document("$limit", limit));
+        if (repliesLimit > 0) {
+            stages.add(context -> new Document("$lookup", lookup));
+        }
+
+        List<CommentThread> threads = new ArrayList<>();
+        for (Document document : mongoTemplate.aggregate(Aggregation.newAggregation(stages), COLLECTION, Document.class)) {
+            List<Comment> replies = new ArrayList<>();
+            Object rawReplies = document.remove("replies");
+            if (rawReplies instanceof List<?> list) {
+                for (Object reply : list) {
+                    replies.add(mongoTemplate.getConverter().read(Comment.class, (Document) reply));
+                }
+            }
+            threads.add(new CommentThread(mongoTemplate.getConverter().read(Comment.class, document), replies));
+        }
+        return threads;
+    }
+
+    @Override
+    public void incrementRepliesCount(String parentId, int delta) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(parentId)),
+                new Update().inc("repliesCount", delta), Comment.class);
+    }
+
+    @Override
+    public long recountReplies() {
+        Map<String, Integer> actual = new HashMap<>();
+        Aggregation countReplies = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("parentId").ne(null)),
+                Aggregation.group("parentId").count().as("total"));
+        for (Document row : mongoTemplate.aggregate(countReplies, COLLECTION, Document.class)) {
+            actual.put(row.getString("_id"), ((Number) row.get("total")).intValue());
+        }
+
+        // правим только расходящиеся счётчики, пачками
+        Query all = new Query();
+        all.fields().include("_id").include("repliesCount");
+        long changed = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Comment.class);
+        int pending = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(all, Document.class, COLLECTION)) {
+            for (Iterator<Document> it = documents.iterator(); it.hasNext(); ) {
+                Document document = it.next();
+                String id = document.getObjectId("_id").toHexString();
+                int expected = actual.getOrDefault(id, 0);
+                Object current = document.get("repliesCount");
+                if (!(current instanceof Number number) || number.intValue() != expected) {
+                    bulk.updateOne(Query.query(Criteria.where("_id").is(id)), new Update().set("repliesCount", expected));
+                    changed++;
+                    if (++pending == BULK_SIZE) {
+                        bulk.execute();
+                        bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Comment.class);
+                        pending = 0;
+                    }
+                }
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+        return changed;
+    }
+
+    @Override
+    public void ensureThreadIndexes() {
+        IndexOperations indexes = mongoTemplate.indexOps(COLLECTION);
+        indexes.createIndex(new Index()
+                .on("taskId", Sort.Direction.ASC)
+                .on("parentId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("taskId_1_parentId_1_createdAt_1__id_1"));
+        indexes.createIndex(new Index()
+                .on("parentId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("parentId_1_createdAt_1__id_1"));
+    }
+}
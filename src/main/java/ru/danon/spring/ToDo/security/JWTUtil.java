@@ -7,36 +7,49 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import ru.danon.spring.ToDo.models.Person;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.Date;
 
 @Component
 public class JWTUtil {
 
-    @Value("${jwt_secret}")
-    private String secret;
+    public static final Duration TOKEN_LIFETIME = Duration.ofMinutes(60);
 
-    public String generateToken(String username) {
-        Date expirationDate = Date.from(ZonedDateTime.now().plusMinutes(60).toInstant());
-        return JWT.create()
-                .withSubject("User details")
-                .withClaim("username", username)//параметры, которые передаются в токен
-                .withIssuedAt(new Date())//время когда создан
-                .withIssuer("Danon")//кто выдал токен
-                .withExpiresAt(expirationDate)//когда заканчивается срок действия
-                .sign(Algorithm.HMAC256(secret));//секрет
+    private static final String SUBJECT = "User details";
+    private static final String ISSUER = "Danon";
 
-    }
+    // алгоритм и верификатор потокобезопасны - собираем один раз, а не на каждый запрос
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
 
-    public String validateTokenAndRetrieveClaim(String token) throws JWTVerificationException {
-        JWTVerifier verifier = JWT.require(Algorithm.HMAC256(secret))
-                .withSubject("User details")
-                .withIssuer("Danon")
+    public JWTUtil(@Value("${jwt_secret}") String secret) {
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.verifier = JWT.require(algorithm)
+                .withSubject(SUBJECT)
+                .withIssuer(ISSUER)
                 .build();
+    }
 
-        DecodedJWT jwt = verifier.verify(token);
+    public String generateToken(Person person) {
+        Date expirationDate = Date.from(ZonedDateTime.now().plus(TOKEN_LIFETIME).toInstant());
+        return JWT.create()
+                .withSubject(SUBJECT)
+                .withClaim("username", person.getUsername())//параметры, которые передаются в токен
+                .withClaim("userId", person.getId())
+                .withClaim("role", person.getRole())
+                .withIssuedAt(new Date())//время когда создан
+                .withIssuer(ISSUER)//кто выдал токен
+                .withExpiresAt(expirationDate)//когда заканчивается срок действия
+                .sign(algorithm);//секрет
+    }
 
-        return jwt.getClaim("username").asString();
+    /**
+     * Проверяет подпись и срок действия, возвращает все claims токена
+     */
+    public DecodedJWT verify(String token) throws JWTVerificationException {
+        return verifier.verify(token);
     }
 }
@@ -0,0 +1,96 @@
+package ru.danon.spring.ToDo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Отзыв claims в JWT. Токен несёт роль и username, поэтому после смены роли, переименования
+ * или удаления пользователя ранее выданные токены нельзя принимать на веру.
+ * Момент изменения хранится в Redis (TTL = время жизни токена), на узле - в Caffeine с коротким TTL,
+ * чтобы проверка на каждый запрос обходилась без сетевого вызова.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private static final String KEY_PREFIX = "todo:auth:claims-changed:";
+    // 0 - изменений не было (кэшируем и отсутствие, иначе каждый запрос шёл бы в Redis)
+    private static final long NONE = 0L;
+    // Redis недоступен: изменения могли быть, claims не доверяем и проверяем пользователя по БД.
+    // Кэшируется на local-ttl, чтобы при лежащем Redis не ждать его таймаута на каждом запросе
+    private static final long UNKNOWN = -1L;
+
+    private final StringRedisTemplate redis;
+    private final Cache<Integer, Long> changedAt;
+
+    @Autowired
+    public TokenRevocationService(StringRedisTemplate redis,
+                                  @Value("${jwt.revocation.local-ttl-seconds:10}") long localTtlSeconds) {
+        this.redis = redis;
+        this.changedAt = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Токены пользователя, выданные до этого момента, перестают считаться актуальными.
+     * Внутри транзакции отметка ставится после коммита: до него другие запросы читают из БД
+     * ещё старые данные и могли бы выпустить токен, который отметка уже не покрыла бы,
+     * а при откате изменений отзывать нечего
+     */
+    public void claimsChanged(Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markChanged(userId);
+                }
+            });
+        } else {
+            markChanged(userId);
+        }
+    }
+
+    private void markChanged(Integer userId) {
+        // округляем вверх до секунды: iat в JWT хранится с точностью до секунд
+        long now = Instant.now().getEpochSecond() + 1;
+        changedAt.put(userId, now);
+        try {
+            redis.opsForValue().set(KEY_PREFIX + userId, Long.toString(now), JWTUtil.TOKEN_LIFETIME);
+        } catch (Exception e) {
+            log.warn("Failed to store claims change for user {} in Redis: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * true - claims токена нельзя принимать на веру и пользователя нужно загрузить из БД
+     */
+    public boolean isStale(Integer userId, Instant issuedAt) {
+        long changed = changedAt.get(userId, this::loadChangedAt);
+        if (changed == UNKNOWN) {
+            return true;
+        }
+        return changed != NONE && issuedAt.getEpochSecond() < changed;
+    }
+
+    private Long loadChangedAt(Integer userId) {
+        try {
+            String value = redis.opsForValue().get(KEY_PREFIX + userId);
+            return value == null ? NONE : Long.parseLong(value);
+        } catch (Exception e) {
+            log.warn("Failed to read claims change for user {}, falling back to DB: {}", userId, e.getMessage());
+            return UNKNOWN;
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package ru.danon.spring.ToDo.services;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.danon.spring.ToDo.dto.DashboardStatsDTO;
 import ru.danon.spring.ToDo.dto.LogResponseDTO;
 import ru.danon.spring.ToDo.dto.PersonResponseDTO;
+import ru.danon.spring.ToDo.events.DashboardStatsChangedEvent;
 import ru.danon.spring.ToDo.models.*;
 import ru.danon.spring.ToDo.repositories.jpa.*;
+import ru.danon.spring.ToDo.security.TokenRevocationService;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -27,10 +30,12 @@ public class AdminService {
     private final TaskAssignmentRepository taskAssignmentRepository;
     private final UserGroupRepository userGroupRepository;
     private final GroupService groupService;
-    private final ModelMapper modelMapper;
+    private final TokenRevocationService tokenRevocationService;
+    private final DashboardStatsService dashboardStatsService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public AdminService(PeopleService peopleService, GroupRepository groupRepository, NotificationProducerService notificationProducerService, RoleAuditLogRepository roleAuditLogRepository, TaskRepository taskRepository, TaskService taskService, TaskAssignmentRepository taskAssignmentRepository, UserGroupRepository userGroupRepository, GroupService groupService, ModelMapper modelMapper) {
+    public AdminService(PeopleService peopleService, GroupRepository groupRepository, NotificationProducerService notificationProducerService, RoleAuditLogRepository roleAuditLogRepository, TaskRepository taskRepository, TaskService taskService, TaskAssignmentRepository taskAssignmentRepository, UserGroupRepository userGroupRepository, GroupService groupService, TokenRevocationService tokenRevocationService, DashboardStatsService dashboardStatsService, ApplicationEventPublisher eventPublisher) {
         this.peopleService = peopleService;
         this.groupRepository = groupRepository;
         this.notificationProducerService = notificationProducerService;
@@ -42,7 +47,9 @@ public class AdminService {
         this.taskAssignmentRepository = taskAssignmentRepository;
         this.userGroupRepository = userGroupRepository;
         this.groupService = groupService;
-        this.modelMapper = modelMapper;
+        this.tokenRevocationService = tokenRevocationService;
+        this.dashboardStatsService = dashboardStatsService;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Person> getAllUsers() {
@@ -58,6 +65,7 @@ public class AdminService {
         group.setTeacher(null);
 
         groupRepository.save(group);
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(Set.of(), Set.of(), Set.of(), true));
     }
 
     @Transactional
@@ -89,6 +97,9 @@ public class AdminService {
 
         user.setRole(newRole);
         peopleService.save(user);
+        // роль зашита в выданные JWT - заставляем их перечитать пользователя
+        tokenRevocationService.claimsChanged(userId);
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(Set.of(userId), Set.of(), Set.of(userId), true));
 
         //уведомление: вам назначили новую роль
         notificationProducerService.sendChangeRoleNotification(
@@ -109,6 +120,12 @@ public class AdminService {
 
         groupRepository.save(group);
 
+        Set<Integer> teacherIds = new HashSet<>(Set.of(userId));
+        if (previousTeacher != null) {
+            teacherIds.add(previousTeacher.getId());
+        }
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(Set.of(), Set.of(), teacherIds, false));
+
         if (previousTeacher != null && !previousTeacher.getId().equals(userId)) {
             notificationProducerService.sendTeacherRemovedNotification(
                     previousTeacher.getId(),
@@ -144,6 +161,7 @@ public class AdminService {
 
         roleAuditLogRepository.save(log);
 
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(Set.of(id), Set.of(), Set.of(id), true));
         return peopleService.save(teacher);
     }
 
@@ -165,164 +183,18 @@ public class AdminService {
         DashboardStatsDTO stats = new DashboardStatsDTO();
         stats.setUserInfo(userInfo);
 
+        // счётчики материализованы в DashboardStatsService - здесь только чтение
         switch (role) {
             case "ROLE_ADMIN":
-                // Общее количество пользователей
-                stats.setTotalUsers(peopleService.findAll().size());
-
-                // Общее количество групп
-                stats.setTotalGroups(groupRepository.findAll().size());
-
-                // Общее количество задач (всех задач в системе)
-                stats.setTotalTasks(taskService.findAllTasks().size());
-
-                // Статистика по ролям
-                Map<String, Integer> roleStats = new HashMap<>();
-                for (Person person : peopleService.findAll()) {
-                    String userRole = person.getRole();
-                    roleStats.put(userRole, roleStats.getOrDefault(userRole, 0) + 1);
-                }
-                stats.setRoleStatistics(roleStats);
+                dashboardStatsService.fillAdminStats(stats);
                 break;
 
             case "ROLE_TEACHER":
-                Person teacher = peopleService.findByUsername(username)
-                        .orElseThrow(() -> new RuntimeException("Teacher not found"));
-
-                // Группы преподавателя
-                List<Group> teacherGroups = groupRepository.findByTeacherId(teacher.getId());
-                stats.setTotalGroups(teacherGroups.size());
-
-                // Студенты преподавателя (все студенты из его групп)
-                List<Person> teacherStudents = groupService.findByTeacherId(auth);
-                stats.setTotalStudents(teacherStudents.size());
-
-                // Задачи преподавателя
-                List<Task> teacherTasks = taskRepository.findByAuthorId(teacher.getId());
-                stats.setMyCreatedTasks(teacherTasks.size());
-
-                // 1. Средний прогресс студентов
-                double totalStudentProgress = 0;
-                int studentsWithTasksCount = 0;
-
-                // 2. Нагрузка (мин/макс/среднее)
-                int totalStudentTasks = 0;
-                int minTasks = Integer.MAX_VALUE;
-                int maxTasks = 0;
-
-                for (Person student : teacherStudents) {
-                    // Задачи студента от этого препода
-                    List<TaskAssignment> studentAssignments = taskAssignmentRepository.findByUserId(student.getId());
-                    int studentTaskCount = studentAssignments.size();
-
-                    if (studentTaskCount > 0) {
-                        // Прогресс студента
-                        long completedCount = studentAssignments.stream()
-                                .filter(assignment -> "COMPLETED".equals(assignment.getStatus()))
-                                .count();
-                        double studentProgress = (double) completedCount / studentTaskCount * 100;
-                        totalStudentProgress += studentProgress;
-                        studentsWithTasksCount++;
-
-                        // Нагрузка
-                        totalStudentTasks += studentTaskCount;
-                        minTasks = Math.min(minTasks, studentTaskCount);
-                        maxTasks = Math.max(maxTasks, studentTaskCount);
-                    }
-                }
-
-                // Средний прогресс
-                if (studentsWithTasksCount > 0) {
-                    stats.setAvgStudentProgress(totalStudentProgress / studentsWithTasksCount);
-                } else {
-                    stats.setAvgStudentProgress(0.0);
-                }
-
-                // Нагрузка
-                if (studentsWithTasksCount > 0) {
-                    stats.setAvgTasksPerStudent((double) totalStudentTasks / studentsWithTasksCount);
-                    stats.setMinTasks(minTasks == Integer.MAX_VALUE ? 0 : minTasks);
-                    stats.setMaxTasks(maxTasks);
-                } else {
-                    stats.setAvgTasksPerStudent(0.0);
-                    stats.setMinTasks(0);
-                    stats.setMaxTasks(0);
-                }
-
-                // 3. ⏰ Просрочки
-                int totalOverdueTasks = 0;
-                for (Person student : teacherStudents) {
-                    List<TaskAssignment> studentAssignments = taskAssignmentRepository.findByUserId(student.getId());
-                    long studentOverdueCount = studentAssignments.stream()
-                            .filter(assignment -> {
-                                Task task = assignment.getTask();
-                                // Добавляем проверку на null для task и task.getAuthor()
-                                return task != null &&
-                                        task.getAuthor() != null &&
-                                        task.getAuthor().getId().equals(teacher.getId()) && // задача препода
-                                        task.getDeadline() != null &&
-                                        task.getDeadline().isBefore(LocalDateTime.now()) && // просрочена
-                                        !"COMPLETED".equals(assignment.getStatus()); // не выполнена
-                            })
-                            .count();
-                    totalOverdueTasks += (int) studentOverdueCount;
-                }
-                stats.setTotalOverdueTasks(totalOverdueTasks);
-
-                // 4. 🐢 Стагнация
-                LocalDateTime twoWeeksAgo = LocalDateTime.now().minusWeeks(2);
-                List<TaskAssignment> stuckAssignments = taskAssignmentRepository.findStuckByTeacherId(teacher.getId(), twoWeeksAgo);
-                stats.setStuckTasks(stuckAssignments.size());
-
-                // 5. 👨‍🏫 Задачи в группах препода
-                long tasksInTeacherGroups = teacherTasks.stream()
-                        .filter(task -> !taskAssignmentRepository.findByTaskId(task.getId()).isEmpty())
-                        .count();
-                stats.setTasksAssignedToMyGroups((int) tasksInTeacherGroups);
-                long totalSystemTasks = taskRepository.count();
-                stats.setTotalTasks((int) totalSystemTasks);
-
+                dashboardStatsService.fillTeacherStats(stats, userInfo.getId());
                 break;
 
             case "ROLE_STUDENT":
-                Person student = peopleService.findByUsername(username)
-                        .orElseThrow(() -> new RuntimeException("Student not found"));
-
-                // Получаем задачи студента через назначения
-                List<TaskAssignment> studentAssignments = taskAssignmentRepository.findByUserId(student.getId());
-
-                int activeStudentTasks = 0;
-                int completedStudentTasks = 0;
-                Map<String, Integer> statusCount = new HashMap<>();
-                LocalDateTime nextDeadline = null;
-
-                for (TaskAssignment assignment : studentAssignments) {
-                    String status = assignment.getStatus();
-
-                    // Считаем статусы
-                    statusCount.put(status, statusCount.getOrDefault(status, 0) + 1);
-
-                    // Считаем активные и завершенные
-                    if ("COMPLETED".equals(status)) {
-                        completedStudentTasks++;
-                    }
-                    else {
-                        activeStudentTasks++;
-
-                        // Ищем ближайший дедлайн для незавершенных задач
-                        Task task = assignment.getTask();
-                        if (task != null && task.getDeadline() != null && !"OVERDUE".equals(status)) {
-                            if (nextDeadline == null || task.getDeadline().isBefore(nextDeadline)) {
-                                nextDeadline = task.getDeadline();
-                            }
-                        }
-                    }
-                }
-
-                stats.setActiveTasks(activeStudentTasks - statusCount.getOrDefault("OVERDUE", 0));
-                stats.setCompletedTasks(completedStudentTasks);
-                stats.setStatusCount(statusCount);
-                stats.setNextDeadline(nextDeadline);
+                dashboardStatsService.fillStudentStats(stats, userInfo.getId());
                 break;
         }
 
@@ -330,7 +202,7 @@ public class AdminService {
     }
     private List<LogResponseDTO> convertToLogResponse(List<RoleAuditLog> all) {
         return all.stream()
-                .map(log -> modelMapper.map(log, LogResponseDTO.class))
+                .map(DtoMapper::toLogResponse)
                 .collect(Collectors.toList());
     }
 }
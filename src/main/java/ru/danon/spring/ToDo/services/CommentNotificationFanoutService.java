@@ -0,0 +1,166 @@
+package ru.danon.spring.ToDo.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danon.spring.ToDo.events.NotificationEvent;
+import ru.danon.spring.ToDo.events.TaskCommentPostedEvent;
+import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рассылка уведомлений о комментариях преподавателя (fan-out on write).
+ * Запрос только регистрирует событие; раз в flush-ms накопленные по задаче комментарии
+ * превращаются в уведомления: получатели - одним запросом id назначенных пользователей,
+ * несколько комментариев за окно склеиваются в одно сводное уведомление,
+ * в outbox уведомления пишутся пачками по batch-size. Если рассылка упала, комментарии
+ * возвращаются в очередь и повторяются в следующих циклах, но не больше max-attempts раз.
+ */
+@Service
+@Slf4j
+public class CommentNotificationFanoutService {
+
+    private final TaskAssignmentRepository taskAssignmentRepository;
+    private final NotificationProducerService notificationProducerService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final Map<Integer, PendingComments> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CommentNotificationFanoutService(TaskAssignmentRepository taskAssignmentRepository,
+                                            NotificationProducerService notificationProducerService,
+                                            TransactionTemplate transactionTemplate,
+                                            @Value("${comments.fanout.batch-size:500}") int batchSize,
+                                            @Value("${comments.fanout.max-attempts:5}") int maxAttempts) {
+        this.taskAssignmentRepository = taskAssignmentRepository;
+        this.notificationProducerService = notificationProducerService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCommentPosted(TaskCommentPostedEvent event) {
+        pending.compute(event.getTaskId(), (taskId, comments) -> {
+            PendingComments result = comments != null ? comments : new PendingComments(event.getTaskTitle());
+            result.add(event.getAuthorId(), event.getAuthorName());
+            return result;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${comments.fanout.flush-ms:5000}")
+    public void flush() {
+        for (Integer taskId : new ArrayList<>(pending.keySet())) {
+            // remove атомарен: комментарий, пришедший после него, попадёт в следующий цикл
+            PendingComments comments = pending.remove(taskId);
+            if (comments == null) {
+                continue;
+            }
+            try {
+                fanOut(taskId, comments);
+            } catch (Exception e) {
+                retryLater(taskId, comments, e);
+            }
+        }
+    }
+
+    private void retryLater(Integer taskId, PendingComments comments, Exception e) {
+        if (++comments.attempts >= maxAttempts) {
+            log.error("Dropping {} comment notifications for task {} after {} attempts",
+                    comments.total, taskId, comments.attempts, e);
+            return;
+        }
+        log.warn("Failed to fan out {} comment notifications for task {} (attempt {}): {}",
+                comments.total, taskId, comments.attempts, e.getMessage());
+        // пока шла рассылка, по задаче могли прийти новые комментарии - склеиваем с ними
+        pending.merge(taskId, comments, (fresh, failed) -> failed.absorb(fresh));
+    }
+
+    private void fanOut(Integer taskId, PendingComments comments) {
+        List<Integer> recipients = taskAssignmentRepository.findUserIdsByTaskId(taskId);
+        String authors = String.join(", ", comments.authorNames);
+
+        List<NotificationEvent> batch = new ArrayList<>(Math.min(recipients.size(), batchSize));
+        List<Integer> batchRecipients = new ArrayList<>(Math.min(recipients.size(), batchSize));
+        int sent = 0;
+        for (Integer userId : recipients) {
+            // уже получил уведомление в прошлой, частично удавшейся попытке
+            if (comments.notified.contains(userId)) {
+                continue;
+            }
+            // свои комментарии получателю не засчитываются
+            int count = comments.total - comments.countsByAuthor.getOrDefault(userId, 0);
+            if (count == 0) {
+                continue;
+            }
+            batch.add(count == 1 && comments.total == 1
+                    ? notificationProducerService.buildCommentEvent(userId, authors, comments.taskTitle, taskId)
+                    : notificationProducerService.buildCommentDigestEvent(userId, authors, comments.taskTitle, taskId, count));
+            batchRecipients.add(userId);
+            if (batch.size() >= batchSize) {
+                sent += writeBatch(batch, batchRecipients, comments);
+                batch = new ArrayList<>(batchSize);
+                batchRecipients = new ArrayList<>(batchSize);
+            }
+        }
+        sent += writeBatch(batch, batchRecipients, comments);
+        log.debug("Task {}: {} comments fanned out to {} recipients", taskId, comments.total, sent);
+    }
+
+    private int writeBatch(List<NotificationEvent> batch, List<Integer> recipients, PendingComments comments) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> notificationProducerService.sendNotifications(batch));
+        // пачки коммитятся по отдельности: при повторе записанным получателям не шлём второй раз
+        comments.notified.addAll(recipients);
+        return batch.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // не теряем накопленное при штатной остановке
+        flush();
+    }
+
+    private static final class PendingComments {
+        private final String taskTitle;
+        private final Map<Integer, Integer> countsByAuthor = new HashMap<>();
+        private final Set<String> authorNames = new LinkedHashSet<>();
+        // получатели, уже записанные в outbox неудавшейся попыткой
+        private final Set<Integer> notified = new HashSet<>();
+        private int total;
+        private int attempts;
+
+        private PendingComments(String taskTitle) {
+            this.taskTitle = taskTitle;
+        }
+
+        // вызывается внутри ConcurrentHashMap.compute, т.е. под блокировкой ключа
+        private void add(Integer authorId, String authorName) {
+            countsByAuthor.merge(authorId, 1, Integer::sum);
+            authorNames.add(authorName);
+            total++;
+        }
+
+        // вызывается внутри ConcurrentHashMap.merge; новые комментарии должны дойти до всех,
+        // поэтому список уже уведомлённых сбрасывается (ранние комментарии попадут к ним в сводку повторно)
+        private PendingComments absorb(PendingComments fresh) {
+            fresh.countsByAuthor.forEach((authorId, count) -> countsByAuthor.merge(authorId, count, Integer::sum));
+            authorNames.addAll(fresh.authorNames);
+            total += fresh.total;
+            notified.clear();
+            return this;
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package ru.danon.spring.ToDo.services;
 
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.danon.spring.ToDo.dto.CommentDTO;
+import ru.danon.spring.ToDo.dto.CommentThreadDTO;
+import ru.danon.spring.ToDo.dto.CursorPageDTO;
+import ru.danon.spring.ToDo.events.TaskCommentPostedEvent;
 import ru.danon.spring.ToDo.models.Comment;
-import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.models.Task;
-import ru.danon.spring.ToDo.models.TaskAssignment;
-import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
 import ru.danon.spring.ToDo.repositories.mongo.CommentRepository;
+import ru.danon.spring.ToDo.repositories.mongo.CommentThreadRepository;
+import ru.danon.spring.ToDo.util.CommentCursor;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import java.util.List;
 
@@ -21,15 +24,52 @@ import java.util.List;
 public class CommentsService {
     private final CommentRepository commentRepository;
     private final PeopleService peopleService;
-    private final ModelMapper modelMapper;
     private final NotificationProducerService notificationProducerService;
     private final TaskService taskService;
-    private final TaskAssignmentRepository taskAssignmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int DEFAULT_THREAD_PAGE_SIZE = 20;
+    private static final int MAX_THREAD_PAGE_SIZE = 100;
+    private static final int DEFAULT_REPLIES_PER_THREAD = 3;
+    private static final int MAX_REPLIES_PER_THREAD = 20;
 
     public List<Comment> getTaskComments(Integer taskId) {
         return commentRepository.findByTaskIdAndParentIdIsNullOrderByCreatedAtAsc(taskId);
     }
 
+    /**
+     * Страница веток обсуждения задачи: комментарии верхнего уровня с первыми ответами одной агрегацией
+     */
+    public CursorPageDTO<CommentThreadDTO> getTaskThreads(Integer taskId, String cursor, Integer size, Integer replies) {
+        int pageSize = size == null ? DEFAULT_THREAD_PAGE_SIZE : Math.max(1, Math.min(size, MAX_THREAD_PAGE_SIZE));
+        int repliesLimit = replies == null ? DEFAULT_REPLIES_PER_THREAD : Math.max(0, Math.min(replies, MAX_REPLIES_PER_THREAD));
+
+        CommentCursor after = cursor != null && !cursor.isBlank() ? CommentCursor.decode(cursor) : null;
+        // лишний элемент - признак следующей страницы
+        List<CommentThreadRepository.CommentThread> threads = commentRepository.findThreadPage(taskId,
+                after != null ? after.getCreatedAt() : null, after != null ? after.getId() : null,
+                pageSize + 1, repliesLimit);
+
+        boolean hasNext = threads.size() > pageSize;
+        if (hasNext) {
+            threads = threads.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Comment last = threads.get(threads.size() - 1).comment();
+            nextCursor = new CommentCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        List<CommentThreadDTO> items = threads.stream()
+                .map(thread -> new CommentThreadDTO(
+                        convertToCommentDTO(thread.comment()),
+                        thread.replies().stream().map(this::convertToCommentDTO).toList(),
+                        thread.comment().getRepliesCount() != null
+                                && thread.comment().getRepliesCount() > thread.replies().size()))
+                .toList();
+        return new CursorPageDTO<>(items, nextCursor, hasNext);
+    }
+
     @Transactional
     public CommentDTO addComment(Integer taskId, Authentication auth, CommentDTO commentDTO) {
         var author = peopleService.findByUsername(auth.getName()).orElseThrow(
@@ -44,15 +84,24 @@ public class CommentsService {
                 commentDTO.getContent());
 
         if(commentDTO.getParentId() != null) {
-            comment.setParentId(commentDTO.getParentId());
-            comment.setRepliesCount(comment.getRepliesCount()+1);
+            Comment parent = commentRepository.findById(commentDTO.getParentId())
+                    .orElseThrow(() -> new RuntimeException("Parent comment not found"));
+            if (!taskId.equals(parent.getTaskId())) {
+                throw new RuntimeException("Parent comment belongs to another task");
+            }
+            comment.setParentId(parent.getId());
         }
         commentRepository.save(comment);
+        // счётчик ответов хранится у родителя и меняется атомарно, без перезаписи документа
+        if (comment.getParentId() != null) {
+            commentRepository.incrementRepliesCount(comment.getParentId(), 1);
+        }
 
         if ("STUDENT".equals(author.getRole()))
             notificationProducerService.sendCommentNotification(author.getId(), author.getUsername(), task.getTitle(),taskId);
         else if ("ROLE_TEACHER".equals(author.getRole())) {
-            notifyStudentsAboutTeacherComment(task, author, comment);
+            // рассылка студентам - в фоне после коммита, см. CommentNotificationFanoutService
+            eventPublisher.publishEvent(new TaskCommentPostedEvent(taskId, task.getTitle(), author.getId(), author.getUsername()));
         }
         return convertToCommentDTO(comment);
 
@@ -81,25 +130,9 @@ public class CommentsService {
         List<Comment> replies = commentRepository.findByParentId(commentId);
         commentRepository.deleteAll(replies);
 
-        if(comment.getParentId() != null)
-            comment.setRepliesCount(comment.getRepliesCount() - 1);
         commentRepository.delete(comment);
-    }
-
-    private void notifyStudentsAboutTeacherComment(Task task, Person teacher, Comment comment) {
-        List<TaskAssignment> assignments = taskAssignmentRepository.findByTaskId(task.getId());
-
-        for (TaskAssignment assignment : assignments) {
-            Person student = peopleService.findById(assignment.getUserId()).orElseThrow();
-            if (!student.getId().equals(teacher.getId())) { // Не отправляем уведомление самому себе
-                notificationProducerService.sendCommentNotification(
-                        student.getId(),
-                        teacher.getUsername(),
-                        task.getTitle(),
-                        task.getId()
-                );
-            }
-        }
+        if(comment.getParentId() != null)
+            commentRepository.incrementRepliesCount(comment.getParentId(), -1);
     }
 
     public List<Comment> getCommentReplies(String parentId) {
@@ -107,6 +140,6 @@ public class CommentsService {
     }
 
     public CommentDTO convertToCommentDTO(Comment comment) {
-        return modelMapper.map(comment, CommentDTO.class);
+        return DtoMapper.toComment(comment);
     }
 }
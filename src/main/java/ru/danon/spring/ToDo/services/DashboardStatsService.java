@@ -0,0 +1,323 @@
+package ru.danon.spring.ToDo.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.danon.spring.ToDo.dto.DashboardStatsDTO;
+import ru.danon.spring.ToDo.events.DashboardStatsChangedEvent;
+import ru.danon.spring.ToDo.repositories.jpa.*;
+import ru.danon.spring.ToDo.repositories.jpa.projections.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Материализованные счётчики дашборда в Redis-хэшах: по студенту, по преподавателю, общие и по ролям.
+ * Изменения назначений, групп и ролей помечают затронутые ключи (DashboardStatsChangedEvent),
+ * помеченные ключи пересчитываются пачкой агрегирующих запросов раз в flush-ms.
+ * Периодическая сверка пересчитывает всё заново - на случай изменений в обход событий.
+ * Чтение дашборда - один HGETALL; ключа нет или Redis недоступен - счётчики считаются из БД на лету.
+ */
+@Service
+@Slf4j
+public class DashboardStatsService {
+
+    private static final String USER_KEY = "todo:stats:user:";
+    private static final String TEACHER_KEY = "todo:stats:teacher:";
+    private static final String TOTALS_KEY = "todo:stats:totals";
+    private static final String ROLES_KEY = "todo:stats:roles";
+
+    private static final List<String> STATUSES = List.of("NOT_STARTED", "IN_PROGRESS", "COMPLETED", "OVERDUE");
+    // размер IN-списка в агрегирующих запросах
+    private static final int CHUNK_SIZE = 500;
+
+    private final TaskAssignmentRepository taskAssignmentRepository;
+    private final TaskRepository taskRepository;
+    private final GroupRepository groupRepository;
+    private final UserGroupRepository userGroupRepository;
+    private final PeopleRepository peopleRepository;
+    private final StringRedisTemplate redis;
+
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> dirtyTasks = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> dirtyTeachers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dirtyTotals = new AtomicBoolean();
+
+    @Autowired
+    public DashboardStatsService(TaskAssignmentRepository taskAssignmentRepository,
+                                 TaskRepository taskRepository,
+                                 GroupRepository groupRepository,
+                                 UserGroupRepository userGroupRepository,
+                                 PeopleRepository peopleRepository,
+                                 StringRedisTemplate redis) {
+        this.taskAssignmentRepository = taskAssignmentRepository;
+        this.taskRepository = taskRepository;
+        this.groupRepository = groupRepository;
+        this.userGroupRepository = userGroupRepository;
+        this.peopleRepository = peopleRepository;
+        this.redis = redis;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatsChanged(DashboardStatsChangedEvent event) {
+        dirtyUsers.addAll(event.getUserIds());
+        dirtyTasks.addAll(event.getTaskIds());
+        dirtyTeachers.addAll(event.getTeacherIds());
+        if (event.isTotals()) {
+            dirtyTotals.set(true);
+        }
+    }
+
+    /**
+     * Пересчёт помеченных ключей. Всплеск изменений (массовое назначение, пачка просрочек)
+     * сливается в несколько запросов вместо пересчёта на каждое событие.
+     */
+    @Scheduled(fixedDelayString = "${stats.flush-ms:2000}")
+    public void flush() {
+        Set<Integer> users = drain(dirtyUsers);
+        Set<Integer> tasks = drain(dirtyTasks);
+        Set<Integer> teachers = drain(dirtyTeachers);
+        boolean totals = dirtyTotals.getAndSet(false);
+        if (users.isEmpty() && tasks.isEmpty() && teachers.isEmpty() && !totals) {
+            return;
+        }
+
+        try {
+            // у студента изменились назначения - меняется и картина у преподавателей его группы и авторов задач
+            forEachChunk(users, chunk -> teachers.addAll(groupRepository.findTeacherIdsByStudentIds(chunk)));
+            forEachChunk(tasks, chunk -> teachers.addAll(taskRepository.findAuthorIdsByTaskIds(chunk)));
+
+            forEachChunk(users, chunk -> computeUserCounters(chunk).forEach(this::writeHash));
+            forEachChunk(teachers, chunk -> computeTeacherCounters(chunk).forEach(this::writeHash));
+            if (totals) {
+                writeTotals();
+            }
+            log.debug("Dashboard stats refreshed: {} users, {} teachers, totals={}", users.size(), teachers.size(), totals);
+        } catch (Exception e) {
+            // не теряем пометки - попробуем на следующем проходе
+            dirtyUsers.addAll(users);
+            dirtyTasks.addAll(tasks);
+            dirtyTeachers.addAll(teachers);
+            if (totals) {
+                dirtyTotals.set(true);
+            }
+            log.warn("Failed to refresh dashboard stats: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.reconcile-ms:3600000}", initialDelayString = "${stats.reconcile-initial-delay-ms:60000}")
+    public void reconcile() {
+        List<Integer> userIds = peopleRepository.findAllIds();
+        List<Integer> teacherIds = peopleRepository.findIdsByRole("ROLE_TEACHER");
+        dirtyUsers.addAll(userIds);
+        dirtyTeachers.addAll(teacherIds);
+        dirtyTotals.set(true);
+        flush();
+        log.info("Dashboard stats reconciled: {} users, {} teachers", userIds.size(), teacherIds.size());
+    }
+
+    public void fillAdminStats(DashboardStatsDTO stats) {
+        Map<String, Integer> totals = readHash(TOTALS_KEY);
+        Map<String, Integer> roles = readHash(ROLES_KEY);
+        if (totals.isEmpty()) {
+            Map<String, Map<String, Integer>> computed = computeTotals();
+            totals = computed.get(TOTALS_KEY);
+            roles = computed.get(ROLES_KEY);
+            computed.forEach(this::writeHash);
+        }
+        stats.setTotalUsers(totals.getOrDefault("users", 0));
+        stats.setTotalGroups(totals.getOrDefault("groups", 0));
+        stats.setTotalTasks(totals.getOrDefault("tasks", 0));
+        stats.setRoleStatistics(new HashMap<>(roles));
+    }
+
+    public void fillTeacherStats(DashboardStatsDTO stats, Integer teacherId) {
+        Map<String, Integer> counters = readOrCompute(TEACHER_KEY + teacherId,
+                () -> computeTeacherCounters(List.of(teacherId)));
+
+        stats.setTotalGroups(counters.getOrDefault("groups", 0));
+        stats.setTotalStudents(counters.getOrDefault("students", 0));
+        stats.setMyCreatedTasks(counters.getOrDefault("createdTasks", 0));
+        stats.setTasksAssignedToMyGroups(counters.getOrDefault("assignedTasks", 0));
+        stats.setTotalOverdueTasks(counters.getOrDefault("overdue", 0));
+
+        int studentsWithTasks = counters.getOrDefault("studentsWithTasks", 0);
+        if (studentsWithTasks > 0) {
+            // сумма процентов хранится в сотых долях, чтобы хэш оставался целочисленным
+            stats.setAvgStudentProgress(counters.getOrDefault("progressSum", 0) / 100.0 / studentsWithTasks);
+            stats.setAvgTasksPerStudent((double) counters.getOrDefault("taskSum", 0) / studentsWithTasks);
+            stats.setMinTasks(counters.getOrDefault("minTasks", 0));
+            stats.setMaxTasks(counters.getOrDefault("maxTasks", 0));
+        } else {
+            stats.setAvgStudentProgress(0.0);
+            stats.setAvgTasksPerStudent(0.0);
+            stats.setMinTasks(0);
+            stats.setMaxTasks(0);
+        }
+
+        Map<String, Integer> totals = readHash(TOTALS_KEY);
+        stats.setTotalTasks(totals.containsKey("tasks") ? totals.get("tasks") : (int) taskRepository.count());
+
+        // зависит только от времени, событиями не поддерживается - один COUNT
+        stats.setStuckTasks((int) taskAssignmentRepository.countStuckByTeacherId(
+                teacherId, LocalDateTime.now().minusWeeks(2)));
+    }
+
+    public void fillStudentStats(DashboardStatsDTO stats, Integer studentId) {
+        Map<String, Integer> statusCount = readOrCompute(USER_KEY + studentId,
+                () -> computeUserCounters(List.of(studentId)));
+
+        int total = statusCount.values().stream().mapToInt(Integer::intValue).sum();
+        int completed = statusCount.getOrDefault("COMPLETED", 0);
+        int overdue = statusCount.getOrDefault("OVERDUE", 0);
+
+        // в ответе только встречающиеся статусы, как и раньше
+        Map<String, Integer> nonZero = statusCount.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        stats.setActiveTasks(total - completed - overdue);
+        stats.setCompletedTasks(completed);
+        stats.setStatusCount(nonZero);
+        stats.setNextDeadline(taskAssignmentRepository.findNextDeadline(studentId));
+    }
+
+    private Map<String, Map<String, Integer>> computeUserCounters(Collection<Integer> userIds) {
+        Map<String, Map<String, Integer>> result = new HashMap<>();
+        for (Integer userId : userIds) {
+            Map<String, Integer> counters = new HashMap<>();
+            STATUSES.forEach(status -> counters.put(status, 0));
+            result.put(USER_KEY + userId, counters);
+        }
+        for (UserStatusCountRow row : taskAssignmentRepository.countStatusesByUserIds(userIds)) {
+            result.get(USER_KEY + row.getUserId()).put(row.getStatus(), row.getTotal().intValue());
+        }
+        return result;
+    }
+
+    private Map<String, Map<String, Integer>> computeTeacherCounters(Collection<Integer> teacherIds) {
+        Map<Integer, Integer> groups = toMap(groupRepository.countByTeacherIds(teacherIds));
+        Map<Integer, Integer> overdue = toMap(taskAssignmentRepository.countOverdueByTeacherIds(teacherIds, LocalDateTime.now()));
+        Map<Integer, TeacherTaskCountRow> tasks = taskRepository.countTasksByAuthorIds(teacherIds).stream()
+                .collect(Collectors.toMap(TeacherTaskCountRow::getTeacherId, Function.identity()));
+        Map<Integer, List<TeacherStudentProgressRow>> students = userGroupRepository
+                .findStudentProgressByTeacherIds(teacherIds).stream()
+                .collect(Collectors.groupingBy(TeacherStudentProgressRow::getTeacherId));
+
+        Map<String, Map<String, Integer>> result = new HashMap<>();
+        for (Integer teacherId : teacherIds) {
+            Map<String, Integer> counters = new HashMap<>();
+            counters.put("groups", groups.getOrDefault(teacherId, 0));
+            counters.put("overdue", overdue.getOrDefault(teacherId, 0));
+            TeacherTaskCountRow taskRow = tasks.get(teacherId);
+            counters.put("createdTasks", taskRow != null ? taskRow.getCreatedTasks().intValue() : 0);
+            counters.put("assignedTasks", taskRow != null ? taskRow.getAssignedTasks().intValue() : 0);
+
+            List<TeacherStudentProgressRow> studentRows = students.getOrDefault(teacherId, List.of());
+            counters.put("students", studentRows.size());
+            long progressSum = 0;
+            int studentsWithTasks = 0, taskSum = 0, minTasks = 0, maxTasks = 0;
+            for (TeacherStudentProgressRow row : studentRows) {
+                int studentTasks = row.getTotal().intValue();
+                if (studentTasks == 0) {
+                    continue;
+                }
+                progressSum += Math.round(row.getCompleted() * 10000.0 / studentTasks);
+                minTasks = studentsWithTasks == 0 ? studentTasks : Math.min(minTasks, studentTasks);
+                maxTasks = Math.max(maxTasks, studentTasks);
+                taskSum += studentTasks;
+                studentsWithTasks++;
+            }
+            counters.put("progressSum", (int) progressSum);
+            counters.put("studentsWithTasks", studentsWithTasks);
+            counters.put("taskSum", taskSum);
+            counters.put("minTasks", minTasks);
+            counters.put("maxTasks", maxTasks);
+            result.put(TEACHER_KEY + teacherId, counters);
+        }
+        return result;
+    }
+
+    private Map<String, Map<String, Integer>> computeTotals() {
+        Map<String, Integer> totals = new HashMap<>();
+        totals.put("users", (int) peopleRepository.count());
+        totals.put("groups", (int) groupRepository.count());
+        totals.put("tasks", (int) taskRepository.count());
+        Map<String, Integer> roles = peopleRepository.countByRoles().stream()
+                .collect(Collectors.toMap(RoleCountRow::getRole, row -> row.getTotal().intValue()));
+        return Map.of(TOTALS_KEY, totals, ROLES_KEY, roles);
+    }
+
+    private void writeTotals() {
+        Map<String, Map<String, Integer>> computed = computeTotals();
+        // набор ролей может сократиться - хэш ролей перезаписывается целиком
+        redis.delete(ROLES_KEY);
+        computed.forEach(this::writeHash);
+    }
+
+    private Map<String, Integer> readOrCompute(String key,
+                                               Supplier<Map<String, Map<String, Integer>>> loader) {
+        Map<String, Integer> counters = readHash(key);
+        if (!counters.isEmpty()) {
+            return counters;
+        }
+        Map<String, Map<String, Integer>> computed = loader.get();
+        computed.forEach(this::writeHash);
+        return computed.get(key);
+    }
+
+    private Map<String, Integer> readHash(String key) {
+        try {
+            Map<Object, Object> entries = redis.opsForHash().entries(key);
+            Map<String, Integer> result = new HashMap<>();
+            entries.forEach((field, value) -> result.put((String) field, Integer.parseInt((String) value)));
+            return result;
+        } catch (Exception e) {
+            log.warn("Failed to read dashboard stats {}: {}", key, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void writeHash(String key, Map<String, Integer> counters) {
+        if (counters.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> values = counters.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().toString()));
+            redis.opsForHash().putAll(key, values);
+        } catch (Exception e) {
+            log.warn("Failed to write dashboard stats {}: {}", key, e.getMessage());
+        }
+    }
+
+    private Map<Integer, Integer> toMap(List<IdCountRow> rows) {
+        return rows.stream().collect(Collectors.toMap(IdCountRow::getId, row -> row.getTotal().intValue()));
+    }
+
+    private void forEachChunk(Collection<Integer> ids, Consumer<List<Integer>> action) {
+        List<Integer> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+            action.accept(list.subList(from, Math.min(from + CHUNK_SIZE, list.size())));
+        }
+    }
+
+    private Set<Integer> drain(Set<Integer> source) {
+        Set<Integer> drained = new HashSet<>();
+        for (Iterator<Integer> it = source.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,246 @@
+package ru.danon.spring.ToDo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danon.spring.ToDo.events.DashboardStatsChangedEvent;
+import ru.danon.spring.ToDo.events.NotificationEvent;
+import ru.danon.spring.ToDo.events.TaskDeadlineChangedEvent;
+import ru.danon.spring.ToDo.repositories.jpa.ScheduledNotificationRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskRepository;
+import ru.danon.spring.ToDo.repositories.jpa.projections.AssignmentRecipientRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.TaskDeadlineRow;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Планировщик просрочек по дедлайнам.
+ * Держит в памяти min-кучу ближайших дедлайнов (окно horizon вперёд, подгружается страницами)
+ * и переводит назначения в OVERDUE ровно тогда, когда истекает дедлайн конкретной задачи,
+ * вместо периодического прохода по всем назначениям.
+ */
+@Service
+public class DeadlineSchedulerService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadlineSchedulerService.class);
+
+    private final TaskRepository taskRepository;
+    private final TaskAssignmentRepository taskAssignmentRepository;
+    private final ScheduledNotificationRepository scheduledNotificationRepository;
+    private final NotificationProducerService notificationProducerService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long horizonMinutes;
+    private final int pageSize;
+
+    // куча (deadline, taskId); устаревшие записи не удаляются, а отбрасываются при извлечении по карте deadlines
+    private final PriorityQueue<DeadlineEntry> heap = new PriorityQueue<>(
+            Comparator.comparing(DeadlineEntry::deadline).thenComparing(DeadlineEntry::taskId));
+    // актуальный дедлайн каждой задачи, лежащей в куче
+    private final Map<Integer, LocalDateTime> deadlines = new HashMap<>();
+    // до какого момента дедлайны уже загружены в кучу; null - догоняющий проход ещё не выполнялся
+    private LocalDateTime loadedUntil;
+
+    @Autowired
+    public DeadlineSchedulerService(TaskRepository taskRepository,
+                                    TaskAssignmentRepository taskAssignmentRepository,
+                                    ScheduledNotificationRepository scheduledNotificationRepository,
+                                    NotificationProducerService notificationProducerService,
+                                    TransactionTemplate transactionTemplate,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${deadline.scheduler.horizon-minutes:60}") long horizonMinutes,
+                                    @Value("${deadline.scheduler.page-size:500}") int pageSize) {
+        this.taskRepository = taskRepository;
+        this.taskAssignmentRepository = taskAssignmentRepository;
+        this.scheduledNotificationRepository = scheduledNotificationRepository;
+        this.notificationProducerService = notificationProducerService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.horizonMinutes = horizonMinutes;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Догоняющий проход: всё, что просрочилось, пока приложение не работало, одним UPDATE.
+     * После него куча начинает заполняться от текущего момента.
+     */
+    public void catchUp() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = expire(null, now);
+        synchronized (this) {
+            if (loadedUntil == null) {
+                loadedUntil = now;
+            }
+        }
+        log.info("Deadline scheduler caught up: {} assignments marked overdue", expired);
+    }
+
+    @Scheduled(fixedDelayString = "${deadline.scheduler.tick-ms:1000}")
+    public void tick() {
+        if (!isInitialized()) {
+            catchUp();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        refillIfNeeded(now);
+
+        List<DeadlineEntry> due = pollDue(now);
+        if (!due.isEmpty()) {
+            List<Integer> dueTaskIds = due.stream().map(DeadlineEntry::taskId).toList();
+            int expired;
+            try {
+                expired = expire(dueTaskIds, now);
+            } catch (RuntimeException e) {
+                // транзакция откатилась - возвращаем задачи в кучу, следующий тик попробует снова
+                requeue(due);
+                log.warn("Failed to mark {} tasks overdue, will retry: {}", dueTaskIds.size(), e.getMessage());
+                return;
+            }
+            log.info("Deadline reached for {} tasks, {} assignments marked overdue", dueTaskIds.size(), expired);
+        }
+    }
+
+    /**
+     * Страховочная сверка на случай задач, изменённых в обход планировщика
+     * (другой экземпляр приложения, ручные правки в БД). Запускается редко.
+     */
+    @Scheduled(fixedDelayString = "${deadline.scheduler.reconcile-ms:1800000}",
+            initialDelayString = "${deadline.scheduler.reconcile-ms:1800000}")
+    public void reconcile() {
+        int expired = expire(null, LocalDateTime.now());
+        if (expired > 0) {
+            log.warn("Deadline reconciliation marked {} assignments overdue", expired);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeadlineChanged(TaskDeadlineChangedEvent event) {
+        if (event.getDeadline() == null) {
+            unregister(event.getTaskId());
+        } else {
+            register(event.getTaskId(), event.getDeadline());
+        }
+    }
+
+    public synchronized void register(Integer taskId, LocalDateTime deadline) {
+        deadlines.remove(taskId);
+        // дедлайны за пределами загруженного окна подтянутся при следующей подгрузке страниц
+        if (loadedUntil != null && !deadline.isAfter(loadedUntil)) {
+            deadlines.put(taskId, deadline);
+            heap.offer(new DeadlineEntry(deadline, taskId));
+        }
+    }
+
+    public synchronized void unregister(Integer taskId) {
+        deadlines.remove(taskId);
+    }
+
+    private synchronized boolean isInitialized() {
+        return loadedUntil != null;
+    }
+
+    // подгружаем следующее окно, когда загруженного запаса осталось меньше половины горизонта
+    private void refillIfNeeded(LocalDateTime now) {
+        LocalDateTime from;
+        synchronized (this) {
+            if (loadedUntil.isAfter(now.plusMinutes(horizonMinutes / 2))) {
+                return;
+            }
+            from = loadedUntil;
+        }
+        LocalDateTime until = now.plusMinutes(horizonMinutes);
+
+        List<TaskDeadlineRow> loaded = new ArrayList<>();
+        LocalDateTime afterDeadline = from;
+        Integer afterId = Integer.MAX_VALUE;
+        List<TaskDeadlineRow> page;
+        do {
+            page = taskRepository.findDeadlinesPage(afterDeadline, afterId, until, PageRequest.of(0, pageSize));
+            loaded.addAll(page);
+            if (!page.isEmpty()) {
+                TaskDeadlineRow last = page.get(page.size() - 1);
+                afterDeadline = last.getDeadline();
+                afterId = last.getId();
+            }
+        } while (page.size() == pageSize);
+
+        synchronized (this) {
+            for (TaskDeadlineRow row : loaded) {
+                // задача могла быть зарегистрирована через событие, пока шла загрузка
+                if (deadlines.putIfAbsent(row.getId(), row.getDeadline()) == null) {
+                    heap.offer(new DeadlineEntry(row.getDeadline(), row.getId()));
+                }
+            }
+            loadedUntil = until;
+        }
+        log.debug("Loaded {} deadlines up to {}", loaded.size(), until);
+    }
+
+    private synchronized List<DeadlineEntry> pollDue(LocalDateTime now) {
+        List<DeadlineEntry> due = new ArrayList<>();
+        while (!heap.isEmpty() && !heap.peek().deadline().isAfter(now)) {
+            DeadlineEntry entry = heap.poll();
+            if (entry.deadline().equals(deadlines.get(entry.taskId()))) {
+                deadlines.remove(entry.taskId());
+                due.add(entry);
+            }
+        }
+        return due;
+    }
+
+    private synchronized void requeue(List<DeadlineEntry> entries) {
+        for (DeadlineEntry entry : entries) {
+            // пока шёл expire, дедлайн могли перенести через register - новое значение главнее
+            if (deadlines.putIfAbsent(entry.taskId(), entry.deadline()) == null) {
+                heap.offer(entry);
+            }
+        }
+    }
+
+    /**
+     * Перевод в OVERDUE (UPDATE ... RETURNING, без отдельного SELECT), отмена напоминаний
+     * одной командой на всю пачку и уведомления через outbox в той же транзакции.
+     * taskIds == null - по всем задачам.
+     */
+    private int expire(Collection<Integer> taskIds, LocalDateTime now) {
+        Integer expired = transactionTemplate.execute(status -> {
+            List<AssignmentRecipientRow> overdue = taskAssignmentRepository.markOverdue(taskIds, now);
+            if (overdue.isEmpty()) {
+                return 0;
+            }
+
+            // все напоминания стоят раньше дедлайна, поэтому по просроченной задаче они больше не нужны
+            Set<Integer> overdueTaskIds = new HashSet<>();
+            Set<Integer> overdueUserIds = new HashSet<>();
+            List<NotificationEvent> events = new ArrayList<>(overdue.size());
+            for (AssignmentRecipientRow row : overdue) {
+                overdueTaskIds.add(row.getTaskId());
+                overdueUserIds.add(row.getUserId());
+                events.add(notificationProducerService.buildTaskOverdueEvent(
+                        row.getUserId(),
+                        row.getUserRole(),
+                        row.getTaskTitle(),
+                        row.getTaskId()
+                ));
+            }
+            scheduledNotificationRepository.cancelPendingByTaskIds(overdueTaskIds, now);
+            notificationProducerService.sendNotifications(events);
+            eventPublisher.publishEvent(DashboardStatsChangedEvent.ofAssignments(overdueUserIds, overdueTaskIds));
+            return overdue.size();
+        });
+        return expired == null ? 0 : expired;
+    }
+
+    private record DeadlineEntry(LocalDateTime deadline, Integer taskId) {
+    }
+}
@@ -1,45 +1,77 @@
 package ru.danon.spring.ToDo.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import ru.danon.spring.ToDo.util.Bulkhead;
+import ru.danon.spring.ToDo.util.BulkheadFullException;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URI;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileStorageService {
 
+    // минимальный размер части multipart upload в S3, кроме последней
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final Bulkhead storageBulkhead;
+    private final S3Presigner s3Presigner;
+
+    // путь к файлу -> подписанная ссылка; живёт меньше самой подписи, чтобы не выдавать почти истёкшие ссылки
+    private Cache<String, String> downloadUrls;
 
     @Value("${app.storage.bucket-name}")
     private String bucketName;
 
-    @Value("${spring.cloud.aws.s3.endpoint}")
-    private String minioEndpoint;
+    @Value("${app.storage.download-url.ttl-minutes:60}")
+    private long downloadUrlTtlMinutes;
+
+    @Value("${app.storage.download-url.min-validity-minutes:10}")
+    private long downloadUrlMinValidityMinutes;
 
-    @Value("${spring.cloud.aws.credentials.access-key}")
-    private String accessKey;
+    @Value("${app.storage.download-url.cache-size:10000}")
+    private long downloadUrlCacheSize;
 
-    @Value("${spring.cloud.aws.credentials.secret-key}")
-    private String secretKey;
+    @Value("${app.storage.upload.part-size-mb:8}")
+    private int partSizeMb;
 
+    @Value("${app.storage.upload.parallel-parts:4}")
+    private int parallelParts;
+
+    @Value("${app.storage.upload.max-stream-size-mb:2048}")
+    private long maxStreamSizeMb;
+
+    @PostConstruct
+    void initDownloadUrlCache() {
+        downloadUrls = Caffeine.newBuilder()
+                .maximumSize(downloadUrlCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(Math.max(downloadUrlTtlMinutes - downloadUrlMinValidityMinutes, 1)))
+                .build();
+    }
 
     public String uploadFile(MultipartFile file, String filePath) {
         try {
@@ -56,8 +88,8 @@ public class FileStorageService {
                     .contentType(file.getContentType())
                     .build();
 
-            s3Client.putObject(putObjectRequest,
-                    RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+            RequestBody body = RequestBody.fromInputStream(file.getInputStream(), file.getSize());
+            storageBulkhead.run(() -> s3Client.putObject(putObjectRequest, body));
 
             log.info("Файл загружен в MinIO: {}", filePath);
             return filePath;
@@ -68,52 +100,223 @@ public class FileStorageService {
         }
     }
 
-    public String generateDownloadUrl(String filePath) {
+    /**
+     * Загрузка файла, сформированного на сервере (отчёты): читается с диска, а не из памяти
+     */
+    public String uploadFile(Path file, String filePath, String contentType) {
         try {
-            try {
-                s3Client.headObject(HeadObjectRequest.builder()
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(filePath)
+                    .contentType(contentType)
+                    .build();
+
+            storageBulkhead.run(() -> s3Client.putObject(putObjectRequest, RequestBody.fromFile(file)));
+
+            log.info("Файл загружен в MinIO: {}", filePath);
+            return filePath;
+
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Ошибка при загрузке файла в MinIO", e);
+            throw new RuntimeException("Не удалось загрузить файл", e);
+        }
+    }
+
+    /**
+     * Потоковая загрузка: поток режется на части по part-size-mb и отправляется через S3 multipart upload,
+     * до parallel-parts частей грузятся параллельно асинхронным клиентом.
+     * Буферы частей переиспользуются, поэтому память - не больше (parallel-parts + 1) частей на загрузку
+     * при любом размере файла. Файл меньше одной части уходит обычным PUT.
+     *
+     * @return число загруженных байт
+     */
+    public long uploadStream(InputStream content, String filePath, String contentType) {
+        int partSize = Math.max(partSizeMb * 1024 * 1024, MIN_PART_SIZE);
+        long maxSize = maxStreamSizeMb * 1024 * 1024;
+        try {
+            byte[] first = new byte[partSize];
+            int firstLength = content.readNBytes(first, 0, partSize);
+            if (firstLength == 0) {
+                throw new RuntimeException("Файл пустой");
+            }
+            if (firstLength < partSize) {
+                PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                         .bucket(bucketName)
                         .key(filePath)
-                        .build());
-            } catch (NoSuchKeyException e) {
-                throw new RuntimeException("Файл не найден: " + filePath);
+                        .contentType(contentType)
+                        .build();
+                RequestBody body = RequestBody.fromInputStream(new ByteArrayInputStream(first, 0, firstLength), firstLength);
+                storageBulkhead.run(() -> s3Client.putObject(putObjectRequest, body));
+                log.info("Файл загружен в MinIO: {}", filePath);
+                return firstLength;
             }
+            return uploadMultipart(content, filePath, contentType, first, partSize, maxSize);
+        } catch (IOException e) {
+            log.error("Ошибка чтения загружаемого файла {}", filePath, e);
+            throw new RuntimeException("Не удалось загрузить файл", e);
+        }
+    }
 
-            //создаем presigner с теми же настройками что и s3Client
-            S3Presigner presigner = S3Presigner.builder()
-                    .region(Region.of("us-east-1"))
-                    .endpointOverride(URI.create(minioEndpoint))
-                    .credentialsProvider(StaticCredentialsProvider.create(
-                            AwsBasicCredentials.create(accessKey, secretKey)
-                    ))
-                    .serviceConfiguration(S3Configuration.builder()
-                            .pathStyleAccessEnabled(true)
-                            .build())
-                    .build();
+    private long uploadMultipart(InputStream content, String filePath, String contentType,
+                                 byte[] first, int partSize, long maxSize) throws IOException {
+        String uploadId = storageBulkhead.call(() -> s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(filePath)
+                .contentType(contentType)
+                .build())).uploadId();
+
+        // свободные буферы; пока их нет, чтение ждёт завершения одной из частей
+        BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<>();
+        int allocated = 1;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        long total = 0;
+        try {
+            byte[] buffer = first;
+            int length = partSize;
+            while (length > 0) {
+                total += length;
+                if (total > maxSize) {
+                    throw new RuntimeException("Файл слишком большой. Максимальный размер: " + maxStreamSizeMb + "MB");
+                }
+                parts.add(uploadPart(uploadId, filePath, parts.size() + 1, buffer, length, freeBuffers, failure));
+
+                buffer = freeBuffers.poll();
+                if (buffer == null && allocated <= parallelParts) {
+                    buffer = new byte[partSize];
+                    allocated++;
+                } else if (buffer == null) {
+                    buffer = freeBuffers.take();
+                }
+                if (failure.get() != null) {
+                    throw new CompletionException(failure.get());
+                }
+                length = content.readNBytes(buffer, 0, partSize);
+            }
 
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+            List<CompletedPart> completed = parts.stream().map(CompletableFuture::join).toList();
+            storageBulkhead.run(() -> s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
                     .bucket(bucketName)
                     .key(filePath)
-                    .build();
-
-            GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                    .signatureDuration(Duration.ofHours(1))
-                    .getObjectRequest(getObjectRequest)
-                    .build();
-
-            PresignedGetObjectRequest presignedRequest = presigner.presignGetObject(presignRequest);
-            String url = presignedRequest.url().toString();
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build()));
+            log.info("Файл загружен в MinIO: {} ({} байт, {} частей)", filePath, total, completed.size());
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipart(uploadId, filePath, parts);
+            throw new RuntimeException("Загрузка файла прервана", e);
+        } catch (CompletionException e) {
+            abortMultipart(uploadId, filePath, parts);
+            log.error("Ошибка при загрузке части файла в MinIO: {}", filePath, e.getCause());
+            throw new RuntimeException("Не удалось загрузить файл", e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abortMultipart(uploadId, filePath, parts);
+            throw e;
+        }
+    }
 
-            presigner.close();
+    private CompletableFuture<CompletedPart> uploadPart(String uploadId, String filePath, int partNumber,
+                                                        byte[] buffer, int length,
+                                                        BlockingQueue<byte[]> freeBuffers,
+                                                        AtomicReference<Throwable> failure) {
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(filePath)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build();
+
+        storageBulkhead.acquire();
+        CompletableFuture<UploadPartResponse> response;
+        try {
+            // без копирования: буфер не трогаем, пока часть не загружена
+            response = s3AsyncClient.uploadPart(request, AsyncRequestBody.fromByteBufferUnsafe(ByteBuffer.wrap(buffer, 0, length)));
+        } catch (RuntimeException e) {
+            storageBulkhead.release();
+            throw e;
+        }
+        return response
+                .whenComplete((result, error) -> {
+                    storageBulkhead.release();
+                    if (error != null) {
+                        failure.compareAndSet(null, error);
+                    }
+                    freeBuffers.add(buffer);
+                })
+                .thenApply(result -> CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(result.eTag())
+                        .build());
+    }
 
-            return url;
+    private void abortMultipart(String uploadId, String filePath, List<CompletableFuture<CompletedPart>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            storageBulkhead.run(() -> s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(filePath)
+                    .uploadId(uploadId)
+                    .build()));
+        } catch (Exception e) {
+            // незавершённые загрузки дочищает lifecycle-правило бакета
+            log.warn("Не удалось отменить multipart upload {} для {}", uploadId, filePath, e);
+        }
+    }
 
+    /**
+     * Подписанная ссылка на скачивание. Подпись локальная (без запроса к MinIO), ссылка переиспользуется
+     * из кэша, пока до её истечения остаётся больше download-url.min-validity-minutes.
+     * Существование объекта не проверяется: пути берутся из БД, отсутствующий файл отдаст 404 сам MinIO.
+     */
+    public String generateDownloadUrl(String filePath) {
+        if (filePath == null) {
+            throw new RuntimeException("Файл не найден");
+        }
+        try {
+            return downloadUrls.get(filePath, this::presignDownloadUrl);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Ошибка при подписи ссылки для {}", filePath, e);
             throw new RuntimeException("Не удалось сгенерировать ссылку для скачивания", e);
         }
     }
 
+    /**
+     * Ссылки для набора файлов одним вызовом: уже подписанные берутся из кэша, остальные подписываются локально
+     */
+    public Map<String, String> generateDownloadUrls(Collection<String> filePaths) {
+        try {
+            return downloadUrls.getAll(filePaths, paths -> {
+                Map<String, String> urls = new HashMap<>();
+                for (String path : paths) {
+                    urls.put(path, presignDownloadUrl(path));
+                }
+                return urls;
+            });
+        } catch (Exception e) {
+            log.error("Ошибка при подписи ссылок", e);
+            throw new RuntimeException("Не удалось сгенерировать ссылки для скачивания", e);
+        }
+    }
+
+    private String presignDownloadUrl(String filePath) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(filePath)
+                .build();
+
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(downloadUrlTtlMinutes))
+                .getObjectRequest(getObjectRequest)
+                .build();
+
+        return s3Presigner.presignGetObject(presignRequest).url().toString();
+    }
+
     public void deleteFile(String filePath) {
         try {
             DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
@@ -121,8 +324,11 @@ public class FileStorageService {
                     .key(filePath)
                     .build();
 
-            s3Client.deleteObject(deleteObjectRequest);
+            storageBulkhead.run(() -> s3Client.deleteObject(deleteObjectRequest));
+            downloadUrls.invalidate(filePath);
             log.info("Файл удален из MinIO: {}", filePath);
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Ошибка при удалении файла из MinIO: {}", filePath, e);
             throw new RuntimeException("Не удалось удалить файл", e);
@@ -145,7 +351,18 @@ public class FileStorageService {
             throw new RuntimeException("Файл пустой");
         }
 
-        String originalFileName = file.getOriginalFilename();
+        validateFileName(file.getOriginalFilename(), file.getContentType());
+
+        // Проверяем размер файла
+        if (file.getSize() > 10 * 1024 * 1024) {
+            throw new RuntimeException("Файл слишком большой. Максимальный размер: 10MB");
+        }
+    }
+
+    /**
+     * Проверка имени и MIME-типа без самого файла - для потоковой загрузки, где размер заранее неизвестен
+     */
+    public void validateFileName(String originalFileName, String mimeType) {
         if (originalFileName == null) {
             throw new RuntimeException("Имя файла не может быть пустым");
         }
@@ -172,7 +389,6 @@ public class FileStorageService {
         }
 
         // Проверяем MIME type
-        String mimeType = file.getContentType();
         if (mimeType != null) {
             String[] dangerousMimeTypes = {
                     "application/x-msdownload",
@@ -188,10 +404,5 @@ public class FileStorageService {
                 }
             }
         }
-
-        // Проверяем размер файла
-        if (file.getSize() > 10 * 1024 * 1024) {
-            throw new RuntimeException("Файл слишком большой. Максимальный размер: 10MB");
-        }
     }
-}
\ No newline at end of file
+}
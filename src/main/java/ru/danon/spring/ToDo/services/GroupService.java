@@ -1,12 +1,14 @@
 package ru.danon.spring.ToDo.services;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.danon.spring.ToDo.cache.GroupMembershipCache;
 import ru.danon.spring.ToDo.dto.GroupResponseDTO;
 import ru.danon.spring.ToDo.dto.PersonResponseDTO;
+import ru.danon.spring.ToDo.events.DashboardStatsChangedEvent;
 import ru.danon.spring.ToDo.models.Group;
 import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.models.UserGroup;
@@ -14,12 +16,15 @@ import ru.danon.spring.ToDo.models.id.UserGroupId;
 import ru.danon.spring.ToDo.repositories.jpa.GroupRepository;
 import ru.danon.spring.ToDo.repositories.jpa.UserGroupRepository;
 import ru.danon.spring.ToDo.security.PersonDetails;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,15 +35,17 @@ public class GroupService {
     private final UserGroupRepository userGroupRepository;
     private final PeopleService peopleService;
     private final NotificationProducerService notificationProducerService;
-    private final ModelMapper modelMapper;
+    private final GroupMembershipCache groupMembershipCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public GroupService(GroupRepository groupRepository, UserGroupRepository userGroupRepository, PeopleService peopleService, NotificationProducerService notificationProducerService, ModelMapper modelMapper) {
+    public GroupService(GroupRepository groupRepository, UserGroupRepository userGroupRepository, PeopleService peopleService, NotificationProducerService notificationProducerService, GroupMembershipCache groupMembershipCache, ApplicationEventPublisher eventPublisher) {
         this.groupRepository = groupRepository;
         this.userGroupRepository = userGroupRepository;
         this.peopleService = peopleService;
         this.notificationProducerService = notificationProducerService;
-        this.modelMapper = modelMapper;
+        this.groupMembershipCache = groupMembershipCache;
+        this.eventPublisher = eventPublisher;
     }
 
     @Deprecated
@@ -83,6 +90,14 @@ public class GroupService {
         return users;
     }
 
+    //участники сразу нескольких групп одним запросом (без дублей)
+    public List<Person> getPersonsByGroupIds(Collection<Integer> groupIds) {
+        if (groupIds == null || groupIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return userGroupRepository.findUsersByGroupIds(groupIds);
+    }
+
     public List<PersonResponseDTO> getStudentsByGroupId(Integer groupId) {
         if (groupId == null) {
             return Collections.emptyList();
@@ -121,6 +136,8 @@ public class GroupService {
         userGroup.setCreatedAt(LocalDateTime.now());
 
         userGroupRepository.save(userGroup);
+        groupMembershipCache.evict(studentId);
+        publishMembershipChanged(List.of(studentId), group, false);
 
         //уведомление: вас добавили в группу
         notificationProducerService.sendGroupAddedNotification(
@@ -138,10 +155,12 @@ public class GroupService {
             throw new RuntimeException("Student not in group");
         }
         userGroupRepository.deleteByGroupIdAndUserId(groupId, studentId);
+        groupMembershipCache.evict(studentId);
         Person person = peopleService.findById(studentId)
                 .orElseThrow(() -> new RuntimeException("Person not found"));
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new RuntimeException("Group not found"));
+        publishMembershipChanged(List.of(studentId), group, false);
 
         //уведомление: вас удалили из группы
         notificationProducerService.sendGroupRemovedNotification(
@@ -154,7 +173,21 @@ public class GroupService {
 
     @Transactional
     public void removeGroup(Integer groupId) {
+        List<Integer> memberIds = userGroupRepository.findByGroupId(groupId).stream()
+                .map(userGroup -> userGroup.getId().getUserId())
+                .toList();
+        Group group = groupRepository.findById(groupId).orElse(null);
         groupRepository.deleteById(groupId);
+        memberIds.forEach(groupMembershipCache::evict);
+        publishMembershipChanged(memberIds, group, true);
+    }
+
+    // состав группы влияет на счётчики дашборда студентов и преподавателя группы
+    private void publishMembershipChanged(Collection<Integer> studentIds, Group group, boolean totals) {
+        List<Integer> teacherIds = group != null && group.getTeacher() != null
+                ? List.of(group.getTeacher().getId())
+                : List.of();
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(studentIds, List.of(), teacherIds, totals));
     }
 
     public GroupResponseDTO findById(Integer groupId, Authentication auth) {
@@ -174,11 +207,12 @@ public class GroupService {
 
             if (user == null) return null;
 
-            UserGroup userGroup = userGroupRepository.findUserGroupByUser(user);
-
-            return (userGroup != null && userGroup.getGroup() != null)
-                    ? userGroup.getGroup().getId()
-                    : null;
+            return groupMembershipCache.findGroupId(user.getId(), () -> {
+                UserGroup userGroup = userGroupRepository.findUserGroupByUser(user);
+                return (userGroup != null && userGroup.getGroup() != null)
+                        ? Optional.of(userGroup.getGroup().getId())
+                        : Optional.empty();
+            }).orElse(null);
 
         } catch (Exception e) {
             return null;
@@ -204,21 +238,16 @@ public class GroupService {
     }
 
     public List<PersonResponseDTO> getStudentsHasGroup(){
-        List<UserGroup> studentsId = userGroupRepository.findAll();
-        List<Person> students = new ArrayList<>();
-        for(UserGroup userGroup : studentsId){
-            students.add(userGroup.getUser());
-        }
-        return convertToResponsePerson(students);
+        return convertToResponsePerson(userGroupRepository.findAllGroupMembers());
     }
     private List<PersonResponseDTO> convertToResponsePerson(List<Person> allUsers) {
         return allUsers.stream()
-                .map(user -> modelMapper.map(user, PersonResponseDTO.class))
+                .map(DtoMapper::toPersonResponse)
                 .collect(Collectors.toList());
     }
 
     private GroupResponseDTO convertToGroupDTO(Group group) {
-        return modelMapper.map(group, GroupResponseDTO.class);
+        return DtoMapper.toGroupResponse(group);
     }
 
     private boolean isAdmin(Person person) {
@@ -0,0 +1,139 @@
+package ru.danon.spring.ToDo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danon.spring.ToDo.events.NotificationEvent;
+import ru.danon.spring.ToDo.models.NotificationOutbox;
+import ru.danon.spring.ToDo.repositories.jpa.NotificationOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relay transactional outbox -> Kafka.
+ * Пачка строк блокируется FOR UPDATE SKIP LOCKED (несколько узлов делят outbox без дублей),
+ * отправляется в notifications-topic, и только после подтверждения брокером строки удаляются.
+ * При ошибке транзакция откатывается и пачка уйдёт повторно (at-least-once, дедупликация по event id).
+ */
+@Service
+@Slf4j
+public class NotificationOutboxRelay {
+
+    private static final String TOPIC = "notifications-topic";
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final KafkaTemplate<String, NotificationEvent> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    private final Counter relayedCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+    // возраст самого старого неотправленного сообщения, секунды
+    private volatile double lagSeconds;
+
+    @Autowired
+    public NotificationOutboxRelay(NotificationOutboxRepository outboxRepository,
+                                   KafkaTemplate<String, NotificationEvent> kafkaTemplate,
+                                   ObjectMapper objectMapper,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${notifications.outbox.batch-size:500}") int batchSize,
+                                   @Value("${notifications.outbox.send-timeout-ms:30000}") long sendTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+
+        this.relayedCounter = Counter.builder("notifications.outbox.relayed")
+                .description("Уведомления, отправленные из outbox в Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("notifications.outbox.failed")
+                .description("Пачки outbox, не отправленные из-за ошибки")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("notifications.outbox.batch")
+                .description("Время отправки одной пачки outbox")
+                .register(meterRegistry);
+        Gauge.builder("notifications.outbox.lag.seconds", this, relay -> relay.lagSeconds)
+                .description("Возраст самого старого неотправленного уведомления")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-ms:500}")
+    public void relay() {
+        try {
+            int sent;
+            do {
+                Integer relayed = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+                sent = relayed == null ? 0 : relayed;
+            } while (sent == batchSize);
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("Outbox relay failed, batch will be retried: {}", e.getMessage(), e);
+        } finally {
+            updateLag();
+        }
+    }
+
+    private int relayBatch() {
+        List<NotificationOutbox> batch = outboxRepository.lockBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // send() не блокируется - producer сам собирает пачки (linger.ms/batch.size), ждём все подтверждения разом
+        List<CompletableFuture<?>> futures = new ArrayList<>(batch.size());
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (NotificationOutbox message : batch) {
+            ids.add(message.getId());
+            NotificationEvent event = readEvent(message);
+            if (event != null) {
+                futures.add(kafkaTemplate.send(TOPIC, message.getMessageKey(), event));
+            }
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException("Kafka не подтвердила отправку пачки из " + batch.size() + " уведомлений", e);
+        }
+
+        outboxRepository.deleteAllByIds(ids);
+        relayedCounter.increment(batch.size());
+        log.debug("Relayed {} notifications to {}", batch.size(), TOPIC);
+        return batch.size();
+    }
+
+    // повреждённое сообщение не должно блокировать очередь: логируем и удаляем вместе с пачкой
+    private NotificationEvent readEvent(NotificationOutbox message) {
+        try {
+            return objectMapper.readValue(message.getPayload(), NotificationEvent.class);
+        } catch (Exception e) {
+            log.error("Dropping malformed outbox message {} (event {})", message.getId(), message.getEventId(), e);
+            return null;
+        }
+    }
+
+    private void updateLag() {
+        LocalDateTime oldest = outboxRepository.findOldestCreatedAt();
+        lagSeconds = oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0);
+    }
+}
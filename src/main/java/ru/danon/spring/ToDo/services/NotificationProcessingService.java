@@ -1,118 +1,186 @@
 package ru.danon.spring.ToDo.services;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import ru.danon.spring.ToDo.models.ScheduledNotification;
+import ru.danon.spring.ToDo.models.id.TaskAssignmentId;
 import ru.danon.spring.ToDo.repositories.jpa.ScheduledNotificationRepository;
 import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
-import ru.danon.spring.ToDo.repositories.jpa.TaskRepository;
+import ru.danon.spring.ToDo.repositories.jpa.projections.AssignmentRecipientRow;
 
 import java.time.LocalDateTime;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Диспетчер запланированных уведомлений.
+ * Забирает пачки строк через FOR UPDATE SKIP LOCKED (см. ScheduledNotificationBatchRepository.claimDue),
+ * поэтому очередь можно безопасно разбирать с нескольких экземпляров приложения,
+ * и обрабатывает их на ограниченном пуле виртуальных потоков.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class NotificationProcessingService {
 
     private final ScheduledNotificationRepository scheduledNotificationRepository;
     private final TaskAssignmentRepository taskAssignmentRepository;
     private final NotificationProducerService notificationProducerService;
-    private final TaskRepository taskRepository;
+    private final int batchSize;
+    private final int workers;
+    private final int retryWindowHours;
+
+    // виртуальные потоки, одновременно в работе не больше workers пачек
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("notification-worker-", 0).factory());
+    private final Semaphore inFlight;
 
     private static final int MAX_ATTEMPTS = 3;
     private static final int PROCESSING_WINDOW_MINUTES = 10;
     private static final int FUTURE_BUFFER_MINUTES = 2;
+    // строка, зависшая в PROCESSING дольше этого (узел упал посреди пачки), забирается повторно
+    private static final int CLAIM_TIMEOUT_MINUTES = 5;
+
+    @Autowired
+    public NotificationProcessingService(ScheduledNotificationRepository scheduledNotificationRepository,
+                                         TaskAssignmentRepository taskAssignmentRepository,
+                                         NotificationProducerService notificationProducerService,
+                                         @Value("${notifications.dispatcher.batch-size:100}") int batchSize,
+                                         @Value("${notifications.dispatcher.workers:8}") int workers,
+                                         @Value("${notifications.retry.window-hours:24}") int retryWindowHours) {
+        this.scheduledNotificationRepository = scheduledNotificationRepository;
+        this.taskAssignmentRepository = taskAssignmentRepository;
+        this.notificationProducerService = notificationProducerService;
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.retryWindowHours = retryWindowHours;
+        this.inFlight = new Semaphore(workers);
+    }
 
-    @Scheduled(fixedRate = 300000) // Каждые 5 минут
-    @Transactional
+    @Scheduled(fixedDelayString = "${notifications.dispatcher.poll-ms:30000}")
     public void processScheduledNotifications() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime windowStart = now.minusMinutes(PROCESSING_WINDOW_MINUTES);
-        LocalDateTime windowEnd = now.plusMinutes(FUTURE_BUFFER_MINUTES);
+        int claimed = 0;
+        while (true) {
+            // свободный воркер берём до claim, чтобы не держать забранные строки в ожидании.
+            // Не ждём: поток планировщика общий с остальными @Scheduled, остаток заберём в следующий запуск
+            if (!inFlight.tryAcquire()) {
+                break;
+            }
 
-        List<ScheduledNotification> pendingNotifications =
-                scheduledNotificationRepository.findByStatusAndScheduledTimeBetween(
-                        "PENDING", windowStart, windowEnd);
+            LocalDateTime now = LocalDateTime.now();
+            List<ScheduledNotification> batch = scheduledNotificationRepository.claimDue(
+                    now.minusMinutes(PROCESSING_WINDOW_MINUTES),
+                    now.plusMinutes(FUTURE_BUFFER_MINUTES),
+                    now.minusMinutes(CLAIM_TIMEOUT_MINUTES),
+                    // повторы - только среди недавних строк, старые секции таблицы не читаются
+                    now.minusHours(retryWindowHours),
+                    MAX_ATTEMPTS,
+                    batchSize);
+
+            if (batch.isEmpty()) {
+                inFlight.release();
+                break;
+            }
+            claimed += batch.size();
+
+            executor.execute(() -> {
+                try {
+                    processBatch(batch);
+                } finally {
+                    inFlight.release();
+                }
+            });
+
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (claimed > 0) {
+            log.info("Claimed {} pending notifications for processing", claimed);
+        }
+    }
+
+    private void processBatch(List<ScheduledNotification> batch) {
+        LocalDateTime now = LocalDateTime.now();
 
-        log.info("Found {} pending notifications to process", pendingNotifications.size());
+        // Актуальность и названия задач - одним запросом на всю пачку
+        Set<TaskAssignmentId> keys = batch.stream()
+                .map(notification -> new TaskAssignmentId(notification.getTaskId(), notification.getUserId()))
+                .collect(Collectors.toSet());
+        Map<TaskAssignmentId, AssignmentRecipientRow> recipients;
+        try {
+            recipients = taskAssignmentRepository.findActiveRecipients(keys, now).stream()
+                    .collect(Collectors.toMap(
+                            row -> new TaskAssignmentId(row.getTaskId(), row.getUserId()),
+                            Function.identity()));
+        } catch (Exception e) {
+            log.error("Failed to resolve recipients for batch of {} notifications", batch.size(), e);
+            batch.forEach(notification -> notification.setStatus("FAILED"));
+            scheduledNotificationRepository.updateStatuses(batch);
+            return;
+        }
 
-        for (ScheduledNotification notification : pendingNotifications) {
-            processSingleNotification(notification, now);
+        for (ScheduledNotification notification : batch) {
+            AssignmentRecipientRow recipient =
+                    recipients.get(new TaskAssignmentId(notification.getTaskId(), notification.getUserId()));
+            processSingleNotification(notification, recipient, now);
         }
 
-        // Обрабатываем failed уведомления для повторных попыток
-        processFailedNotifications();
+        scheduledNotificationRepository.updateStatuses(batch);
     }
 
-    private void processSingleNotification(ScheduledNotification notification, LocalDateTime now) {
+    private void processSingleNotification(ScheduledNotification notification,
+                                           AssignmentRecipientRow recipient,
+                                           LocalDateTime now) {
         try {
-            notification.setAttemptCount(notification.getAttemptCount() + 1);
-
-            // Проверяем, что задача еще актуальна
-            if (!isTaskValidForNotification(notification.getTaskId(), notification.getUserId())) {
+            // Задача уже завершена, просрочена или удалена
+            if (recipient == null) {
                 notification.setStatus("CANCELLED");
-                scheduledNotificationRepository.save(notification);
                 log.info("Notification cancelled - task not valid: {}", notification.getId());
                 return;
             }
 
-            // Отправляем уведомление
-            sendActualNotification(notification);
+            sendActualNotification(notification, recipient);
 
-            // Помечаем как отправленное
             notification.setStatus("SENT");
             notification.setNotificationTime(now);
-            scheduledNotificationRepository.save(notification);
-
-            log.info("Notification sent successfully: {}", notification.getId());
+            log.debug("Notification sent successfully: {}", notification.getId());
 
         } catch (Exception e) {
             handleNotificationError(notification, e);
         }
     }
 
-    private void processFailedNotifications() {
-        List<ScheduledNotification> failedNotifications =
-                scheduledNotificationRepository.findByStatusAndAttemptCountLessThan("FAILED", MAX_ATTEMPTS);
-
-        for (ScheduledNotification notification : failedNotifications) {
-            // Повторяем обработку для уведомлений, которые еще не превысили лимит попыток
-            if (notification.getScheduledTime().isAfter(LocalDateTime.now().minusHours(24))) {
-                notification.setStatus("PENDING");
-                scheduledNotificationRepository.save(notification);
-            }
-        }
-    }
-
     private void handleNotificationError(ScheduledNotification notification, Exception e) {
+        notification.setStatus("FAILED");
         if (notification.getAttemptCount() >= MAX_ATTEMPTS) {
-            notification.setStatus("FAILED");
             log.error("Notification failed after {} attempts: {}",
                     notification.getAttemptCount(), notification.getId(), e);
         } else {
-            notification.setStatus("FAILED"); // Временно FAILED, будет повторно обработано
-            log.warn("Notification processing failed (attempt {}): {}",
+            // Временно FAILED, claimDue заберёт повторно в пределах окна повторов
+            log.warn("Notification processing failed (attempt {}): {} - {}",
                     notification.getAttemptCount(), notification.getId(), e.getMessage());
         }
-        scheduledNotificationRepository.save(notification);
     }
 
-    private boolean isTaskValidForNotification(Integer taskId, Integer userId) {
-        // Проверяем, что задача существует, не завершена и не просрочена
-        return taskAssignmentRepository.existsValidTaskForNotification(taskId, userId, LocalDateTime.now());
-    }
-
-    private void sendActualNotification(ScheduledNotification notification) {
+    private void sendActualNotification(ScheduledNotification notification, AssignmentRecipientRow recipient) {
         String label = getLabelByEventType(notification.getEventType());
 
         notificationProducerService.sendTaskDeadlineApproachingNotification(
                 notification.getUserId(),
-                "ROLE_STUDENT",
-                getTaskTitle(notification.getTaskId()),
+                recipient.getUserRole(),
+                recipient.getTaskTitle(),
                 notification.getTaskId(),
                 label,
                 notification.getEventType()
@@ -128,7 +196,12 @@ public class NotificationProcessingService {
         }
     }
 
-    private String getTaskTitle(Integer taskId) {
-        return taskRepository.findById(taskId).get().getTitle();
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Notification workers did not finish in time, {} batches left", workers - inFlight.availablePermits());
+            executor.shutdownNow();
+        }
     }
-}
\ No newline at end of file
+}
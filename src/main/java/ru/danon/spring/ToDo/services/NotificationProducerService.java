@@ -1,46 +1,79 @@
 package ru.danon.spring.ToDo.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import ru.danon.spring.ToDo.events.NotificationEvent;
+import ru.danon.spring.ToDo.models.NotificationOutbox;
+import ru.danon.spring.ToDo.repositories.jpa.NotificationOutboxRepository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Публикация уведомлений через transactional outbox: событие пишется в notification_outbox
+ * в той же транзакции, что и бизнес-операция, а в Kafka его отправляет NotificationOutboxRelay.
+ * Откат транзакции откатывает и уведомление, а запрос не ждёт брокер.
+ */
 @Service
 public class NotificationProducerService {
 
     private static final Logger log = LoggerFactory.getLogger(NotificationProducerService.class);
     private static final DateTimeFormatter MEETING_TIME_FORMATTER =
             DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
-    private final KafkaTemplate<String, NotificationEvent> kafkaTemplate;
+    private final NotificationOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
 
-    public NotificationProducerService(KafkaTemplate<String, NotificationEvent> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    public NotificationProducerService(NotificationOutboxRepository outboxRepository,
+                                       ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
     }
 
     public void sendNotification(NotificationEvent event) {
+        sendNotifications(List.of(event));
+    }
+
+    /**
+     * Кладёт пачку уведомлений в outbox одним батчем
+     */
+    public void sendNotifications(List<NotificationEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationOutbox> messages = events.stream()
+                .map(event -> toOutboxMessage(event, now))
+                .toList();
+        outboxRepository.insertAll(messages);
+        log.debug("Queued {} notifications to outbox", messages.size());
+    }
+
+    private NotificationOutbox toOutboxMessage(NotificationEvent event, LocalDateTime now) {
+        NotificationOutbox message = new NotificationOutbox();
+        message.setEventId(event.getId());
+        message.setMessageKey(event.getUserId() != null ? event.getUserId().toString() : null);
         try {
-            kafkaTemplate.send("notifications-topic", event.getUserId().toString(), event)
-                    .whenComplete((result, ex) -> {
-                        if (ex == null) {
-                            log.info("Notification sent successfully: {}", event);
-                        } else {
-                            log.error("Failed to send notification: {}", event, ex);
-                        }
-                    });
-        } catch (Exception e) {
-            log.error("Error sending notification to Kafka: {}", e.getMessage());
+            message.setPayload(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Не удалось сериализовать уведомление " + event.getId(), e);
         }
+        message.setCreatedAt(now);
+        return message;
     }
 
     // Вспомогательные методы для создания событий
     public void sendTaskAssignedNotification(Integer userId, String userRole, String taskTitle, Integer taskId) {
+        sendNotification(buildTaskAssignedEvent(userId, userRole, taskTitle, taskId));
+    }
+
+    public NotificationEvent buildTaskAssignedEvent(Integer userId, String userRole, String taskTitle, Integer taskId) {
         NotificationEvent event = new NotificationEvent();
         event.setId(UUID.randomUUID().toString());
         event.setType("TASK");
@@ -50,8 +83,7 @@ public class NotificationProducerService {
         event.setUserRole(userRole);
         event.setCreatedAt(Timestamp.valueOf(LocalDateTime.now()));
         event.setMetadata(Map.of("taskId", taskId));
-
-        sendNotification(event);
+        return event;
     }
 
     public void sendGroupAddedNotification(Integer userId, String userRole, String groupName, Integer groupId) {
@@ -83,6 +115,10 @@ public class NotificationProducerService {
     }
 
     public void sendTaskOverdueNotification(Integer userId, String userRole, String taskTitle, Integer taskId) {
+        sendNotification(buildTaskOverdueEvent(userId, userRole, taskTitle, taskId));
+    }
+
+    public NotificationEvent buildTaskOverdueEvent(Integer userId, String userRole, String taskTitle, Integer taskId) {
         NotificationEvent event = new NotificationEvent();
         event.setId(UUID.randomUUID().toString());
         event.setType("TASK_OVERDUE");
@@ -92,8 +128,7 @@ public class NotificationProducerService {
         event.setUserRole(userRole);
         event.setCreatedAt(Timestamp.valueOf(LocalDateTime.now()));
         event.setMetadata(Map.of("taskId", taskId));
-
-        sendNotification(event);
+        return event;
     }
 
     public void sendTaskDeadlineApproachingNotification(
@@ -207,19 +242,42 @@ public class NotificationProducerService {
 
     public void sendCommentNotification(Integer studentUserId, String username,
                                         String taskTitle, Integer taskId) {
+        sendNotification(buildCommentEvent(studentUserId, username, taskTitle, taskId));
+    }
+
+    public NotificationEvent buildCommentEvent(Integer userId, String username, String taskTitle, Integer taskId) {
         NotificationEvent event = new NotificationEvent();
         event.setId(UUID.randomUUID().toString());
         event.setType("New_Comment");
         event.setTitle("Новый комментарий");
         event.setMessage("Пользователь " + username + " оставил комментарий к задаче: " + taskTitle);
-        event.setUserId(studentUserId);
+        event.setUserId(userId);
         event.setCreatedAt(Timestamp.valueOf(LocalDateTime.now()));
         event.setMetadata(Map.of(
                 "taskId", taskId,
                 "taskTitle", taskTitle
         ));
+        return event;
+    }
 
-        sendNotification(event);
+    /**
+     * Сводное уведомление о нескольких комментариях к задаче, накопившихся за окно склейки
+     */
+    public NotificationEvent buildCommentDigestEvent(Integer userId, String authors, String taskTitle,
+                                                     Integer taskId, int commentsCount) {
+        NotificationEvent event = new NotificationEvent();
+        event.setId(UUID.randomUUID().toString());
+        event.setType("New_Comment");
+        event.setTitle("Новые комментарии");
+        event.setMessage("Новых комментариев к задаче " + taskTitle + ": " + commentsCount + " (" + authors + ")");
+        event.setUserId(userId);
+        event.setCreatedAt(Timestamp.valueOf(LocalDateTime.now()));
+        event.setMetadata(Map.of(
+                "taskId", taskId,
+                "taskTitle", taskTitle,
+                "commentsCount", commentsCount
+        ));
+        return event;
     }
 
     public void sendVideoMeetingCreatedNotification(Integer userId,
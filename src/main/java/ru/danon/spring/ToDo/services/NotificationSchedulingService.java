@@ -5,12 +5,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.danon.spring.ToDo.models.ScheduledNotification;
+import ru.danon.spring.ToDo.models.Task;
 import ru.danon.spring.ToDo.models.TaskAssignment;
 import ru.danon.spring.ToDo.repositories.jpa.ScheduledNotificationRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -41,6 +46,59 @@ public class NotificationSchedulingService {
         }
     }
 
+    /**
+     * Планирует уведомления о дедлайне сразу для набора пользователей:
+     * одна проверка уже запланированных и одна пакетная вставка
+     */
+    @Transactional
+    public void scheduleTaskNotifications(Task task, Collection<Integer> userIds) {
+        LocalDateTime deadline = task.getDeadline();
+        if (deadline == null) {
+            log.warn("Task {} has no deadline, skipping notification scheduling", task.getId());
+            return;
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> alreadyScheduled = scheduledNotificationRepository
+                .findByTaskIdAndUserIdInAndStatus(task.getId(), userIds, "PENDING")
+                .stream()
+                .map(notification -> notification.getUserId() + ":" + notification.getEventType())
+                .collect(Collectors.toSet());
+
+        List<ScheduledNotification> notifications = new ArrayList<>();
+        for (Integer hours : NOTIFICATION_INTERVALS) {
+            LocalDateTime scheduledTime = deadline.minusHours(hours);
+            if (scheduledTime.isBefore(now)) {
+                continue;
+            }
+            String eventType = getEventType(hours);
+
+            for (Integer userId : userIds) {
+                if (alreadyScheduled.contains(userId + ":" + eventType)) {
+                    continue;
+                }
+                ScheduledNotification notification = new ScheduledNotification();
+                notification.setUserId(userId);
+                notification.setTaskId(task.getId());
+                notification.setEventType(eventType);
+                notification.setScheduledTime(scheduledTime);
+                notification.setStatus("PENDING");
+                notification.setAttemptCount(0);
+                notification.setCreatedAt(now);
+                notification.setUpdatedAt(now);
+                notifications.add(notification);
+            }
+        }
+
+        scheduledNotificationRepository.insertAll(notifications);
+
+        log.info("Scheduled {} notifications for task {}, {} users, deadline {}",
+                notifications.size(), task.getId(), userIds.size(), deadline);
+    }
+
     @Transactional
     public void rescheduleTaskNotifications(TaskAssignment assignment) {
         // Сначала отменяем старые уведомления
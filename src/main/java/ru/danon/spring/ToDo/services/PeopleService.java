@@ -1,30 +1,40 @@
 package ru.danon.spring.ToDo.services;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.danon.spring.ToDo.cache.PeopleCache;
 import ru.danon.spring.ToDo.dto.PersonResponseDTO;
+import ru.danon.spring.ToDo.events.DashboardStatsChangedEvent;
 import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.repositories.jpa.PeopleRepository;
+import ru.danon.spring.ToDo.security.TokenRevocationService;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional(readOnly = true)
 public class PeopleService {
     private final PeopleRepository peopleRepository;
-    private final ModelMapper modelMapper;
+    private final PeopleCache peopleCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public PeopleService(PeopleRepository peopleRepository, ModelMapper modelMapper) {
+    public PeopleService(PeopleRepository peopleRepository, PeopleCache peopleCache, TokenRevocationService tokenRevocationService, ApplicationEventPublisher eventPublisher) {
         this.peopleRepository = peopleRepository;
-        this.modelMapper = modelMapper;
+        this.peopleCache = peopleCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.eventPublisher = eventPublisher;
     }
 
+    //возвращает отдетаченную копию из кэша; для изменения и сохранения подходит, т.к. save делает merge
     public Optional<Person> findByUsername(String username) {
-        return peopleRepository.findByUsername(username);
+        return peopleCache.findByUsername(username, () -> peopleRepository.findByUsername(username));
     }
 
     public List<Person> findAll() {
@@ -36,17 +46,23 @@ public class PeopleService {
     }
 
     public Optional<Person> findById(Integer userId) {
-        return peopleRepository.findById(userId);
+        return peopleCache.findById(userId, () -> peopleRepository.findById(userId));
     }
 
     @Transactional
     public void deleteById(Integer userId) {
+        String username = findById(userId).map(Person::getUsername).orElse(null);
         peopleRepository.deleteById(userId);
+        peopleCache.evict(userId, username);
+        tokenRevocationService.claimsChanged(userId);
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(Set.of(userId), Set.of(), Set.of(userId), true));
     }
 
     @Transactional
     public Person save(Person person) {
-        return peopleRepository.save(person);
+        Person saved = peopleRepository.save(person);
+        peopleCache.evict(saved.getId(), saved.getUsername());
+        return saved;
     }
 
     public List<Person> findByRole(String role) {
@@ -88,10 +104,16 @@ public class PeopleService {
         }
 
         Person updatedPerson = peopleRepository.save(person);
+        peopleCache.evict(updatedPerson.getId(), username, newUsername);
+        if (!username.equals(newUsername)) {
+            // в старых токенах прежнее имя
+            tokenRevocationService.claimsChanged(updatedPerson.getId());
+        }
         return convertToPersonResponseDTO(Optional.of(updatedPerson));
     }
 
     private PersonResponseDTO convertToPersonResponseDTO(Optional<Person> byUsername) {
-        return modelMapper.map(byUsername.orElse(null), PersonResponseDTO.class);
+        return byUsername.map(DtoMapper::toPersonResponse)
+                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
     }
 }
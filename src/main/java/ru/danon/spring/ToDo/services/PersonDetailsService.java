@@ -6,7 +6,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import ru.danon.spring.ToDo.models.Person;
-import ru.danon.spring.ToDo.repositories.jpa.PeopleRepository;
 import ru.danon.spring.ToDo.security.PersonDetails;
 
 
@@ -14,16 +13,16 @@ import java.util.Optional;
 
 @Service
 public class PersonDetailsService implements UserDetailsService {
-    private final PeopleRepository peopleRepository;
+    private final PeopleService peopleService;
 
     @Autowired
-    public PersonDetailsService(PeopleRepository peopleRepository) {
-        this.peopleRepository = peopleRepository;
+    public PersonDetailsService(PeopleService peopleService) {
+        this.peopleService = peopleService;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<Person> person = peopleRepository.findByUsername(username);
+        Optional<Person> person = peopleService.findByUsername(username);
         if (person.isEmpty()) {
             throw new UsernameNotFoundException("User not found");
         }
@@ -4,12 +4,15 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.danon.spring.ToDo.cache.PeopleCache;
+import ru.danon.spring.ToDo.events.DashboardStatsChangedEvent;
 import ru.danon.spring.ToDo.events.NotificationEvent;
 import ru.danon.spring.ToDo.models.Person;
 import ru.danon.spring.ToDo.repositories.jpa.PeopleRepository;
@@ -19,6 +22,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -29,6 +33,8 @@ public class RegistrationService {
     private final NotificationProducerService notificationProducerService;
     private final PasswordEncoder passwordEncoder;
     private final JavaMailSender mailSender;
+    private final PeopleCache peopleCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     // In-memory хранилище для токенов (можно заменить на Redis в будущем)
     private final Map<String, PasswordResetToken> resetTokens = new ConcurrentHashMap<>();
@@ -42,6 +48,7 @@ public class RegistrationService {
         peopleRepository.save(person);
 
         Person person1 = peopleRepository.findByUsername(person.getUsername()).orElseThrow();
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(Set.of(), Set.of(), Set.of(), true));
         //уведомление: зарегистрирован новый пользователь
         notificationProducerService.sendNotification(
                 new NotificationEvent(
@@ -137,6 +144,7 @@ public class RegistrationService {
         // Обновляем пароль
         user.setPassword(passwordEncoder.encode(newPassword));
         peopleRepository.save(user);
+        peopleCache.evict(user.getId(), user.getUsername());
 
         // Удаляем использованный токен
         resetTokens.remove(tokenKey);
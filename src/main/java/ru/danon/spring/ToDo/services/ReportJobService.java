@@ -0,0 +1,239 @@
+package ru.danon.spring.ToDo.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import ru.danon.spring.ToDo.dto.ReportJobDTO;
+import ru.danon.spring.ToDo.dto.ReportRequestDTO;
+import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронная генерация отчётов.
+ * Задание ставится в ограниченный пул, готовый файл кладётся в MinIO, статус хранится в Redis,
+ * поэтому его видно с любого экземпляра приложения. Одинаковые запросы к неизменившимся данным
+ * получают уже существующее задание вместо повторной генерации.
+ */
+@Service
+@Slf4j
+public class ReportJobService {
+
+    private static final String JOB_KEY = "todo:report:job:";
+    private static final String DEDUP_KEY = "todo:report:dedup:";
+
+    private final ReportService reportService;
+    private final FileStorageService fileStorageService;
+    private final TaskAssignmentRepository taskAssignmentRepository;
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final Duration resultTtl;
+    private final Duration jobTimeout;
+
+    @Autowired
+    public ReportJobService(ReportService reportService,
+                            FileStorageService fileStorageService,
+                            TaskAssignmentRepository taskAssignmentRepository,
+                            StringRedisTemplate redis,
+                            ObjectMapper objectMapper,
+                            @Value("${reports.jobs.workers:2}") int workers,
+                            @Value("${reports.jobs.queue-capacity:20}") int queueCapacity,
+                            @Value("${reports.jobs.result-ttl-minutes:60}") long resultTtlMinutes,
+                            @Value("${reports.jobs.timeout-minutes:30}") long timeoutMinutes) {
+        this.reportService = reportService;
+        this.fileStorageService = fileStorageService;
+        this.taskAssignmentRepository = taskAssignmentRepository;
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.resultTtl = Duration.ofMinutes(resultTtlMinutes);
+        this.jobTimeout = Duration.ofMinutes(timeoutMinutes);
+
+        // генерация тяжёлая по CPU и памяти: фиксированное число потоков и ограниченная очередь,
+        // переполнение - отказ, а не бесконечное накопление заданий
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "report-worker-" + threadNumber.getAndIncrement()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public ReportJobDTO submit(ReportRequestDTO request) {
+        reportService.validateRequest(request);
+
+        String dedupKey = DEDUP_KEY + fingerprint(request, taskAssignmentRepository.findReportDataVersion());
+
+        // вторая попытка - если по ключу нашлось упавшее или зависшее задание
+        for (int attempt = 0; attempt < 2; attempt++) {
+            String jobId = UUID.randomUUID().toString();
+            if (Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(dedupKey, jobId, resultTtl))) {
+                return enqueue(jobId, dedupKey, request);
+            }
+
+            String existingId = redis.opsForValue().get(dedupKey);
+            ReportJobDTO existing = existingId != null ? readJob(existingId) : null;
+            if (existing != null && !isDead(existing)) {
+                log.debug("Report request matched existing job {}", existing.getId());
+                return existing;
+            }
+            redis.delete(dedupKey);
+        }
+        throw new RuntimeException("Не удалось поставить отчет в очередь");
+    }
+
+    public ReportJobDTO getJob(String jobId) {
+        ReportJobDTO job = readJob(jobId);
+        if (job == null) {
+            throw new RuntimeException("Задание не найдено: " + jobId);
+        }
+        if ("DONE".equals(job.getStatus())) {
+            job.setDownloadUrl(fileStorageService.generateDownloadUrl(job.getFileKey()));
+        }
+        return job;
+    }
+
+    private ReportJobDTO enqueue(String jobId, String dedupKey, ReportRequestDTO request) {
+        LocalDateTime now = LocalDateTime.now();
+        ReportJobDTO job = new ReportJobDTO();
+        job.setId(jobId);
+        job.setStatus("QUEUED");
+        job.setReportType(request.getReportType());
+        job.setFormat(request.getFormat() != null ? request.getFormat() : "excel");
+        job.setFileName(reportService.getFileName(request));
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        saveJob(job);
+
+        try {
+            executor.execute(() -> run(job, dedupKey, request));
+        } catch (RejectedExecutionException e) {
+            redis.delete(dedupKey);
+            fail(job, "Очередь отчетов переполнена");
+            throw new RuntimeException("Очередь отчетов переполнена, попробуйте позже");
+        }
+        log.info("Report job {} queued: {} for group {}", jobId, request.getReportType(), request.getGroupId());
+        return job;
+    }
+
+    private void run(ReportJobDTO job, String dedupKey, ReportRequestDTO request) {
+        job.setStatus("RUNNING");
+        job.setUpdatedAt(LocalDateTime.now());
+        saveJob(job);
+
+        Path file = null;
+        try {
+            // файл на диске, а не byte[]: объём отчёта не зависит от кучи
+            file = Files.createTempFile("report-" + job.getId(), null);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                reportService.writeReport(request, out);
+            }
+
+            String fileKey = "reports/" + job.getId() + "/" + job.getFileName();
+            fileStorageService.uploadFile(file, fileKey, reportService.getContentType(request));
+
+            job.setFileKey(fileKey);
+            job.setStatus("DONE");
+            job.setUpdatedAt(LocalDateTime.now());
+            saveJob(job);
+            log.info("Report job {} finished", job.getId());
+        } catch (Exception e) {
+            log.error("Report job {} failed", job.getId(), e);
+            // следующий такой же запрос должен сгенерировать отчёт заново
+            redis.delete(dedupKey);
+            fail(job, e.getMessage());
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (Exception e) {
+                    log.warn("Failed to delete temp report file {}", file, e);
+                }
+            }
+        }
+    }
+
+    private void fail(ReportJobDTO job, String error) {
+        job.setStatus("FAILED");
+        job.setError(error);
+        job.setUpdatedAt(LocalDateTime.now());
+        saveJob(job);
+    }
+
+    // упавшее задание или задание, не менявшее статус дольше таймаута (узел перезапустился посреди генерации)
+    private boolean isDead(ReportJobDTO job) {
+        if ("FAILED".equals(job.getStatus())) {
+            return true;
+        }
+        return !"DONE".equals(job.getStatus())
+                && job.getUpdatedAt().isBefore(LocalDateTime.now().minus(jobTimeout));
+    }
+
+    private ReportJobDTO readJob(String jobId) {
+        String json = redis.opsForValue().get(JOB_KEY + jobId);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, ReportJobDTO.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Malformed report job {}: {}", jobId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveJob(ReportJobDTO job) {
+        try {
+            redis.opsForValue().set(JOB_KEY + job.getId(), objectMapper.writeValueAsString(job), resultTtl);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Не удалось сохранить статус отчета", e);
+        }
+    }
+
+    private String fingerprint(ReportRequestDTO request, String dataVersion) {
+        String source = String.join("|",
+                request.getReportType(),
+                request.getGroupId(),
+                String.valueOf(request.getPeriod()),
+                request.getFormat() != null ? request.getFormat().toLowerCase() : "excel",
+                String.valueOf(Boolean.TRUE.equals(request.getIncludeGrades())),
+                String.valueOf(Boolean.TRUE.equals(request.getIncludeComments())),
+                String.valueOf(Boolean.TRUE.equals(request.getIncludeDeadlines())),
+                String.valueOf(Boolean.TRUE.equals(request.getIncludeProgress())),
+                String.valueOf(Boolean.TRUE.equals(request.getGzip())),
+                dataVersion);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Report workers did not finish in time, {} jobs left", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
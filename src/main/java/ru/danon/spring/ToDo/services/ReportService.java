@@ -1,106 +1,271 @@
 package ru.danon.spring.ToDo.services;
 
-import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.danon.spring.ToDo.dto.ReportRequestDTO;
-import ru.danon.spring.ToDo.models.*;
+import ru.danon.spring.ToDo.models.Group;
 import ru.danon.spring.ToDo.repositories.jpa.*;
+import ru.danon.spring.ToDo.repositories.jpa.projections.ReportRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.TaskStatusCountRow;
 import ru.danon.spring.ToDo.repositories.mongo.CommentRepository;
+import ru.danon.spring.ToDo.util.ExcelSheetWriter;
+import ru.danon.spring.ToDo.util.RowStreamWriter;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
-@RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class ReportService {
 
+    private static final List<String> FORMATS = List.of("excel", "doc", "csv", "ndjson");
+    // секции комплексного отчёта для каждой группы, в порядке вывода
+    private static final List<String> SECTION_TYPES = List.of("STUDENT_PROGRESS", "TASK_STATISTICS", "GRADES_OVERVIEW");
+    // маркер конца строк секции в очереди воркера
+    private static final Object END_OF_SECTION = new Object();
+    private static final long SECTION_POLL_MS = 100;
+
     private final TaskRepository taskRepository;
     private final TaskAssignmentRepository taskAssignmentRepository;
     private final GroupRepository groupRepository;
-    private final PeopleRepository peopleRepository;
-    private final UserGroupRepository userGroupRepository;
     private final CommentRepository commentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    // сколько строк SXSSF держит в памяти, остальные сбрасываются во временный файл
+    private final int excelRowWindow;
+    // загрузка секций комплексного отчёта: фиксированное число потоков, каждый держит соединение с БД
+    private final ExecutorService sectionExecutor;
+    private final int sectionPrefetch;
+    // сколько строк секции воркер читает вперёд писателя
+    private final int sectionBufferRows;
+
+    @Autowired
+    public ReportService(TaskRepository taskRepository,
+                         TaskAssignmentRepository taskAssignmentRepository,
+                         GroupRepository groupRepository,
+                         CommentRepository commentRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${reports.excel.row-window:200}") int excelRowWindow,
+                         @Value("${reports.comprehensive.workers:3}") int sectionWorkers,
+                         @Value("${reports.comprehensive.section-buffer-rows:1000}") int sectionBufferRows) {
+        this.taskRepository = taskRepository;
+        this.taskAssignmentRepository = taskAssignmentRepository;
+        this.groupRepository = groupRepository;
+        this.commentRepository = commentRepository;
+        this.excelRowWindow = excelRowWindow;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sectionExecutor = Executors.newFixedThreadPool(sectionWorkers,
+                runnable -> new Thread(runnable, "report-section-" + threadNumber.getAndIncrement()));
+        this.sectionPrefetch = sectionWorkers * 2;
+        this.sectionBufferRows = sectionBufferRows;
+    }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public byte[] generateReport(ReportRequestDTO request) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeReport(request, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Записывает отчёт в выходной поток в запрошенном формате.
+     * Комплексный Excel/DOCX-отчёт загружает секции в параллельных транзакциях и общей не держит,
+     * остальные читаются курсором в одной read-only транзакции.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeReport(ReportRequestDTO request, OutputStream out) throws IOException {
+        if ("COMPREHENSIVE".equals(request.getReportType()) && !isRowFormat(request)) {
+            writeReportByFormat(request, out);
+            return;
+        }
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    writeReportByFormat(request, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeReportByFormat(ReportRequestDTO request, OutputStream out) throws IOException {
         if ("excel".equalsIgnoreCase(request.getFormat()) || request.getFormat() == null) {
-            return generateExcelReport(request);
+            writeExcelReport(request, out);
         } else if ("doc".equalsIgnoreCase(request.getFormat())) {
-            return generateDocReport(request);
+            out.write(generateDocReport(request));
+        } else if (isRowFormat(request)) {
+            writeRowsReport(request, out);
         } else {
             throw new IllegalArgumentException("Unsupported format: " + request.getFormat());
         }
     }
 
-    private byte[] generateExcelReport(ReportRequestDTO request) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Отчет");
-
-        // Стили
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle titleStyle = createTitleStyle(workbook);
-        CellStyle dataStyle = workbook.createCellStyle();
-        dataStyle.setBorderBottom(BorderStyle.THIN);
-        dataStyle.setBorderTop(BorderStyle.THIN);
-        dataStyle.setBorderLeft(BorderStyle.THIN);
-        dataStyle.setBorderRight(BorderStyle.THIN);
-
-        int rowNum = 0;
-
-        // Заголовок
-        Row titleRow = sheet.createRow(rowNum++);
-        Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue(getReportTitle(request));
-        titleCell.setCellStyle(titleStyle);
-        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
-
-        rowNum++; // Пустая строка
+    /**
+     * Проверка параметров до постановки отчёта в очередь, чтобы ошибка вернулась сразу, а не в статусе задания
+     */
+    public void validateRequest(ReportRequestDTO request) {
+        if (request.getFormat() != null && !FORMATS.contains(request.getFormat().toLowerCase())) {
+            throw new IllegalArgumentException("Unsupported format: " + request.getFormat());
+        }
+        if (request.getReportType() == null || !List.of("STUDENT_PROGRESS", "TASK_STATISTICS",
+                "GRADES_OVERVIEW", "COMPREHENSIVE").contains(request.getReportType())) {
+            throw new IllegalArgumentException("Unknown report type: " + request.getReportType());
+        }
+        if (request.getGroupId() == null) {
+            throw new IllegalArgumentException("Group is not specified");
+        }
+        if (!"all".equals(request.getGroupId())) {
+            Integer.parseInt(request.getGroupId());
+        }
+        if ("csv".equalsIgnoreCase(request.getFormat()) && "COMPREHENSIVE".equals(request.getReportType())) {
+            throw new IllegalArgumentException("COMPREHENSIVE report has several tables, use ndjson instead of csv");
+        }
+    }
 
-        // Генерируем данные в зависимости от типа отчета
-        switch (request.getReportType()) {
-            case "STUDENT_PROGRESS":
-                generateStudentProgressReport(sheet, request, headerStyle, dataStyle, rowNum);
-                break;
-            case "TASK_STATISTICS":
-                generateTaskStatisticsReport(sheet, request, headerStyle, dataStyle, rowNum);
-                break;
-            case "GRADES_OVERVIEW":
-                generateGradesOverviewReport(sheet, request, headerStyle, dataStyle, rowNum);
-                break;
-            case "COMPREHENSIVE":
-                generateComprehensiveReport(sheet, request, headerStyle, dataStyle, rowNum);
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown report type: " + request.getReportType());
+    public String getContentType(ReportRequestDTO request) {
+        if (isRowFormat(request) && isGzip(request)) {
+            return "application/gzip";
         }
+        String format = request.getFormat() != null ? request.getFormat().toLowerCase() : "excel";
+        return switch (format) {
+            case "doc" -> "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+            case "csv" -> "text/csv; charset=UTF-8";
+            case "ndjson" -> "application/x-ndjson";
+            default -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        };
+    }
 
-        // Автоматическая ширина колонок
-        for (int i = 0; i < 10; i++) {
-            sheet.autoSizeColumn(i);
+    public String getFileName(ReportRequestDTO request) {
+        String format = request.getFormat() != null ? request.getFormat().toLowerCase() : "excel";
+        String fileExtension = switch (format) {
+            case "doc" -> "docx";
+            case "csv" -> "csv";
+            case "ndjson" -> "ndjson";
+            default -> "xlsx";
+        };
+        if (isRowFormat(request) && isGzip(request)) {
+            fileExtension += ".gz";
         }
+        String reportType = request.getReportType().toLowerCase().replace("_", "-");
+        String timestamp = LocalDate.now().toString();
+        return String.format("report_%s_%s.%s", reportType, timestamp, fileExtension);
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
+    /**
+     * Потоковая генерация Excel прямо в выходной поток.
+     * Строки пишутся через SXSSF с ограниченным окном, данные читаются курсором,
+     * поэтому память не растёт с числом строк отчёта.
+     * Пока не записан весь файл, в out ничего не отправляется - ошибки в данных можно вернуть кодом ответа.
+     */
+    public void writeExcelReport(ReportRequestDTO request, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(excelRowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            // Стили
+            CellStyle headerStyle = createHeaderStyle(workbook);
+            CellStyle titleStyle = createTitleStyle(workbook);
+
+            if ("COMPREHENSIVE".equals(request.getReportType())) {
+                // Лист на каждую секцию, данные секций загружаются параллельно
+                Set<String> sheetNames = new HashSet<>();
+                forEachComprehensiveSection(request, data -> {
+                    String sectionTitle = getSectionTitle(data.section());
+                    ExcelSheetWriter writer = new ExcelSheetWriter(
+                            workbook.createSheet(uniqueSheetName(sectionTitle, sheetNames)));
+                    writeSheetTitle(writer, getReportTitle(request) + ": " + sectionTitle, titleStyle);
+                    switch (data.section().reportType()) {
+                        case "STUDENT_PROGRESS" ->
+                                fillStudentProgressSheet(writer, request, data.rows(), headerStyle);
+                        case "GRADES_OVERVIEW" -> fillGradesOverviewSheet(writer, data.rows(), headerStyle);
+                        default -> fillTaskStatisticsSheet(writer, data.statistics(), headerStyle);
+                    }
+                    writer.applyColumnWidths();
+                });
+            } else {
+                SXSSFSheet sheet = workbook.createSheet("Отчет");
+                ExcelSheetWriter writer = new ExcelSheetWriter(sheet);
+                writeSheetTitle(writer, getReportTitle(request), titleStyle);
+
+                // Генерируем данные в зависимости от типа отчета
+                switch (request.getReportType()) {
+                    case "STUDENT_PROGRESS":
+                        try (Stream<ReportRow> rows = streamReportRows(request, false)) {
+                            fillStudentProgressSheet(writer, request, rows.iterator(), headerStyle);
+                        }
+                        break;
+                    case "TASK_STATISTICS":
+                        fillTaskStatisticsSheet(writer,
+                                getTaskStatistics(getGroupId(request), getStartDate(request.getPeriod())), headerStyle);
+                        break;
+                    case "GRADES_OVERVIEW":
+                        // только оценённые назначения - фильтр в запросе
+                        try (Stream<ReportRow> rows = streamReportRows(request, true)) {
+                            fillGradesOverviewSheet(writer, rows.iterator(), headerStyle);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown report type: " + request.getReportType());
+                }
+
+                // Ширина по самому длинному значению, посчитанному при записи (вместо autoSizeColumn)
+                writer.applyColumnWidths();
+            }
 
-        return outputStream.toByteArray();
+            workbook.write(out);
+        } finally {
+            // удаляем временные файлы SXSSF
+            workbook.dispose();
+            workbook.close();
+        }
     }
 
-    private void generateStudentProgressReport(Sheet sheet, ReportRequestDTO request,
-                                               CellStyle headerStyle, CellStyle dataStyle, int startRow) {
-        int rowNum = startRow;
-        Row headerRow = sheet.createRow(rowNum++);
+    // Заголовок (в расчёт ширины колонок не входит - ячейка объединена на несколько колонок) и пустая строка
+    private void writeSheetTitle(ExcelSheetWriter writer, String title, CellStyle titleStyle) {
+        Cell titleCell = writer.nextRow().createCell(0);
+        titleCell.setCellValue(title);
+        titleCell.setCellStyle(titleStyle);
+        writer.getSheet().addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
+        writer.skipRow();
+    }
 
+    private void fillStudentProgressSheet(ExcelSheetWriter writer, ReportRequestDTO request,
+                                          Iterator<ReportRow> rows, CellStyle headerStyle) {
         List<String> headers = new ArrayList<>(Arrays.asList("Студент", "Группа", "Задача", "Статус"));
         if (request.getIncludeProgress() != null && request.getIncludeProgress()) {
             headers.add("Прогресс");
@@ -114,129 +279,170 @@ public class ReportService {
         if (request.getIncludeComments() != null && request.getIncludeComments()) {
             headers.add("Комментарий");
         }
+        writer.headerRow(headers, headerStyle);
 
-        for (int i = 0; i < headers.size(); i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers.get(i));
-            cell.setCellStyle(headerStyle);
-        }
-
-        List<TaskAssignment> assignments = getFilteredAssignments(request);
-
-        for (TaskAssignment assignment : assignments) {
-            Row row = sheet.createRow(rowNum++);
+        while (rows.hasNext()) {
+            ReportRow reportRow = rows.next();
+            Row row = writer.nextRow();
             int colNum = 0;
 
-            row.createCell(colNum++).setCellValue(assignment.getUser().getUsername());
-            row.createCell(colNum++).setCellValue(getGroupName(assignment.getUser().getId()));
-            row.createCell(colNum++).setCellValue(assignment.getTask().getTitle());
-            row.createCell(colNum++).setCellValue(translateStatus(assignment.getStatus()));
+            writer.cell(row, colNum++, reportRow.getUsername());
+            writer.cell(row, colNum++, groupName(reportRow));
+            writer.cell(row, colNum++, reportRow.getTaskTitle());
+            writer.cell(row, colNum++, translateStatus(reportRow.getStatus()));
 
             if (request.getIncludeProgress() != null && request.getIncludeProgress()) {
-                row.createCell(colNum++).setCellValue(getProgress(assignment));
+                writer.cell(row, colNum++, getProgress(reportRow.getStatus()));
             }
             if (request.getIncludeDeadlines() != null && request.getIncludeDeadlines()) {
-                row.createCell(colNum++).setCellValue(
-                        assignment.getTask().getDeadline() != null ?
-                                assignment.getTask().getDeadline().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
+                writer.cell(row, colNum++,
+                        reportRow.getDeadline() != null ?
+                                reportRow.getDeadline().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
                                 "Нет дедлайна"
                 );
             }
             if (request.getIncludeGrades() != null && request.getIncludeGrades()) {
-                row.createCell(colNum++).setCellValue(
-                        assignment.getGrade() != null ? assignment.getGrade().toString() : "Нет оценки"
+                writer.cell(row, colNum++,
+                        reportRow.getGrade() != null ? reportRow.getGrade().toString() : "Нет оценки"
                 );
             }
             if (request.getIncludeComments() != null && request.getIncludeComments()) {
-                row.createCell(colNum++).setCellValue(
-                        assignment.getTeacherComment() != null ? assignment.getTeacherComment() : "Нет комментария"
+                writer.cell(row, colNum++,
+                        reportRow.getTeacherComment() != null ? reportRow.getTeacherComment() : "Нет комментария"
                 );
             }
         }
     }
 
-    private void generateTaskStatisticsReport(Sheet sheet, ReportRequestDTO request,
-                                              CellStyle headerStyle, CellStyle dataStyle, int startRow) {
-        int rowNum = startRow;
-        Row headerRow = sheet.createRow(rowNum++);
-
-        List<String> headers = Arrays.asList("Задача", "Автор", "Дедлайн", "Всего назначений",
-                "Выполнено", "В работе", "Не начато", "Просрочено");
+    private void fillTaskStatisticsSheet(ExcelSheetWriter writer, List<TaskStatistics> statistics,
+                                         CellStyle headerStyle) {
+        writer.headerRow(Arrays.asList("Задача", "Автор", "Дедлайн", "Всего назначений",
+                "Выполнено", "В работе", "Не начато", "Просрочено"), headerStyle);
 
-        for (int i = 0; i < headers.size(); i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers.get(i));
-            cell.setCellStyle(headerStyle);
+        for (TaskStatistics stats : statistics) {
+            Row row = writer.nextRow();
+            int colNum = 0;
+            writer.cell(row, colNum++, stats.title());
+            writer.cell(row, colNum++, stats.authorName() != null ? stats.authorName() : "Неизвестно");
+            writer.cell(row, colNum++,
+                    stats.deadline() != null ?
+                            stats.deadline().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
+                            "Нет дедлайна"
+            );
+            writer.cell(row, colNum++, stats.total());
+            writer.cell(row, colNum++, stats.completed());
+            writer.cell(row, colNum++, stats.inProgress());
+            writer.cell(row, colNum++, stats.notStarted());
+            writer.cell(row, colNum++, stats.overdue());
         }
+    }
 
-        List<Task> tasks = getFilteredTasks(request);
-
-        for (Task task : tasks) {
-            Row row = sheet.createRow(rowNum++);
-            List<TaskAssignment> assignments = taskAssignmentRepository.findByTask(task);
-
-            long completed = assignments.stream().filter(ta -> "COMPLETED".equals(ta.getStatus())).count();
-            long inProgress = assignments.stream().filter(ta -> "IN_PROGRESS".equals(ta.getStatus())).count();
-            long notStarted = assignments.stream().filter(ta -> "NOT_STARTED".equals(ta.getStatus())).count();
-            long overdue = assignments.stream().filter(ta -> "OVERDUE".equals(ta.getStatus())).count();
+    private void fillGradesOverviewSheet(ExcelSheetWriter writer, Iterator<ReportRow> rows, CellStyle headerStyle) {
+        writer.headerRow(Arrays.asList("Студент", "Группа", "Задача", "Оценка", "Комментарий", "Дата оценки"),
+                headerStyle);
 
+        while (rows.hasNext()) {
+            ReportRow reportRow = rows.next();
+            Row row = writer.nextRow();
             int colNum = 0;
-            row.createCell(colNum++).setCellValue(task.getTitle());
-            row.createCell(colNum++).setCellValue(task.getAuthor() != null ? task.getAuthor().getUsername() : "Неизвестно");
-            row.createCell(colNum++).setCellValue(
-                    task.getDeadline() != null ?
-                            task.getDeadline().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
-                            "Нет дедлайна"
+
+            writer.cell(row, colNum++, reportRow.getUsername());
+            writer.cell(row, colNum++, groupName(reportRow));
+            writer.cell(row, colNum++, reportRow.getTaskTitle());
+            writer.cell(row, colNum++, reportRow.getGrade());
+            writer.cell(row, colNum++,
+                    reportRow.getTeacherComment() != null ? reportRow.getTeacherComment() : "Нет комментария"
+            );
+            writer.cell(row, colNum++,
+                    reportRow.getUpdatedAt() != null ?
+                            reportRow.getUpdatedAt().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
+                            "Не указано"
             );
-            row.createCell(colNum++).setCellValue(assignments.size());
-            row.createCell(colNum++).setCellValue(completed);
-            row.createCell(colNum++).setCellValue(inProgress);
-            row.createCell(colNum++).setCellValue(notStarted);
-            row.createCell(colNum++).setCellValue(overdue);
         }
     }
 
-    private void generateGradesOverviewReport(Sheet sheet, ReportRequestDTO request,
-                                              CellStyle headerStyle, CellStyle dataStyle, int startRow) {
-        int rowNum = startRow;
-        Row headerRow = sheet.createRow(rowNum++);
+    // Имя листа Excel: не длиннее 31 символа, без запрещённых символов и уникальное в книге
+    private String uniqueSheetName(String title, Set<String> used) {
+        String name = WorkbookUtil.createSafeSheetName(title);
+        for (int i = 2; !used.add(name.toLowerCase()); i++) {
+            String suffix = " (" + i + ")";
+            String base = WorkbookUtil.createSafeSheetName(title);
+            name = base.substring(0, Math.min(base.length(), 31 - suffix.length())) + suffix;
+        }
+        return name;
+    }
 
-        List<String> headers = Arrays.asList("Студент", "Группа", "Задача", "Оценка", "Комментарий", "Дата оценки");
+    /**
+     * CSV / NDJSON: строки идут из курсора БД прямо в выходной поток, без POI и промежуточных списков.
+     * Набор колонок фиксированный (флаги include* не учитываются), значения - в машинном виде:
+     * коды статусов, даты в ISO-8601. В NDJSON у каждой строки есть поле section - тип данных,
+     * поэтому COMPREHENSIVE отдаёт все три набора в одном файле. gzip сжимает поток на лету.
+     */
+    public void writeRowsReport(ReportRequestDTO request, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = isGzip(request) ? new GZIPOutputStream(out, 64 * 1024) : null;
+        OutputStream target = gzip != null ? gzip : out;
+        RowStreamWriter writer = "csv".equalsIgnoreCase(request.getFormat())
+                ? RowStreamWriter.csv(target)
+                : RowStreamWriter.ndjson(target);
 
-        for (int i = 0; i < headers.size(); i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers.get(i));
-            cell.setCellStyle(headerStyle);
+        switch (request.getReportType()) {
+            case "STUDENT_PROGRESS" -> writeStudentProgressRows(writer, request);
+            case "TASK_STATISTICS" -> writeTaskStatisticsRows(writer, request);
+            case "GRADES_OVERVIEW" -> writeGradesOverviewRows(writer, request);
+            case "COMPREHENSIVE" -> {
+                writeStudentProgressRows(writer, request);
+                writeTaskStatisticsRows(writer, request);
+                writeGradesOverviewRows(writer, request);
+            }
+            default -> throw new IllegalArgumentException("Unknown report type: " + request.getReportType());
         }
 
-        List<TaskAssignment> assignments = getFilteredAssignments(request)
-                .stream()
-                .filter(ta -> ta.getGrade() != null)
-                .collect(Collectors.toList());
+        writer.flush();
+        // finish, а не close: выходной поток закрывает тот, кто его открыл
+        if (gzip != null) {
+            gzip.finish();
+        }
+    }
 
-        for (TaskAssignment assignment : assignments) {
-            Row row = sheet.createRow(rowNum++);
-            int colNum = 0;
+    private void writeStudentProgressRows(RowStreamWriter writer, ReportRequestDTO request) throws IOException {
+        writer.section("STUDENT_PROGRESS", List.of("student", "group", "task", "status", "deadline", "grade",
+                "teacher_comment", "updated_at"));
+        try (Stream<ReportRow> rows = streamReportRows(request, false)) {
+            for (Iterator<ReportRow> it = rows.iterator(); it.hasNext(); ) {
+                ReportRow row = it.next();
+                writer.row(row.getUsername(), row.getGroupName(), row.getTaskTitle(), row.getStatus(),
+                        row.getDeadline(), row.getGrade(), row.getTeacherComment(), row.getUpdatedAt());
+            }
+        }
+    }
 
-            row.createCell(colNum++).setCellValue(assignment.getUser().getUsername());
-            row.createCell(colNum++).setCellValue(getGroupName(assignment.getUser().getId()));
-            row.createCell(colNum++).setCellValue(assignment.getTask().getTitle());
-            row.createCell(colNum++).setCellValue(assignment.getGrade());
-            row.createCell(colNum++).setCellValue(
-                    assignment.getTeacherComment() != null ? assignment.getTeacherComment() : "Нет комментария"
-            );
-            row.createCell(colNum++).setCellValue(
-                    assignment.getUpdated_At() != null ?
-                            assignment.getUpdated_At().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
-                            "Не указано"
-            );
+    private void writeTaskStatisticsRows(RowStreamWriter writer, ReportRequestDTO request) throws IOException {
+        writer.section("TASK_STATISTICS", List.of("task", "author", "deadline", "total", "completed",
+                "in_progress", "not_started", "overdue"));
+        for (TaskStatistics stats : getTaskStatistics(getGroupId(request), getStartDate(request.getPeriod()))) {
+            writer.row(stats.title(), stats.authorName(), stats.deadline(), stats.total(), stats.completed(),
+                    stats.inProgress(), stats.notStarted(), stats.overdue());
         }
     }
 
-    private void generateComprehensiveReport(Sheet sheet, ReportRequestDTO request,
-                                             CellStyle headerStyle, CellStyle dataStyle, int startRow) {
-        // Комплексный отчет включает все данные
-        generateStudentProgressReport(sheet, request, headerStyle, dataStyle, startRow);
+    private void writeGradesOverviewRows(RowStreamWriter writer, ReportRequestDTO request) throws IOException {
+        writer.section("GRADES_OVERVIEW", List.of("student", "group", "task", "grade", "teacher_comment",
+                "graded_at"));
+        try (Stream<ReportRow> rows = streamReportRows(request, true)) {
+            for (Iterator<ReportRow> it = rows.iterator(); it.hasNext(); ) {
+                ReportRow row = it.next();
+                writer.row(row.getUsername(), row.getGroupName(), row.getTaskTitle(), row.getGrade(),
+                        row.getTeacherComment(), row.getUpdatedAt());
+            }
+        }
+    }
+
+    private boolean isRowFormat(ReportRequestDTO request) {
+        return "csv".equalsIgnoreCase(request.getFormat()) || "ndjson".equalsIgnoreCase(request.getFormat());
+    }
+
+    private boolean isGzip(ReportRequestDTO request) {
+        return Boolean.TRUE.equals(request.getGzip());
     }
 
     private byte[] generateDocReport(ReportRequestDTO request) throws IOException {
@@ -256,16 +462,32 @@ public class ReportService {
         // Генерируем данные в зависимости от типа отчета
         switch (request.getReportType()) {
             case "STUDENT_PROGRESS":
-                generateStudentProgressDoc(document, request);
+                try (Stream<ReportRow> rows = streamReportRows(request, false)) {
+                    renderStudentProgressDoc(document, request, "Отчет по прогрессу студентов", rows.iterator());
+                }
                 break;
             case "TASK_STATISTICS":
-                generateTaskStatisticsDoc(document, request);
+                renderTaskStatisticsDoc(document, "Статистика по задачам",
+                        getTaskStatistics(getGroupId(request), getStartDate(request.getPeriod())));
                 break;
             case "GRADES_OVERVIEW":
-                generateGradesOverviewDoc(document, request);
+                // только оценённые назначения - фильтр в запросе
+                try (Stream<ReportRow> rows = streamReportRows(request, true)) {
+                    renderGradesOverviewDoc(document, "Обзор оценок", rows.iterator());
+                }
                 break;
             case "COMPREHENSIVE":
-                generateComprehensiveDoc(document, request);
+                // Раздел на каждую секцию, данные секций загружаются параллельно
+                forEachComprehensiveSection(request, data -> {
+                    String sectionTitle = getSectionTitle(data.section());
+                    switch (data.section().reportType()) {
+                        case "STUDENT_PROGRESS" ->
+                                renderStudentProgressDoc(document, request, sectionTitle, data.rows());
+                        case "GRADES_OVERVIEW" -> renderGradesOverviewDoc(document, sectionTitle, data.rows());
+                        default -> renderTaskStatisticsDoc(document, sectionTitle, data.statistics());
+                    }
+                    document.createParagraph();
+                });
                 break;
             default:
                 throw new IllegalArgumentException("Unknown report type: " + request.getReportType());
@@ -278,177 +500,322 @@ public class ReportService {
         return outputStream.toByteArray();
     }
 
-    private void generateStudentProgressDoc(XWPFDocument document, ReportRequestDTO request) {
+    private void renderSectionHeading(XWPFDocument document, String title) {
         XWPFParagraph para = document.createParagraph();
         XWPFRun run = para.createRun();
-        run.setText("Отчет по прогрессу студентов");
+        run.setText(title);
         run.setBold(true);
         run.setFontSize(14);
 
         document.createParagraph();
+    }
 
-        List<TaskAssignment> assignments = getFilteredAssignments(request);
+    private void renderStudentProgressDoc(XWPFDocument document, ReportRequestDTO request, String title,
+                                          Iterator<ReportRow> rows) {
+        renderSectionHeading(document, title);
 
-        for (TaskAssignment assignment : assignments) {
-            para = document.createParagraph();
-            run = para.createRun();
+        while (rows.hasNext()) {
+            ReportRow reportRow = rows.next();
+            XWPFParagraph para = document.createParagraph();
+            XWPFRun run = para.createRun();
             run.setText(String.format("Студент: %s | Группа: %s | Задача: %s | Статус: %s",
-                    assignment.getUser().getUsername(),
-                    getGroupName(assignment.getUser().getId()),
-                    assignment.getTask().getTitle(),
-                    translateStatus(assignment.getStatus())
+                    reportRow.getUsername(),
+                    groupName(reportRow),
+                    reportRow.getTaskTitle(),
+                    translateStatus(reportRow.getStatus())
             ));
 
-            if (request.getIncludeGrades() != null && request.getIncludeGrades() && assignment.getGrade() != null) {
+            if (request.getIncludeGrades() != null && request.getIncludeGrades() && reportRow.getGrade() != null) {
                 run.addBreak();
-                run.setText(String.format("Оценка: %d", assignment.getGrade()));
+                run.setText(String.format("Оценка: %d", reportRow.getGrade()));
             }
 
-            if (request.getIncludeComments() != null && request.getIncludeComments() && assignment.getTeacherComment() != null) {
+            if (request.getIncludeComments() != null && request.getIncludeComments() && reportRow.getTeacherComment() != null) {
                 run.addBreak();
-                run.setText(String.format("Комментарий: %s", assignment.getTeacherComment()));
+                run.setText(String.format("Комментарий: %s", reportRow.getTeacherComment()));
             }
 
             document.createParagraph();
         }
     }
 
-    private void generateTaskStatisticsDoc(XWPFDocument document, ReportRequestDTO request) {
-        XWPFParagraph para = document.createParagraph();
-        XWPFRun run = para.createRun();
-        run.setText("Статистика по задачам");
-        run.setBold(true);
-        run.setFontSize(14);
+    private void renderTaskStatisticsDoc(XWPFDocument document, String title, List<TaskStatistics> statistics) {
+        renderSectionHeading(document, title);
 
-        document.createParagraph();
+        for (TaskStatistics stats : statistics) {
+            XWPFParagraph para = document.createParagraph();
+            XWPFRun run = para.createRun();
 
-        List<Task> tasks = getFilteredTasks(request);
-
-        for (Task task : tasks) {
-            para = document.createParagraph();
-            run = para.createRun();
-            List<TaskAssignment> assignments = taskAssignmentRepository.findByTask(task);
-
-            long completed = assignments.stream().filter(ta -> "COMPLETED".equals(ta.getStatus())).count();
-            long inProgress = assignments.stream().filter(ta -> "IN_PROGRESS".equals(ta.getStatus())).count();
-            long notStarted = assignments.stream().filter(ta -> "NOT_STARTED".equals(ta.getStatus())).count();
-            long overdue = assignments.stream().filter(ta -> "OVERDUE".equals(ta.getStatus())).count();
-
-            run.setText(String.format("Задача: %s", task.getTitle()));
+            run.setText(String.format("Задача: %s", stats.title()));
             run.addBreak();
             run.setText(String.format("Автор: %s | Дедлайн: %s",
-                    task.getAuthor() != null ? task.getAuthor().getUsername() : "Неизвестно",
-                    task.getDeadline() != null ?
-                            task.getDeadline().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
+                    stats.authorName() != null ? stats.authorName() : "Неизвестно",
+                    stats.deadline() != null ?
+                            stats.deadline().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")) :
                             "Нет дедлайна"
             ));
             run.addBreak();
             run.setText(String.format("Всего назначений: %d | Выполнено: %d | В работе: %d | Не начато: %d | Просрочено: %d",
-                    assignments.size(), completed, inProgress, notStarted, overdue
+                    stats.total(), stats.completed(), stats.inProgress(), stats.notStarted(), stats.overdue()
             ));
 
             document.createParagraph();
         }
     }
 
-    private void generateGradesOverviewDoc(XWPFDocument document, ReportRequestDTO request) {
-        XWPFParagraph para = document.createParagraph();
-        XWPFRun run = para.createRun();
-        run.setText("Обзор оценок");
-        run.setBold(true);
-        run.setFontSize(14);
-
-        document.createParagraph();
-
-        List<TaskAssignment> assignments = getFilteredAssignments(request)
-                .stream()
-                .filter(ta -> ta.getGrade() != null)
-                .collect(Collectors.toList());
+    private void renderGradesOverviewDoc(XWPFDocument document, String title, Iterator<ReportRow> rows) {
+        renderSectionHeading(document, title);
 
-        for (TaskAssignment assignment : assignments) {
-            para = document.createParagraph();
-            run = para.createRun();
+        while (rows.hasNext()) {
+            ReportRow reportRow = rows.next();
+            XWPFParagraph para = document.createParagraph();
+            XWPFRun run = para.createRun();
             run.setText(String.format("Студент: %s | Группа: %s | Задача: %s | Оценка: %d",
-                    assignment.getUser().getUsername(),
-                    getGroupName(assignment.getUser().getId()),
-                    assignment.getTask().getTitle(),
-                    assignment.getGrade()
+                    reportRow.getUsername(),
+                    groupName(reportRow),
+                    reportRow.getTaskTitle(),
+                    reportRow.getGrade()
             ));
 
-            if (assignment.getTeacherComment() != null) {
+            if (reportRow.getTeacherComment() != null) {
                 run.addBreak();
-                run.setText(String.format("Комментарий: %s", assignment.getTeacherComment()));
+                run.setText(String.format("Комментарий: %s", reportRow.getTeacherComment()));
             }
 
             document.createParagraph();
         }
     }
 
-    private void generateComprehensiveDoc(XWPFDocument document, ReportRequestDTO request) {
-        generateStudentProgressDoc(document, request);
-        document.createParagraph();
-        generateTaskStatisticsDoc(document, request);
-        document.createParagraph();
-        generateGradesOverviewDoc(document, request);
+    // Комплексный отчёт
+
+    /**
+     * Секции комплексного отчёта по порядку: по каждому типу отчёта, для "all" - по каждой группе
+     * и отдельно по студентам без группы. Секции загружаются параллельно на пуле reports.comprehensive.workers,
+     * каждая в своей read-only транзакции, а в документ передаются строго по порядку; вперёд загружается
+     * не больше prefetch секций. Строки секции воркер читает курсором в очередь на sectionBufferRows строк
+     * и ждёт, пока писатель их заберёт, поэтому в памяти не больше prefetch * sectionBufferRows строк,
+     * а не секции целиком.
+     */
+    private void forEachComprehensiveSection(ReportRequestDTO request, SectionWriter sectionWriter) throws IOException {
+        LocalDateTime since = getStartDate(request.getPeriod());
+        List<ReportSection> sections = getComprehensiveSections(request);
+
+        Deque<SectionLoad> pending = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < sections.size() || !pending.isEmpty()) {
+                while (next < sections.size() && pending.size() < sectionPrefetch) {
+                    pending.add(startSection(sections.get(next++), since));
+                }
+                // голова очереди остаётся в pending, пока не записана: при ошибке записи её воркер тоже отменяется
+                SectionLoad load = pending.peek();
+                if (load.rows() != null) {
+                    sectionWriter.write(new SectionData(load.section(),
+                            new SectionRowIterator(load.rows(), load.loader()), List.of()));
+                } else {
+                    sectionWriter.write(new SectionData(load.section(), Collections.emptyIterator(),
+                            awaitSection(load.loader())));
+                }
+                pending.poll();
+            }
+        } finally {
+            pending.forEach(load -> load.loader().cancel(true));
+        }
     }
 
-    // Вспомогательные методы
-
-    private List<TaskAssignment> getFilteredAssignments(ReportRequestDTO request) {
-        LocalDateTime startDate = getStartDate(request.getPeriod());
-        List<TaskAssignment> assignments;
-
+    private List<ReportSection> getComprehensiveSections(ReportRequestDTO request) {
+        List<ReportSection> sections = new ArrayList<>();
         if ("all".equals(request.getGroupId())) {
-            assignments = taskAssignmentRepository.findAll();
+            List<Group> groups = readOnlyTransaction.execute(status -> groupRepository.findAll(Sort.by("name")));
+            for (Group group : groups) {
+                for (String reportType : SECTION_TYPES) {
+                    sections.add(new ReportSection(reportType, group.getId(), group.getName(), false));
+                }
+            }
+            // студенты без группы; статистика по задачам считается по группам, для них её нет
+            sections.add(new ReportSection("STUDENT_PROGRESS", null, "Нет группы", true));
+            sections.add(new ReportSection("GRADES_OVERVIEW", null, "Нет группы", true));
         } else {
             Integer groupId = Integer.parseInt(request.getGroupId());
-            List<Person> students = userGroupRepository.findByGroupId(groupId)
-                    .stream()
-                    .map(UserGroup::getUser)
-                    .collect(Collectors.toList());
-
-            assignments = new ArrayList<>();
-            for (Person student : students) {
-                assignments.addAll(taskAssignmentRepository.findByUser(student));
+            for (String reportType : SECTION_TYPES) {
+                sections.add(new ReportSection(reportType, groupId, null, false));
             }
         }
+        return sections;
+    }
 
-        if (startDate != null) {
-            assignments = assignments.stream()
-                    .filter(ta -> ta.getAssignedAt() != null && ta.getAssignedAt().isAfter(startDate))
-                    .collect(Collectors.toList());
+    private SectionLoad startSection(ReportSection section, LocalDateTime since) {
+        if ("TASK_STATISTICS".equals(section.reportType())) {
+            return new SectionLoad(section, null, sectionExecutor.submit(() ->
+                    readOnlyTransaction.execute(status -> getTaskStatistics(section.groupId(), since))));
         }
+        boolean gradedOnly = "GRADES_OVERVIEW".equals(section.reportType());
+        BlockingQueue<Object> rows = new ArrayBlockingQueue<>(sectionBufferRows);
+        Future<List<TaskStatistics>> loader = sectionExecutor.submit(() -> {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<ReportRow> stream = section.ungrouped()
+                        ? taskAssignmentRepository.streamUngroupedReportRows(since, gradedOnly)
+                        : taskAssignmentRepository.streamReportRows(section.groupId(), since, gradedOnly)) {
+                    stream.forEach(row -> handOff(rows, row));
+                }
+            });
+            handOff(rows, END_OF_SECTION);
+            return List.of();
+        });
+        return new SectionLoad(section, rows, loader);
+    }
 
-        return assignments;
+    // блокирует воркер, пока писатель не освободит место; отмена загрузки прерывает ожидание
+    private void handOff(BlockingQueue<Object> rows, Object row) {
+        try {
+            rows.put(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Загрузка секции отчета отменена");
+        }
+    }
+
+    private <T> T awaitSection(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Генерация отчета прервана", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Не удалось загрузить данные отчета", e.getCause());
+        }
     }
 
-    private List<Task> getFilteredTasks(ReportRequestDTO request) {
-        LocalDateTime startDate = getStartDate(request.getPeriod());
-        List<Task> tasks = taskRepository.findAll();
+    /**
+     * Строки секции из очереди воркера до маркера конца. Если воркер упал, маркера не будет -
+     * тогда пробрасывается его исключение.
+     */
+    private final class SectionRowIterator implements Iterator<ReportRow> {
 
-        if (startDate != null) {
-            tasks = tasks.stream()
-                    .filter(t -> t.getCreatedAt() != null && t.getCreatedAt().isAfter(startDate))
-                    .collect(Collectors.toList());
+        private final BlockingQueue<Object> rows;
+        private final Future<List<TaskStatistics>> loader;
+        private Object next;
+
+        SectionRowIterator(BlockingQueue<Object> rows, Future<List<TaskStatistics>> loader) {
+            this.rows = rows;
+            this.loader = loader;
         }
 
-        if (!"all".equals(request.getGroupId())) {
-            Integer groupId = Integer.parseInt(request.getGroupId());
-            Set<Task> groupTasks = new HashSet<>();
-            List<Person> students = userGroupRepository.findByGroupId(groupId)
-                    .stream()
-                    .map(UserGroup::getUser)
-                    .collect(Collectors.toList());
-
-            for (Person student : students) {
-                taskAssignmentRepository.findByUser(student).stream()
-                        .map(TaskAssignment::getTask)
-                        .forEach(groupTasks::add);
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = take();
+            }
+            return next != END_OF_SECTION;
+        }
+
+        @Override
+        public ReportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-            tasks = tasks.stream().filter(groupTasks::contains).collect(Collectors.toList());
+            ReportRow row = (ReportRow) next;
+            next = null;
+            return row;
         }
 
-        return tasks;
+        private Object take() {
+            try {
+                while (true) {
+                    Object row = rows.poll(SECTION_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (row != null) {
+                        return row;
+                    }
+                    if (loader.isDone()) {
+                        row = rows.poll();
+                        if (row != null) {
+                            return row;
+                        }
+                        awaitSection(loader);
+                        return END_OF_SECTION;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Генерация отчета прервана", e);
+            }
+        }
+    }
+
+    private String getSectionTitle(ReportSection section) {
+        String type = switch (section.reportType()) {
+            case "STUDENT_PROGRESS" -> "Прогресс студентов";
+            case "TASK_STATISTICS" -> "Статистика по задачам";
+            default -> "Обзор оценок";
+        };
+        return section.groupName() != null ? section.groupName() + " - " + type : type;
+    }
+
+    @FunctionalInterface
+    private interface SectionWriter {
+        void write(SectionData data) throws IOException;
+    }
+
+    private record ReportSection(String reportType, Integer groupId, String groupName, boolean ungrouped) {
+    }
+
+    // rows == null - секция статистики, её результат возвращает loader
+    private record SectionLoad(ReportSection section, BlockingQueue<Object> rows,
+                               Future<List<TaskStatistics>> loader) {
+    }
+
+    private record SectionData(ReportSection section, Iterator<ReportRow> rows, List<TaskStatistics> statistics) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sectionExecutor.shutdownNow();
+    }
+
+    // Вспомогательные методы
+
+    private Stream<ReportRow> streamReportRows(ReportRequestDTO request, boolean gradedOnly) {
+        return taskAssignmentRepository.streamReportRows(getGroupId(request), getStartDate(request.getPeriod()), gradedOnly);
+    }
+
+    private Integer getGroupId(ReportRequestDTO request) {
+        return "all".equals(request.getGroupId()) ? null : Integer.parseInt(request.getGroupId());
+    }
+
+    /**
+     * Счётчики по статусам для всех задач отчёта одним GROUP BY-запросом
+     * (строки приходят отсортированными по задаче, по строке на каждый статус)
+     */
+    private List<TaskStatistics> getTaskStatistics(Integer groupId, LocalDateTime since) {
+        List<TaskStatusCountRow> rows = taskRepository.findTaskStatusCounts(since, groupId);
+
+        List<TaskStatistics> result = new ArrayList<>();
+        int i = 0;
+        while (i < rows.size()) {
+            TaskStatusCountRow first = rows.get(i);
+            long completed = 0, inProgress = 0, notStarted = 0, overdue = 0, total = 0;
+            for (; i < rows.size() && rows.get(i).getTaskId().equals(first.getTaskId()); i++) {
+                TaskStatusCountRow row = rows.get(i);
+                long count = row.getAssignmentCount();
+                total += count;
+                if (row.getStatus() == null) {
+                    continue;
+                }
+                switch (row.getStatus()) {
+                    case "COMPLETED" -> completed = count;
+                    case "IN_PROGRESS" -> inProgress = count;
+                    case "NOT_STARTED" -> notStarted = count;
+                    case "OVERDUE" -> overdue = count;
+                    default -> { }
+                }
+            }
+            result.add(new TaskStatistics(first.getTitle(), first.getAuthorName(), first.getDeadline(),
+                    total, completed, inProgress, notStarted, overdue));
+        }
+        return result;
     }
 
     private LocalDateTime getStartDate(String period) {
@@ -465,15 +832,8 @@ public class ReportService {
         };
     }
 
-    private String getGroupName(Integer userId) {
-        try {
-            UserGroup userGroup = userGroupRepository.findUserGroupByUser(
-                    peopleRepository.findById(userId).orElse(null)
-            );
-            return userGroup != null ? userGroup.getGroup().getName() : "Нет группы";
-        } catch (Exception e) {
-            return "Нет группы";
-        }
+    private String groupName(ReportRow row) {
+        return row.getGroupName() != null ? row.getGroupName() : "Нет группы";
     }
 
     private String translateStatus(String status) {
@@ -486,12 +846,12 @@ public class ReportService {
         };
     }
 
-    private String getProgress(TaskAssignment assignment) {
-        if ("COMPLETED".equals(assignment.getStatus())) {
+    private String getProgress(String status) {
+        if ("COMPLETED".equals(status)) {
             return "100%";
-        } else if ("IN_PROGRESS".equals(assignment.getStatus())) {
+        } else if ("IN_PROGRESS".equals(status)) {
             return "50%";
-        } else if ("NOT_STARTED".equals(assignment.getStatus())) {
+        } else if ("NOT_STARTED".equals(status)) {
             return "0%";
         } else {
             return "0%";
@@ -518,6 +878,10 @@ public class ReportService {
         return String.format("%s %s", type, period);
     }
 
+    private record TaskStatistics(String title, String authorName, LocalDateTime deadline, long total,
+                                  long completed, long inProgress, long notStarted, long overdue) {
+    }
+
     private CellStyle createHeaderStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         Font font = workbook.createFont();
@@ -0,0 +1,81 @@
+package ru.danon.spring.ToDo.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danon.spring.ToDo.repositories.jpa.ScheduledNotificationRepository;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Обслуживание месячных секций scheduled_notifications (V4__Scheduled_notifications_partitioning.sql).
+ * Заранее создаёт секции на ближайшие месяцы и убирает секции старше срока хранения целиком:
+ * DROP TABLE вместо построчного DELETE, без раздувания таблицы и последующего VACUUM.
+ * С archive=true секция не удаляется, а отсоединяется в отдельную таблицу для выгрузки.
+ * Работу выполняет один узел - остальные не получают advisory-блокировку и пропускают запуск.
+ */
+@Service
+@Slf4j
+public class ScheduledNotificationRetentionService {
+
+    private final ScheduledNotificationRepository scheduledNotificationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean archive;
+
+    @Autowired
+    public ScheduledNotificationRetentionService(ScheduledNotificationRepository scheduledNotificationRepository,
+                                                 TransactionTemplate transactionTemplate,
+                                                 @Value("${notifications.partitions.months-ahead:3}") int monthsAhead,
+                                                 @Value("${notifications.retention.months:6}") int retentionMonths,
+                                                 @Value("${notifications.retention.archive:false}") boolean archive) {
+        this.scheduledNotificationRepository = scheduledNotificationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archive = archive;
+    }
+
+    @Scheduled(cron = "${notifications.retention.cron:0 30 3 * * *}")
+    public void maintainPartitions() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> maintain());
+        } catch (Exception e) {
+            log.error("Scheduled notifications partition maintenance failed", e);
+        }
+    }
+
+    private void maintain() {
+        if (!scheduledNotificationRepository.isPartitioned()) {
+            log.debug("scheduled_notifications is not partitioned, maintenance skipped");
+            return;
+        }
+        if (!scheduledNotificationRepository.tryLockPartitionMaintenance()) {
+            log.debug("Partition maintenance is running on another node");
+            return;
+        }
+
+        YearMonth current = YearMonth.now();
+        int created = scheduledNotificationRepository.ensurePartitions(current, current.plusMonths(monthsAhead));
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        List<YearMonth> expired = scheduledNotificationRepository.findPartitionMonths().stream()
+                .filter(month -> month.isBefore(oldestKept))
+                .toList();
+        for (YearMonth month : expired) {
+            scheduledNotificationRepository.removePartition(month, archive);
+        }
+        // старые строки, попавшие в DEFAULT-секцию мимо месячных
+        int orphaned = scheduledNotificationRepository.deleteUnpartitionedBefore(oldestKept.atDay(1).atStartOfDay());
+
+        if (created > 0 || !expired.isEmpty() || orphaned > 0) {
+            log.info("Scheduled notifications partitions: {} created, {} {} ({}), {} rows removed from default",
+                    created, expired.size(), archive ? "archived" : "dropped", expired, orphaned);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ru.danon.spring.ToDo.services;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.danon.spring.ToDo.cache.TagCache;
 import ru.danon.spring.ToDo.models.Tag;
 import ru.danon.spring.ToDo.models.Task;
 import ru.danon.spring.ToDo.models.TaskTag;
@@ -12,6 +13,7 @@ import ru.danon.spring.ToDo.repositories.jpa.TaskTagRepository;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,12 +21,18 @@ public class TagService {
     private final TagRepository tagRepository;
     private final TaskRepository taskRepository;
     private final TaskTagRepository taskTagRepository;
+    private final TagCache tagCache;
 
     @Autowired
-    public TagService(TagRepository tagRepository, TaskRepository taskRepository, TaskTagRepository taskTagRepository) {
+    public TagService(TagRepository tagRepository, TaskRepository taskRepository, TaskTagRepository taskTagRepository, TagCache tagCache) {
         this.tagRepository = tagRepository;
         this.taskRepository = taskRepository;
         this.taskTagRepository = taskTagRepository;
+        this.tagCache = tagCache;
+    }
+
+    public Optional<Tag> findByName(String name) {
+        return tagCache.findByName(name, () -> tagRepository.findByName(name));
     }
 
     public List<Tag> getAllTags(){
@@ -33,13 +41,14 @@ public class TagService {
 
     @Transactional
     public void createTag(Tag tag) {
-        if (tagRepository.findByName(tag.getName()).isPresent()) {
+        if (findByName(tag.getName()).isPresent()) {
             throw new RuntimeException("Тег уже существует: " + tag);
         }
 
         Tag newTag = new Tag();
         newTag.setName(tag.getName());
         tagRepository.save(newTag);
+        tagCache.evict(newTag.getName());
     }
 
     @Transactional
@@ -60,11 +69,13 @@ public class TagService {
                 .orElseThrow(() -> new RuntimeException("Задача с ID " + taskId + " не найдена"));
 
         // Проверяем, существует ли тег
-        Tag tag = tagRepository.findByName(name)
+        Tag tag = findByName(name)
                 .orElseGet(() -> {
                     Tag newTag = new Tag();
                     newTag.setName(name);
-                    return tagRepository.save(newTag);
+                    Tag saved = tagRepository.save(newTag);
+                    tagCache.evict(name);
+                    return saved;
                 });
 
         // Проверяем, не добавлен ли уже этот тег к задаче
@@ -86,7 +97,7 @@ public class TagService {
 
     public List<Tag> getTaskTags(Integer taskId) {
         try {
-            return taskTagRepository.findByTaskId(taskId)
+            return taskTagRepository.findTaskTagsWithTagsByTaskId(taskId)
                     .stream()
                     .map(TaskTag::getTag)
                     .collect(Collectors.toList());
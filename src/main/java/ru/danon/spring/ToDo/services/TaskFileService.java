@@ -10,6 +10,7 @@ import ru.danon.spring.ToDo.models.TaskFile;
 import ru.danon.spring.ToDo.repositories.jpa.TaskFileRepository;
 import ru.danon.spring.ToDo.repositories.jpa.TaskRepository;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -48,6 +49,41 @@ public class TaskFileService {
         return taskFileRepository.save(taskFile);
     }
 
+    /**
+     * Потоковая загрузка файла задачи без multipart. Транзакция не открывается на время передачи:
+     * сначала файл уходит в MinIO, потом одной записью сохраняются метаданные
+     */
+    public TaskFile uploadTaskFileStream(Integer taskId, InputStream content, String fileName, String contentType,
+                                         Authentication authentication) {
+        Person user = peopleService.findByUsername(authentication.getName()).orElseThrow(
+                () -> new RuntimeException("User not found"));
+        if (!taskRepository.existsById(taskId)) {
+            throw new RuntimeException("Задача не найдена");
+        }
+        fileStorageService.validateFileName(fileName, contentType);
+
+        String storedFileName = fileStorageService.generateFileName(fileName);
+        String filePath = String.format("tasks/%d/task-files/%s", taskId, storedFileName);
+        long size = fileStorageService.uploadStream(content, filePath, contentType);
+
+        TaskFile taskFile = new TaskFile();
+        taskFile.setTask(taskRepository.getReferenceById(taskId));
+        taskFile.setOriginalFileName(fileName);
+        taskFile.setStoredFileName(storedFileName);
+        taskFile.setFilePath(filePath);
+        taskFile.setFileSize(size);
+        taskFile.setFileType(contentType);
+        taskFile.setUploadedBy(user);
+        taskFile.setUploadedAt(LocalDateTime.now());
+
+        try {
+            return taskFileRepository.save(taskFile);
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(filePath);
+            throw e;
+        }
+    }
+
     public List<TaskFile> getTaskFiles(Integer taskId) {
         return taskFileRepository.findByTaskId(taskId);
     }
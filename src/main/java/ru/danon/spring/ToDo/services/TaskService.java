@@ -1,54 +1,76 @@
 package ru.danon.spring.ToDo.services;
 
-import org.modelmapper.ModelMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.repository.Modifying;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import ru.danon.spring.ToDo.dto.*;
+import ru.danon.spring.ToDo.events.DashboardStatsChangedEvent;
+import ru.danon.spring.ToDo.events.NotificationEvent;
+import ru.danon.spring.ToDo.events.TaskDeadlineChangedEvent;
 import ru.danon.spring.ToDo.models.*;
 import ru.danon.spring.ToDo.models.id.TaskAssignmentId;
 import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
 import ru.danon.spring.ToDo.repositories.jpa.TaskRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskSpecifications;
 import ru.danon.spring.ToDo.repositories.jpa.TaskTagRepository;
+import ru.danon.spring.ToDo.repositories.jpa.projections.MyTaskRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.SolutionFileRow;
+import ru.danon.spring.ToDo.repositories.jpa.projections.StatusCountRow;
+import ru.danon.spring.ToDo.util.KeysetCursor;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 @Transactional(readOnly = true)
 public class TaskService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    // статусы, которые реально пишутся в task_assignments (TaskStatus с ними не совпадает)
+    private static final List<String> ASSIGNMENT_STATUSES = List.of("NOT_STARTED", "IN_PROGRESS", "COMPLETED", "OVERDUE");
+
     private final PeopleService peopleService;
     private final GroupService groupService;
     private final TaskRepository taskRepository;
     private final TaskTagRepository taskTagRepository;
     private final TaskAssignmentRepository taskAssignmentRepository;
     private final NotificationProducerService notificationProducerService;
-    private final ModelMapper modelMapper;
     private final TagService tagService;
     private final TaskFileService taskFileService;
     private final FileStorageService fileStorageService;
     private final NotificationSchedulingService notificationSchedulingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
 
     @Autowired
-    public TaskService(PeopleService peopleService, GroupService groupService, TaskRepository taskRepository, TaskTagRepository taskTagRepository, TaskAssignmentRepository taskAssignmentRepository, NotificationProducerService notificationProducerService, ModelMapper modelMapper, MLClient mlClient, TagService tagService, TaskFileService taskFileService, FileStorageService fileStorageService, NotificationSchedulingService notificationSchedulingService) {
+    public TaskService(PeopleService peopleService, GroupService groupService, TaskRepository taskRepository, TaskTagRepository taskTagRepository, TaskAssignmentRepository taskAssignmentRepository, NotificationProducerService notificationProducerService, MLClient mlClient, TagService tagService, TaskFileService taskFileService, FileStorageService fileStorageService, NotificationSchedulingService notificationSchedulingService, ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
         this.peopleService = peopleService;
         this.groupService = groupService;
         this.taskRepository = taskRepository;
         this.taskTagRepository = taskTagRepository;
         this.taskAssignmentRepository = taskAssignmentRepository;
         this.notificationProducerService = notificationProducerService;
-        this.modelMapper = modelMapper;
         this.notificationSchedulingService = notificationSchedulingService;
         this.tagService = tagService;
         this.taskFileService = taskFileService;
         this.fileStorageService = fileStorageService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Transactional
@@ -66,6 +88,9 @@ public class TaskService {
 
         Task savedTask = taskRepository.save(task);
         taskRepository.flush();
+        publishDeadlineChanged(savedTask);
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(
+                Set.of(), Set.of(), Set.of(author.getId()), true));
 
         // Добавляем теги
         if (taskDTO.getTagIds() != null && !taskDTO.getTagIds().isEmpty()) {
@@ -100,9 +125,15 @@ public class TaskService {
     public void deleteTask(Integer taskId) {
         notificationSchedulingService.cancelAllTaskNotifications(taskId);
 
+        // после удаления ни назначения, ни автора задачи уже не найти - собираем заранее
+        List<Integer> userIds = taskAssignmentRepository.findUserIdsByTaskId(taskId);
+        List<Integer> authorIds = taskRepository.findAuthorIdsByTaskIds(List.of(taskId));
+
         taskAssignmentRepository.deleteByTaskId(taskId);
         taskTagRepository.deleteByTaskId(taskId);
         taskRepository.deleteById(taskId);
+        eventPublisher.publishEvent(new TaskDeadlineChangedEvent(taskId, null));
+        eventPublisher.publishEvent(new DashboardStatsChangedEvent(userIds, List.of(), authorIds, true));
     }
 
     //просмотреть все созданные таски
@@ -131,10 +162,6 @@ public class TaskService {
         Person assignedBy = peopleService.findByUsername(currentUsername)
                 .orElseThrow(() -> new RuntimeException("Current user not found"));
 
-        if (taskAssignmentRepository.existsByTaskAndUser(task, user)) {
-            throw new RuntimeException("Task assignment already exists");
-        }
-
         TaskAssignment taskAssignment = new TaskAssignment();
         taskAssignment.setTaskId(taskId);
         taskAssignment.setUserId(userId);
@@ -146,6 +173,7 @@ public class TaskService {
 
         notificationSchedulingService.scheduleTaskNotifications(taskAssignment);
         taskAssignmentRepository.save(taskAssignment);
+        publishAssignmentsChanged(List.of(userId), taskId);
 
         //уведомление: вам назначена новая задача
         notificationProducerService.sendTaskAssignedNotification(
@@ -159,21 +187,86 @@ public class TaskService {
     //назначить таску группе по её Id (функция для препода)
     @Transactional
     public void assignTaskForGroup(Integer taskID, Integer groupId, String currentUsername) {
-        List<Person> groupMembers = groupService.getPersonsByGroupId(groupId);
+        BulkAssignResultDTO result = assignTasksForGroups(List.of(taskID), List.of(groupId), currentUsername);
 
-        // Находим пользователей, которым задача еще не назначена
-        List<Person> usersToAssign = groupMembers.stream()
-                .filter(user -> !taskAssignmentRepository.existsById(
-                        new TaskAssignmentId(taskID, user.getId())))
-                .toList();
+        System.out.println("Assigned to " + result.getAssigned() + " users, skipped " +
+                result.getSkipped() + " users (already assigned)");
+    }
+
+    //назначить несколько задач нескольким группам сразу (функция для препода)
+    @Transactional
+    public BulkAssignResultDTO assignTasksForGroups(List<Integer> taskIds, List<Integer> groupIds, String currentUsername) {
+        if (taskIds == null || taskIds.isEmpty() || groupIds == null || groupIds.isEmpty()) {
+            throw new RuntimeException("Task and group lists must not be empty");
+        }
+
+        Person assignedBy = peopleService.findByUsername(currentUsername)
+                .orElseThrow(() -> new RuntimeException("Current user not found"));
+
+        Set<Integer> uniqueTaskIds = new LinkedHashSet<>(taskIds);
+        List<Task> tasks = taskRepository.findAllById(uniqueTaskIds);
+        if (tasks.size() != uniqueTaskIds.size()) {
+            throw new RuntimeException("Task not found");
+        }
+
+        // Участники всех групп и уже существующие назначения - по одному запросу
+        List<Person> members = groupService.getPersonsByGroupIds(new LinkedHashSet<>(groupIds));
+        if (members.isEmpty()) {
+            return new BulkAssignResultDTO(0, 0);
+        }
+        Set<Integer> memberIds = members.stream()
+                .map(Person::getId)
+                .collect(Collectors.toSet());
+        Set<TaskAssignmentId> existing = new HashSet<>(
+                taskAssignmentRepository.findExistingIds(uniqueTaskIds, memberIds));
 
-        // Назначаем задачу только тем, у кого ее еще нет
-        for (Person user : usersToAssign) {
-            assignTask(taskID, user.getId(), currentUsername);
+        LocalDateTime now = LocalDateTime.now();
+        List<TaskAssignment> toInsert = new ArrayList<>();
+        for (Task task : tasks) {
+            for (Person user : members) {
+                if (existing.contains(new TaskAssignmentId(task.getId(), user.getId()))) {
+                    continue;
+                }
+                TaskAssignment taskAssignment = new TaskAssignment();
+                taskAssignment.setTaskId(task.getId());
+                taskAssignment.setUserId(user.getId());
+                taskAssignment.setAssignedBy(assignedBy);
+                taskAssignment.setAssignedAt(now);
+                taskAssignment.setUpdated_At(now);
+                toInsert.add(taskAssignment);
+            }
         }
 
-        System.out.println("Assigned to " + usersToAssign.size() + " users, skipped " +
-                (groupMembers.size() - usersToAssign.size()) + " users (already assigned)");
+        List<TaskAssignment> inserted = taskAssignmentRepository.insertAllIgnoringExisting(toInsert);
+        eventPublisher.publishEvent(DashboardStatsChangedEvent.ofAssignments(
+                inserted.stream().map(TaskAssignment::getUserId).toList(), uniqueTaskIds));
+
+        // Напоминания о дедлайне и уведомления - пачкой по каждой задаче
+        Map<Integer, Person> membersById = members.stream()
+                .collect(Collectors.toMap(Person::getId, person -> person));
+        Map<Integer, List<Integer>> insertedUsersByTask = inserted.stream()
+                .collect(Collectors.groupingBy(TaskAssignment::getTaskId,
+                        Collectors.mapping(TaskAssignment::getUserId, Collectors.toList())));
+
+        List<NotificationEvent> events = new ArrayList<>();
+        for (Task task : tasks) {
+            List<Integer> userIds = insertedUsersByTask.getOrDefault(task.getId(), List.of());
+            notificationSchedulingService.scheduleTaskNotifications(task, userIds);
+
+            //уведомление: вам назначена новая задача
+            for (Integer userId : userIds) {
+                events.add(notificationProducerService.buildTaskAssignedEvent(
+                        userId,
+                        membersById.get(userId).getRole(),
+                        task.getTitle(),
+                        task.getId()
+                ));
+            }
+        }
+        notificationProducerService.sendNotifications(events);
+
+        int total = tasks.size() * members.size();
+        return new BulkAssignResultDTO(inserted.size(), total - inserted.size());
     }
 
     //получить статус таски (функция для препода)
@@ -190,25 +283,18 @@ public class TaskService {
             taskDTO.setUserId(id);
 
         } else if ("group".equalsIgnoreCase(filter)) {
-            // Получаем все назначения задачи в группе
-            List<TaskAssignment> assignments = taskAssignmentRepository.findByGroupIdAndTaskId(id, taskId);
-
-            // Инициализируем счётчики по всем возможным статусам
+            // Инициализируем счётчики по статусам, которые хранятся в назначениях
             Map<String, Integer> statusStatistics = new HashMap<>();
-            for (TaskStatus status : TaskStatus.values()) {
-                statusStatistics.put(status.name(), 0);
+            for (String status : ASSIGNMENT_STATUSES) {
+                statusStatistics.put(status, 0);
             }
 
-            // Считаем статусы из назначений
-            assignments.forEach(assignment -> {
-                String status = assignment.getStatus();
-                if (statusStatistics.containsKey(status)) {
-                    statusStatistics.put(status, statusStatistics.get(status) + 1);
-                } else {
-                    // На случай, если статус не в enum (например, OVERDUE)
-                    statusStatistics.merge("OTHER", 1, Integer::sum);
-                }
-            });
+            // Счётчики по статусам считает БД
+            for (StatusCountRow row : taskAssignmentRepository.countStatusesByGroupIdAndTaskId(id, taskId)) {
+                // На случай неизвестного статуса
+                String status = statusStatistics.containsKey(row.getStatus()) ? row.getStatus() : "OTHER";
+                statusStatistics.merge(status, row.getTotal().intValue(), Integer::sum);
+            }
 
             taskDTO.setStatusStatistics(statusStatistics);
             taskDTO.setGroupId(id);
@@ -225,29 +311,7 @@ public class TaskService {
         Person user = peopleService.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден: " + username));
 
-        return taskAssignmentRepository.findByUser(user)
-                .stream()
-                .map(assignment -> {
-                    Task task = assignment.getTask();
-
-                    List<Tag> taskTags = tagService.getTaskTags(task.getId());
-                    List<TagDTO> tags = new ArrayList<>();
-                    for (Tag tag : taskTags) {
-                        tags.add(convertToTagDTO(tag));
-                    }
-
-                    return new MyTaskDTO(
-                            task.getId(),
-                            task.getTitle(),
-                            task.getDescription(),
-                            task.getDeadline(),
-                            task.getPriority(),
-                            task.getAuthor() != null ? task.getAuthor().getId() : null,
-                            assignment.getStatus(),
-                            tags
-                    );
-                })
-                .collect(Collectors.toList());
+        return toMyTaskDTOs(taskAssignmentRepository.findMyTaskRowsByUserId(user.getId()));
     }
 
 
@@ -255,30 +319,113 @@ public class TaskService {
         Person user = peopleService.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
 
-        List<TaskAssignment> assignments = taskAssignmentRepository.findByUser(user);
+        return toMyTaskDTOs(taskAssignmentRepository.findMyTaskRowsByUserId(user.getId()));
+    }
 
-        return assignments.stream().map(assignment -> {
-            Task task = assignment.getTask();
-            String status = assignment.getStatus();
-            Integer authorId = task.getAuthor() != null ? task.getAuthor().getId() : null;
+    //сворачивает плоские строки "задача + тег" в MyTaskDTO с наполненным списком тегов
+    private List<MyTaskDTO> toMyTaskDTOs(List<MyTaskRow> rows) {
+        Map<Integer, MyTaskDTO> tasks = new LinkedHashMap<>();
+        for (MyTaskRow row : rows) {
+            MyTaskDTO dto = tasks.computeIfAbsent(row.getId(), id -> new MyTaskDTO(
+                    row.getId(),
+                    row.getTitle(),
+                    row.getDescription(),
+                    row.getDeadline(),
+                    row.getPriority(),
+                    row.getAuthorId(),
+                    row.getUserStatus(),
+                    new ArrayList<>()
+            ));
+            if (row.getTagId() != null) {
+                dto.getTags().add(new TagDTO(row.getTagId(), row.getTagName()));
+            }
+        }
+        return new ArrayList<>(tasks.values());
+    }
 
-            List<Tag> taskTags = tagService.getTaskTags(task.getId());
-            List<TagDTO> tags = new ArrayList<>();
-            for (Tag tag : taskTags) {
-                tags.add(convertToTagDTO(tag));
+    //страница всех задач с фильтрами (функция для препода)
+    public CursorPageDTO<TaskDTO> findTasksPage(TaskFilterDTO filter) {
+        Specification<Task> spec = TaskSpecifications.matching(filter);
+        if (filter.getStatus() != null) {
+            spec = spec.and(TaskSpecifications.hasAssignmentStatus(filter.getStatus()));
+        }
+        return findPage(spec, filter, this::toTaskDTOs);
+    }
+
+    //страница задач текущего студента с фильтрами
+    public CursorPageDTO<MyTaskDTO> findMyTasksPage(String username, TaskFilterDTO filter) {
+        Person user = peopleService.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Пользователь не найден: " + username));
+
+        Specification<Task> spec = TaskSpecifications.matching(filter)
+                .and(TaskSpecifications.assignedTo(user.getId(), filter.getStatus()));
+
+        return findPage(spec, filter, tasks -> {
+            if (tasks.isEmpty()) {
+                return List.of();
             }
+            List<Integer> taskIds = tasks.stream().map(Task::getId).toList();
+            Map<Integer, MyTaskDTO> byId = toMyTaskDTOs(
+                    taskAssignmentRepository.findMyTaskRowsByUserIdAndTaskIds(user.getId(), taskIds))
+                    .stream()
+                    .collect(Collectors.toMap(MyTaskDTO::getId, dto -> dto));
+            return taskIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+        });
+    }
 
-            return new MyTaskDTO(
-                    task.getId(),
-                    task.getTitle(),
-                    task.getDescription(),
-                    task.getDeadline(),
-                    task.getPriority(),
-                    authorId,
-                    status,
-                    tags
-            );
-        }).collect(Collectors.toList());
+    //keyset-пагинация по (deadline, id) или (createdAt, id): читаем size + 1 строк, лишняя говорит о следующей странице
+    private <T> CursorPageDTO<T> findPage(Specification<Task> filterSpec, TaskFilterDTO filter,
+                                          Function<List<Task>, List<T>> mapper) {
+        String sortAttribute = "createdAt".equals(filter.getSort()) ? "createdAt" : "deadline";
+        boolean ascending = !"desc".equalsIgnoreCase(filter.getDirection());
+        int size = filter.getSize() == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(filter.getSize(), MAX_PAGE_SIZE));
+
+        Specification<Task> spec = filterSpec.and(TaskSpecifications.fetchAuthor());
+        if (filter.getCursor() != null && !filter.getCursor().isBlank()) {
+            spec = spec.and(TaskSpecifications.after(sortAttribute, ascending, KeysetCursor.decode(filter.getCursor())));
+        }
+
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direction, sortAttribute).and(Sort.by(direction, "id"));
+        List<Task> tasks = taskRepository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all());
+
+        boolean hasNext = tasks.size() > size;
+        if (hasNext) {
+            tasks = tasks.subList(0, size);
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            Task last = tasks.get(tasks.size() - 1);
+            LocalDateTime value = "createdAt".equals(sortAttribute) ? last.getCreatedAt() : last.getDeadline();
+            nextCursor = new KeysetCursor(value, last.getId()).encode();
+        }
+
+        return new CursorPageDTO<>(mapper.apply(tasks), nextCursor, hasNext);
+    }
+
+    //теги для всей страницы одним запросом
+    private List<TaskDTO> toTaskDTOs(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, List<TagDTO>> tagsByTask = taskTagRepository
+                .findTaskTagsWithTagsByTaskIds(tasks.stream().map(Task::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(TaskTag::getTaskId,
+                        Collectors.mapping(taskTag -> convertToTagDTO(taskTag.getTag()), Collectors.toList())));
+
+        return tasks.stream().map(task -> {
+            TaskDTO dto = new TaskDTO();
+            dto.setId(task.getId());
+            dto.setTitle(task.getTitle());
+            dto.setDescription(task.getDescription());
+            dto.setDeadline(task.getDeadline());
+            dto.setPriority(task.getPriority());
+            dto.setAuthorId(task.getAuthor() != null ? task.getAuthor().getId() : null);
+            dto.setTags(tagsByTask.getOrDefault(task.getId(), new ArrayList<>()));
+            return dto;
+        }).toList();
     }
 
     //юзер ищет свою конкретную таску
@@ -342,6 +489,7 @@ public class TaskService {
         assignment.setStatus(status);
         assignment.setUpdated_At(LocalDateTime.now());
         taskAssignmentRepository.save(assignment);
+        publishAssignmentsChanged(List.of(myId), taskId);
 
         if ("COMPLETED".equals(status) && !"COMPLETED".equals(oldStatus)) {
             notificationSchedulingService.cancelTaskNotifications(taskId, myId);
@@ -409,67 +557,29 @@ public class TaskService {
         return groupTasks;
     }
 
-    @Modifying
-    @Scheduled(fixedRate = 120000) //каждые две минуты
-    @Transactional
-    public void updateOverdueTasks() {
-        LocalDateTime now = LocalDateTime.now();
-
-        // Получаем все задания, которые станут просроченными
-        List<TaskAssignment> overdueAssignments = taskAssignmentRepository.findOverdueTaskAssignments(now);
-
-        // Обновляем статус
-        taskAssignmentRepository.updateOverdueTaskAssignments(now);
-
-        // Отправляем уведомления
-        for (TaskAssignment assignment : overdueAssignments) {
-            notificationProducerService.sendTaskOverdueNotification(
-                    assignment.getUserId(),
-                    "ROLE_STUDENT",
-                    assignment.getTask().getTitle(),
-                    assignment.getTask().getId()
-            );
-
-            notificationSchedulingService.cancelTaskNotifications(
-                    assignment.getTask().getId(),
-                    assignment.getUserId()
-            );
-        }
-    }
-
     public List<PersonResponseDTO> getUsersWithTask(Integer taskId, Authentication auth) {
         Person user = peopleService.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        // отбор назначенных делается в БД, а не проверкой каждого участника отдельным запросом
         if (groupService.isTeacher(user)) {
-            return groupService.findByTeacherId(auth)
+            return taskAssignmentRepository.findAssigneesInTeacherGroups(taskId, user.getId())
                     .stream()
-                    .filter(person -> taskAssignmentRepository.existsById(
-                            new TaskAssignmentId(taskId, person.getId())
-                    )).map(
-                            this::convertToPersonDTO
-                    )
-                    .toList();
-        } else {
-            return groupService.getPersonsByGroupId(groupService.getUserGroup(auth.getName()))
-                    .stream()
-                    .filter(person -> !person.getId().equals(user.getId())) // убираем текущего пользователя
-                    .filter(person -> {
-                        try {
-                            findMyTasksById(taskId, person.getUsername());
-                            return true;
-                        } catch (RuntimeException e) {
-                            return false;
-                        }
-                    }).map(
-                            this::convertToPersonDTO
-                    )
+                    .map(this::convertToPersonDTO)
                     .toList();
         }
+
+        Integer groupId = groupService.getUserGroup(auth.getName());
+        if (groupId == null) {
+            return Collections.emptyList();
+        }
+        return taskAssignmentRepository.findAssigneesInGroup(taskId, groupId, user.getId())
+                .stream()
+                .map(this::convertToPersonDTO)
+                .toList();
     }
     private TaskResponseDTO convertToResponseDTO(Task task){
-
-        return modelMapper.map(task, TaskResponseDTO.class);
+        return DtoMapper.toTaskResponse(task);
     }
 
     private TagDTO convertToTagDTO(Tag tag){
@@ -479,7 +589,7 @@ public class TaskService {
         dto.setName(tag.getName());
         return dto;    }
     private PersonResponseDTO convertToPersonDTO(Person user) {
-        return modelMapper.map(user, PersonResponseDTO.class);
+        return DtoMapper.toPersonResponse(user);
     }
 
     @Transactional
@@ -509,9 +619,11 @@ public class TaskService {
 
         if (!oldDeadline.equals(task.getDeadline())) {
             updateTaskAssignmentsStatus(updatedTask);
+            publishDeadlineChanged(updatedTask);
 
             // Перепланируем уведомления для всех назначений
             List<TaskAssignment> assignments = taskAssignmentRepository.findByTask(updatedTask);
+            publishAssignmentsChanged(assignments.stream().map(TaskAssignment::getUserId).toList(), taskId);
             for (TaskAssignment assignment : assignments) {
                 // Отменяем только если задача не завершена и не просрочена
                 if (!"COMPLETED".equals(assignment.getStatus()) && !"OVERDUE".equals(assignment.getStatus())) {
@@ -592,6 +704,17 @@ public class TaskService {
 
         return dto;
     }
+
+    //планировщик просрочек узнает о новом дедлайне после коммита
+    private void publishDeadlineChanged(Task task) {
+        eventPublisher.publishEvent(new TaskDeadlineChangedEvent(task.getId(), task.getDeadline()));
+    }
+
+    //счётчики дашборда пересчитываются после коммита
+    private void publishAssignmentsChanged(Collection<Integer> userIds, Integer taskId) {
+        eventPublisher.publishEvent(DashboardStatsChangedEvent.ofAssignments(userIds, List.of(taskId)));
+    }
+
     private void updateTaskAssignmentsStatus(Task task) {
         List<TaskAssignment> assignments = taskAssignmentRepository.findByTask(task);
         LocalDateTime now = LocalDateTime.now();
@@ -654,14 +777,71 @@ public class TaskService {
         // Загружаем в MinIO
         fileStorageService.uploadFile(file, filePath);
 
+        attachSolution(assignment, student, file.getOriginalFilename(), filePath, file.getSize());
+    }
+
+    /**
+     * Потоковая загрузка решения без multipart: тело запроса сразу уходит в S3 multipart upload.
+     * Соединение с БД не держится на время передачи - проверки и запись решения идут отдельными короткими транзакциями,
+     * старый файл удаляется только после того, как новый записан.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void uploadSolutionStream(Integer taskId, InputStream content, String fileName, String contentType, String username) {
+        Person student = peopleService.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Студент не найден"));
+        fileStorageService.validateFileName(fileName, contentType);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            TaskAssignment assignment = taskAssignmentRepository
+                    .findById(new TaskAssignmentId(taskId, student.getId()))
+                    .orElseThrow(() -> new RuntimeException("Задача не назначена студенту"));
+            if (!assignment.canUploadSolution()) {
+                throw new RuntimeException("Нельзя загрузить решение после дедлайна");
+            }
+        });
+
+        String storedFileName = fileStorageService.generateFileName(fileName);
+        String filePath = String.format("tasks/%d/solutions/%d/%s",
+                taskId, student.getId(), storedFileName);
+        long size = fileStorageService.uploadStream(content, filePath, contentType);
+
+        String oldFilePath;
+        try {
+            oldFilePath = transactionTemplate.execute(status -> {
+                TaskAssignment assignment = taskAssignmentRepository
+                        .findById(new TaskAssignmentId(taskId, student.getId()))
+                        .orElseThrow(() -> new RuntimeException("Задача не назначена студенту"));
+                String previous = assignment.hasSolution() ? assignment.getSolutionFilePath() : null;
+                attachSolution(assignment, student, fileName, filePath, size);
+                return previous;
+            });
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(filePath);
+            throw e;
+        }
+
+        if (oldFilePath != null) {
+            try {
+                fileStorageService.deleteFile(oldFilePath);
+            } catch (RuntimeException e) {
+                // решение уже сохранено; осиротевший файл не повод отвечать ошибкой
+                log.warn("Не удалось удалить предыдущее решение {}", oldFilePath, e);
+            }
+        }
+    }
+
+    private void attachSolution(TaskAssignment assignment, Person student, String fileName, String filePath, long fileSize) {
+        Integer taskId = assignment.getTaskId();
+
         // Обновляем назначение
-        assignment.setSolutionFileName(file.getOriginalFilename());
+        assignment.setSolutionFileName(fileName);
         assignment.setSolutionFilePath(filePath);
-        assignment.setSolutionFileSize(file.getSize());
+        assignment.setSolutionFileSize(fileSize);
         assignment.setSolutionUploadedAt(LocalDateTime.now());
         assignment.setStatus("COMPLETED");
 
         taskAssignmentRepository.save(assignment);
+        publishAssignmentsChanged(List.of(student.getId()), taskId);
 
         notificationSchedulingService.cancelTaskNotifications(taskId, student.getId());
 
@@ -791,6 +971,7 @@ public class TaskService {
         }
         assignment.setStatus("IN_PROGRESS");
         taskAssignmentRepository.save(assignment);
+        publishAssignmentsChanged(List.of(student.getId()), taskId);
     }
 
     /**
@@ -841,6 +1022,27 @@ public class TaskService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Ссылки на все загруженные решения задачи (id студента -> ссылка) одним вызовом для страницы проверки
+     */
+    public Map<Integer, String> getSolutionDownloadUrlsForTask(Integer taskId, String teacherUsername) {
+        Task task = taskRepository.findById(taskId)
+                .orElseThrow(() -> new RuntimeException("Задача не найдена"));
+        if (!task.getAuthor().getUsername().equals(teacherUsername)) {
+            throw new RuntimeException("Access denied");
+        }
+
+        List<SolutionFileRow> solutions = taskAssignmentRepository.findSolutionFilesByTaskId(taskId);
+        Map<String, String> urls = fileStorageService.generateDownloadUrls(
+                solutions.stream().map(SolutionFileRow::getSolutionFilePath).toList());
+
+        Map<Integer, String> result = new LinkedHashMap<>();
+        for (SolutionFileRow solution : solutions) {
+            result.put(solution.getUserId(), urls.get(solution.getSolutionFilePath()));
+        }
+        return result;
+    }
+
     public String getStudentSolutionDownloadUrl(Integer taskId, Integer studentId, String teacherUsername) {
         TaskAssignment assignment = taskAssignmentRepository.findByUserIdAndTaskId(studentId, taskId)
                 .orElseThrow(() -> new RuntimeException("Assignment not found"));
@@ -1,6 +1,5 @@
 package ru.danon.spring.ToDo.services;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -15,6 +14,7 @@ import ru.danon.spring.ToDo.models.VideoMeeting;
 import ru.danon.spring.ToDo.repositories.jpa.GroupRepository;
 import ru.danon.spring.ToDo.repositories.jpa.PeopleRepository;
 import ru.danon.spring.ToDo.repositories.jpa.VideoMeetingRepository;
+import ru.danon.spring.ToDo.util.DtoMapper;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -33,7 +33,6 @@ public class VideoMeetingService {
     private final PeopleRepository peopleRepository;
     private final GroupRepository groupRepository;
     private final JitsiMeetService jitsiMeetService;
-    private final ModelMapper modelMapper;
     private final GroupService groupService;
     private final NotificationProducerService notificationProducerService;
     private final long cleanupAfterDays;
@@ -44,7 +43,6 @@ public class VideoMeetingService {
             PeopleRepository peopleRepository,
             GroupRepository groupRepository,
             JitsiMeetService jitsiMeetService, // ЗАМЕНИЛИ ТУТ
-            ModelMapper modelMapper,
             GroupService groupService,
             NotificationProducerService notificationProducerService,
             @Value("${video.meetings.cleanup-after-days:14}") long cleanupAfterDays) {
@@ -52,7 +50,6 @@ public class VideoMeetingService {
         this.peopleRepository = peopleRepository;
         this.groupRepository = groupRepository;
         this.jitsiMeetService = jitsiMeetService; // И ТУТ
-        this.modelMapper = modelMapper;
         this.groupService = groupService;
         this.notificationProducerService = notificationProducerService;
         this.cleanupAfterDays = cleanupAfterDays;
@@ -208,19 +205,7 @@ public class VideoMeetingService {
     }
 
     private VideoMeetingDTO convertToDTO(VideoMeeting meeting) {
-        VideoMeetingDTO dto = modelMapper.map(meeting, VideoMeetingDTO.class);
-
-        if (meeting.getCreatedBy() != null) {
-            dto.setCreatedById(meeting.getCreatedBy().getId());
-            dto.setCreatedByUsername(meeting.getCreatedBy().getUsername());
-        }
-
-        if (meeting.getGroup() != null) {
-            dto.setGroupId(meeting.getGroup().getId());
-            dto.setGroupName(meeting.getGroup().getName());
-        }
-
-        return dto;
+        return DtoMapper.toVideoMeeting(meeting);
     }
 
     @Transactional
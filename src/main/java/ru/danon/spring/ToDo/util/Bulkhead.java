@@ -0,0 +1,91 @@
+package ru.danon.spring.ToDo.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ограничитель параллелизма перед общим ресурсом (пул соединений, HTTP-клиент).
+ * На виртуальных потоках число одновременных запросов ничем не ограничено, и без него
+ * тысячи потоков выстраиваются в очередь самого ресурса и падают по его таймауту.
+ * Здесь очередь ограничена: лишние ждущие получают отказ сразу, остальные - не дольше maxWait.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final Duration maxWait;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    public Bulkhead(String name, int maxConcurrent, int maxWaiting, Duration maxWait, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaiting = maxWaiting;
+        this.maxWait = maxWait;
+
+        Gauge.builder("bulkhead.active", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Занятые разрешения ограничителя")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.waiting", waiting, AtomicInteger::get)
+                .description("Потоки, ожидающие разрешения")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bulkhead.rejected")
+                .description("Отказы из-за переполнения очереди или таймаута ожидания")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+    }
+
+    public void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new BulkheadFullException(name + ": слишком много ожидающих запросов");
+        }
+        try {
+            if (!permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new BulkheadFullException(name + ": ресурс занят дольше " + maxWait.toMillis() + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException(name + ": ожидание прервано");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            release();
+        }
+    }
+
+    public void run(Runnable action) {
+        acquire();
+        try {
+            action.run();
+        } finally {
+            release();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ru.danon.spring.ToDo.util;
+
+/**
+ * Ресурс перегружен, запрос отклонён без ожидания его собственного таймаута (отдаётся как 503)
+ */
+public class BulkheadFullException extends RuntimeException {
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.danon.spring.ToDo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Курсор ленты комментариев: createdAt и _id (ObjectId в hex) последнего комментария страницы.
+ * Как и KeysetCursor, передаётся клиенту непрозрачной base64url-строкой.
+ */
+public class CommentCursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdAt;
+    private final String id;
+
+    public CommentCursor(LocalDateTime createdAt, String id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CommentCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            String id = raw.substring(separator + 1);
+            if (!id.matches("[0-9a-f]{24}")) {
+                throw new IllegalArgumentException("id");
+            }
+            return new CommentCursor(LocalDateTime.parse(raw.substring(0, separator)), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ru.danon.spring.ToDo.util;
+
+import ru.danon.spring.ToDo.dto.*;
+import ru.danon.spring.ToDo.models.*;
+
+/**
+ * Явные преобразования сущностей в DTO ответов вместо ModelMapper.
+ * ModelMapper на каждом вызове сопоставляет свойства через рефлексию и обходит весь граф сущности,
+ * в том числе ленивые коллекции (Task.taskAssignments, Task.taskTags), вызывая лишние запросы.
+ * Здесь копируются только перечисленные поля; из связей берутся id и простые поля,
+ * ленивые коллекции не трогаются.
+ */
+public final class DtoMapper {
+
+    private DtoMapper() {
+    }
+
+    public static PersonResponseDTO toPersonResponse(Person person) {
+        PersonResponseDTO dto = new PersonResponseDTO();
+        dto.setId(person.getId());
+        dto.setUsername(person.getUsername());
+        dto.setEmail(person.getEmail());
+        dto.setRole(person.getRole());
+        dto.setCreatedAt(person.getCreatedAt());
+        return dto;
+    }
+
+    // теги сюда не входят: вызывающий код получает их отдельным запросом, если они нужны
+    public static TaskResponseDTO toTaskResponse(Task task) {
+        TaskResponseDTO dto = new TaskResponseDTO();
+        dto.setId(task.getId());
+        dto.setTitle(task.getTitle());
+        dto.setDescription(task.getDescription());
+        dto.setDeadline(task.getDeadline());
+        dto.setPriority(task.getPriority());
+        dto.setCreatedAt(task.getCreatedAt());
+
+        Person author = task.getAuthor();
+        if (author != null) {
+            TaskResponseDTO.AuthorDTO authorDTO = new TaskResponseDTO.AuthorDTO();
+            authorDTO.setUsername(author.getUsername());
+            authorDTO.setEmail(author.getEmail());
+            authorDTO.setRole(author.getRole());
+            dto.setAuthor(authorDTO);
+        }
+        return dto;
+    }
+
+    // canEdit/canDelete зависят от текущего пользователя и выставляются вызывающим кодом
+    public static CommentDTO toComment(Comment comment) {
+        CommentDTO dto = new CommentDTO();
+        dto.setId(comment.getId());
+        dto.setTaskId(comment.getTaskId());
+        dto.setAuthorId(comment.getAuthorId());
+        dto.setAuthorName(comment.getAuthorName());
+        dto.setAuthorRole(comment.getAuthorRole());
+        dto.setContent(comment.getContent());
+        dto.setCreatedAt(comment.getCreatedAt());
+        dto.setUpdatedAt(comment.getUpdatedAt());
+        dto.setParentId(comment.getParentId());
+        dto.setRepliesCount(comment.getRepliesCount());
+        return dto;
+    }
+
+    public static GroupResponseDTO toGroupResponse(Group group) {
+        GroupResponseDTO dto = new GroupResponseDTO();
+        dto.setId(group.getId());
+        dto.setName(group.getName());
+        dto.setDescription(group.getDescription());
+        dto.setCreatedAt(group.getCreatedAt());
+        // id у ленивого прокси преподавателя берётся без загрузки
+        dto.setTeacherId(group.getTeacher() != null ? group.getTeacher().getId() : null);
+        return dto;
+    }
+
+    public static VideoMeetingDTO toVideoMeeting(VideoMeeting meeting) {
+        VideoMeetingDTO dto = new VideoMeetingDTO();
+        dto.setId(meeting.getId());
+        dto.setTitle(meeting.getTitle());
+        dto.setDescription(meeting.getDescription());
+        dto.setMeetingUrl(meeting.getMeetingUrl());
+        dto.setMeetingId(meeting.getMeetingId());
+        dto.setStartTime(meeting.getStartTime());
+        dto.setEndTime(meeting.getEndTime());
+        dto.setIsActive(meeting.getIsActive());
+        dto.setCreatedAt(meeting.getCreatedAt());
+        dto.setUpdatedAt(meeting.getUpdatedAt());
+
+        if (meeting.getCreatedBy() != null) {
+            dto.setCreatedById(meeting.getCreatedBy().getId());
+            dto.setCreatedByUsername(meeting.getCreatedBy().getUsername());
+        }
+        if (meeting.getGroup() != null) {
+            dto.setGroupId(meeting.getGroup().getId());
+            dto.setGroupName(meeting.getGroup().getName());
+        }
+        return dto;
+    }
+
+    // пароль (хэш) пользователя в журнал смены ролей не попадает
+    public static LogResponseDTO toLogResponse(RoleAuditLog log) {
+        LogResponseDTO dto = new LogResponseDTO();
+        dto.setId(log.getId());
+        dto.setOldRole(log.getOldRole());
+        dto.setNewRole(log.getNewRole());
+        dto.setChangedAt(log.getChangedAt());
+
+        Person user = log.getUser();
+        if (user != null) {
+            PersonDTO userDTO = new PersonDTO();
+            userDTO.setUsername(user.getUsername());
+            userDTO.setEmail(user.getEmail());
+            dto.setUser(userDTO);
+        }
+        return dto;
+    }
+}
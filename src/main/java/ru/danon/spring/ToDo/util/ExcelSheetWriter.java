@@ -0,0 +1,88 @@
+package ru.danon.spring.ToDo.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Построчная запись листа Excel с подсчётом ширины колонок по ходу записи.
+ * Заменяет autoSizeColumn: тот перебирает все строки листа (O(rows) на колонку),
+ * а в потоковом SXSSF видит только строки, ещё не сброшенные на диск.
+ */
+public class ExcelSheetWriter {
+    private static final int MIN_COLUMN_CHARS = 8;
+    private static final int MAX_COLUMN_CHARS = 60;
+    // запас на отступы ячейки и жирный шрифт заголовков
+    private static final int PADDING_CHARS = 2;
+
+    private final Sheet sheet;
+    private int[] widths = new int[16];
+    private int rowNum;
+
+    public ExcelSheetWriter(Sheet sheet) {
+        this.sheet = sheet;
+    }
+
+    public Sheet getSheet() {
+        return sheet;
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    public Row nextRow() {
+        return sheet.createRow(rowNum++);
+    }
+
+    public void skipRow() {
+        rowNum++;
+    }
+
+    public void headerRow(List<String> headers, CellStyle style) {
+        Row row = nextRow();
+        for (int i = 0; i < headers.size(); i++) {
+            cell(row, i, headers.get(i)).setCellStyle(style);
+        }
+    }
+
+    public Cell cell(Row row, int column, String value) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        track(column, value != null ? value.length() : 0);
+        return cell;
+    }
+
+    public Cell cell(Row row, int column, long value) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        track(column, Long.toString(value).length());
+        return cell;
+    }
+
+    /**
+     * Выставляет посчитанную ширину колонок. В SXSSF ширины хранятся вне строк,
+     * поэтому вызывать можно после того, как все строки уже сброшены на диск.
+     */
+    public void applyColumnWidths() {
+        for (int column = 0; column < widths.length; column++) {
+            if (widths[column] > 0) {
+                int chars = Math.min(Math.max(widths[column] + PADDING_CHARS, MIN_COLUMN_CHARS), MAX_COLUMN_CHARS);
+                sheet.setColumnWidth(column, chars * 256);
+            }
+        }
+    }
+
+    private void track(int column, int length) {
+        if (column >= widths.length) {
+            widths = Arrays.copyOf(widths, Math.max(column + 1, widths.length * 2));
+        }
+        if (length > widths[column]) {
+            widths[column] = length;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.danon.spring.ToDo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Курсор keyset-пагинации: значение колонки сортировки последней строки страницы и её id.
+ * Передаётся клиенту в виде непрозрачной base64url-строки.
+ */
+public class KeysetCursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime value;
+    private final Integer id;
+
+    public KeysetCursor(LocalDateTime value, Integer id) {
+        this.value = value;
+        this.id = id;
+    }
+
+    public LocalDateTime getValue() {
+        return value;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = (value != null ? value.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            String value = raw.substring(0, separator);
+            return new KeysetCursor(
+                    value.isEmpty() ? null : LocalDateTime.parse(value),
+                    Integer.valueOf(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+        }
+    }
+}
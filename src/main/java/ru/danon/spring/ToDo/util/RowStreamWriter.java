@@ -0,0 +1,148 @@
+package ru.danon.spring.ToDo.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Построчная запись табличного отчёта в CSV или NDJSON без промежуточной объектной модели:
+ * каждая строка сразу уходит в буферизованный поток, память не зависит от числа строк.
+ * Значения - строки, числа, LocalDateTime (ISO-8601) или null.
+ */
+public abstract class RowStreamWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // JsonFactory потокобезопасен и дорог в создании
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static RowStreamWriter csv(OutputStream out) {
+        return new Csv(out);
+    }
+
+    public static RowStreamWriter ndjson(OutputStream out) throws IOException {
+        return new Ndjson(out);
+    }
+
+    /**
+     * Начинает набор строк с заданными колонками
+     */
+    public abstract void section(String name, List<String> columns) throws IOException;
+
+    public abstract void row(Object... values) throws IOException;
+
+    /**
+     * Сбрасывает буфер в выходной поток, сам поток не закрывается
+     */
+    public abstract void flush() throws IOException;
+
+    private static final class Csv extends RowStreamWriter {
+        private final Writer writer;
+        private boolean headerWritten;
+
+        private Csv(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void section(String name, List<String> columns) throws IOException {
+            if (headerWritten) {
+                throw new IllegalStateException("CSV holds a single table");
+            }
+            headerWritten = true;
+            row(columns.toArray());
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = values[i];
+                if (value != null) {
+                    writeEscaped(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        // RFC 4180: в кавычки - только поля с разделителем, кавычкой или переводом строки
+        private void writeEscaped(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class Ndjson extends RowStreamWriter {
+        private final JsonGenerator generator;
+        private String section;
+        private List<String> columns = List.of();
+
+        private Ndjson(OutputStream out) throws IOException {
+            this.generator = JSON_FACTORY.createGenerator(
+                    new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE));
+            // одна запись - одна строка
+            this.generator.setRootValueSeparator(null);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void section(String name, List<String> columns) {
+            this.section = name;
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("section", section);
+            for (int i = 0; i < values.length; i++) {
+                generator.writeFieldName(columns.get(i));
+                writeValue(values[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Integer number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Long number) {
+                generator.writeNumber(number);
+            } else if (value instanceof LocalDateTime dateTime) {
+                generator.writeString(dateTime.toString());
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
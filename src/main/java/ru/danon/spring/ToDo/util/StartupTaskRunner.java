@@ -1,24 +1,38 @@
 package ru.danon.spring.ToDo.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
-import ru.danon.spring.ToDo.services.TaskService;
+import ru.danon.spring.ToDo.repositories.mongo.CommentRepository;
+import ru.danon.spring.ToDo.services.DeadlineSchedulerService;
 
 @Component
 public class StartupTaskRunner implements ApplicationRunner {
-    private final TaskService taskService;
+    private final DeadlineSchedulerService deadlineSchedulerService;
+    private final CommentRepository commentRepository;
+    private final boolean recountReplies;
 
     @Autowired
-    public StartupTaskRunner(TaskService taskService) {
-        this.taskService = taskService;
+    public StartupTaskRunner(DeadlineSchedulerService deadlineSchedulerService,
+                             CommentRepository commentRepository,
+                             @Value("${comments.recount-replies-on-startup:false}") boolean recountReplies) {
+        this.deadlineSchedulerService = deadlineSchedulerService;
+        this.commentRepository = commentRepository;
+        this.recountReplies = recountReplies;
     }
 
     @Override
     public void run(ApplicationArguments args) {
         System.out.println("Запуск проверки просроченных задач при старте...");
-        taskService.updateOverdueTasks();
+        deadlineSchedulerService.catchUp();
         System.out.println("Проверка завершена.");
+
+        commentRepository.ensureThreadIndexes();
+        // разовая правка счётчиков ответов, накопленных до переноса repliesCount на родителя
+        if (recountReplies) {
+            System.out.println("Пересчитано счётчиков ответов: " + commentRepository.recountReplies());
+        }
     }
 }
@@ -0,0 +1,9 @@
+-- Transactional outbox для уведомлений: строки пишутся в транзакции бизнес-операции,
+-- relay (NotificationOutboxRelay) пачками отправляет их в notifications-topic и удаляет
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    event_id VARCHAR(64) NOT NULL,
+    message_key VARCHAR(64),
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
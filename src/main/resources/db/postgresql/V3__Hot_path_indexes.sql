@@ -0,0 +1,46 @@
+-- Индексы под горячие предикаты репозиториев. До этой миграции индексы были только у первичных ключей,
+-- поэтому выборки по статусу, времени и внешним ключам читали таблицы целиком.
+-- CONCURRENTLY не блокирует запись на время построения; Flyway выполняет такую миграцию вне транзакции.
+-- Если построение прервалось, останется невалидный индекс: его нужно удалить (DROP INDEX CONCURRENTLY)
+-- и перезапустить миграцию, IF NOT EXISTS сам его не перестроит.
+-- Проверка планов: HotPathIndexPlanTests.
+
+-- task_assignments: первичный ключ (task_id, user_id) покрывает выборки по задаче, выборки по студенту - нет
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_task_assignments_user_status
+    ON task_assignments (user_id, status);
+
+-- countStuckByTeacherId / findStuckByTeacherId: только незавершённые назначения,
+-- условие индекса повторяет условие запросов, иначе планировщик не сможет его доказать
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_task_assignments_stuck
+    ON task_assignments (assigned_by, updated_at)
+    WHERE status <> 'COMPLETED' AND status <> 'OVERDUE';
+
+-- scheduled_notifications: выборка готовых к отправке и повтор failed (status + время)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_scheduled_notifications_status_time
+    ON scheduled_notifications (status, scheduled_time);
+
+-- поиск и отмена напоминаний по задаче и пользователю
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_scheduled_notifications_task_user_status
+    ON scheduled_notifications (task_id, user_id, status);
+
+-- tasks: окно дедлайнов для напоминаний и просроченные задачи преподавателя
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_deadline
+    ON tasks (deadline);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_author_deadline
+    ON tasks (author_id, deadline);
+
+-- video_meetings: активных встреч на порядки меньше, чем завершённых
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_video_meetings_active_start
+    ON video_meetings (start_time)
+    WHERE is_active = true;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_video_meetings_group
+    ON video_meetings (group_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_video_meetings_created_by
+    ON video_meetings (created_by);
+
+-- user_groups: первичный ключ (group_id, user_id) не помогает соединению назначений со студентом
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_groups_user
+    ON user_groups (user_id);
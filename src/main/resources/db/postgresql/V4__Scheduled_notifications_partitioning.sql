@@ -0,0 +1,88 @@
+-- scheduled_notifications секционируется по месяцам scheduled_time.
+-- Отправленные, отменённые и упавшие строки больше не копятся в одной таблице: старые месяцы
+-- удаляются (или отсоединяются в архив) целиком через DROP/DETACH, без DELETE и VACUUM,
+-- а запросы с условием на scheduled_time читают только свои секции.
+-- Новые секции заранее создаёт ScheduledNotificationRetentionService.
+-- Миграция переписывает таблицу целиком и держит её заблокированной до конца копирования.
+
+ALTER TABLE scheduled_notifications RENAME TO scheduled_notifications_legacy;
+
+CREATE SEQUENCE IF NOT EXISTS scheduled_notifications_partitioned_id_seq;
+
+-- ключ секционирования обязан входить в первичный ключ
+CREATE TABLE scheduled_notifications (
+    id INTEGER NOT NULL DEFAULT nextval('scheduled_notifications_partitioned_id_seq'),
+    user_id INTEGER NOT NULL,
+    task_id INTEGER NOT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    scheduled_time TIMESTAMP(6) NOT NULL,
+    notification_time TIMESTAMP(6),
+    status VARCHAR(20) NOT NULL,
+    attempt_count INTEGER,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    PRIMARY KEY (id, scheduled_time)
+) PARTITION BY RANGE (scheduled_time);
+
+ALTER SEQUENCE scheduled_notifications_partitioned_id_seq OWNED BY scheduled_notifications.id;
+
+-- сюда попадают строки за месяцы, для которых секции ещё нет (напоминания по далёким дедлайнам)
+CREATE TABLE scheduled_notifications_default PARTITION OF scheduled_notifications DEFAULT;
+
+-- Создаёт секцию за месяц, если её нет. Строки этого месяца, уже лежащие в DEFAULT,
+-- переносятся в новую секцию, иначе ATTACH не пройдёт. Возвращает true, если секция создана.
+CREATE OR REPLACE FUNCTION scheduled_notifications_ensure_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    from_ts TIMESTAMP := date_trunc('month', month_start);
+    to_ts TIMESTAMP := date_trunc('month', month_start) + INTERVAL '1 month';
+    part_name TEXT := 'scheduled_notifications_p' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(part_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE scheduled_notifications INCLUDING DEFAULTS)', part_name);
+
+    -- вставки в DEFAULT на время переноса ждут, чтобы между переносом и ATTACH не появилось новых строк
+    LOCK TABLE scheduled_notifications_default IN SHARE ROW EXCLUSIVE MODE;
+    EXECUTE format('WITH moved AS (DELETE FROM scheduled_notifications_default '
+                       || 'WHERE scheduled_time >= %L AND scheduled_time < %L RETURNING *) '
+                       || 'INSERT INTO %I SELECT * FROM moved', from_ts, to_ts, part_name);
+
+    EXECUTE format('ALTER TABLE scheduled_notifications ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   part_name, from_ts, to_ts);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- секции с месяца самой старой строки и на три месяца вперёд
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month',
+            LEAST(COALESCE((SELECT MIN(scheduled_time) FROM scheduled_notifications_legacy), now()), now()));
+BEGIN
+    WHILE month_start <= date_trunc('month', now()) + INTERVAL '3 months' LOOP
+        PERFORM scheduled_notifications_ensure_partition(month_start);
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END;
+$$;
+
+INSERT INTO scheduled_notifications (id, user_id, task_id, event_type, scheduled_time, notification_time,
+                                     status, attempt_count, created_at, updated_at)
+SELECT id, user_id, task_id, event_type, scheduled_time, notification_time,
+       status, attempt_count, created_at, updated_at
+FROM scheduled_notifications_legacy;
+
+SELECT setval('scheduled_notifications_partitioned_id_seq',
+              COALESCE((SELECT MAX(id) FROM scheduled_notifications), 0) + 1, false);
+
+-- вместе со старой таблицей удаляются и её индексы из V3
+DROP TABLE scheduled_notifications_legacy;
+
+-- индексы на секционированной таблице создаются на каждой секции, в том числе на будущих
+CREATE INDEX idx_scheduled_notifications_status_time
+    ON scheduled_notifications (status, scheduled_time);
+
+CREATE INDEX idx_scheduled_notifications_task_user_status
+    ON scheduled_notifications (task_id, user_id, status);
@@ -0,0 +1,358 @@
+package ru.danon.spring.ToDo.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danon.spring.ToDo.config.FlywayConfig;
+import ru.danon.spring.ToDo.models.Person;
+import ru.danon.spring.ToDo.models.Task;
+import ru.danon.spring.ToDo.repositories.jpa.ScheduledNotificationRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
+import ru.danon.spring.ToDo.repositories.jpa.VideoMeetingRepository;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Регрессионный тест на индексы из db/postgresql/V3__Hot_path_indexes.sql: на наполненных таблицах запросы
+ * репозиториев назначений, напоминаний и видеовстреч не должны читать свою таблицу целиком.
+ * Планы снимает auto_explain в логе PostgreSQL - это планы ровно тех запросов, что строит Hibernate,
+ * с реальными значениями параметров. H2 планы и частичные индексы PostgreSQL не воспроизводит,
+ * поэтому тест идёт на PostgreSQL (см. PostgresTestDatabase) и пропускается, если его нет.
+ * Не проверяются выгрузка отчёта и версия данных отчёта: они читают таблицы целиком намеренно.
+ */
+@DataJpaTest
+@EnabledIf("ru.danon.spring.ToDo.repositories.PostgresTestDatabase#isServerLogAvailable")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+// без транзакции теста: CREATE INDEX CONCURRENTLY в транзакции не работает, а ANALYZE должен видеть данные
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotPathIndexPlanTests {
+
+    private static final int TEACHERS = 200;
+    private static final int USERS = 5000;
+    private static final int STUDENTS = USERS - TEACHERS;
+    private static final int GROUPS = 500;
+    private static final int TASKS = 20000;
+    private static final int ASSIGNEES_PER_TASK = 10;
+    private static final int NOTIFICATIONS = 200000;
+    private static final int MEETINGS = 50000;
+
+    // студент из первого назначения задачи, автор задачи и группа студента
+    private static final int TASK_ID = 1234;
+    private static final int STUDENT_ID = TEACHERS + 1 + (TASK_ID * ASSIGNEES_PER_TASK) % STUDENTS;
+    private static final int TEACHER_ID = 1 + TASK_ID % TEACHERS;
+    private static final int GROUP_ID = 1 + STUDENT_ID % GROUPS;
+
+    private static final String MARKER = "plan-check:";
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+    private static final long LOG_WAIT_MS = 30_000;
+
+    private static boolean seeded;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "hot_path_index_plan_tests");
+    }
+
+    @Configuration
+    @EntityScan(basePackages = "ru.danon.spring.ToDo.models")
+    @EnableJpaRepositories(basePackages = "ru.danon.spring.ToDo.repositories.jpa")
+    static class JpaConfig {
+    }
+
+    @Autowired
+    private TaskAssignmentRepository taskAssignmentRepository;
+    @Autowired
+    private ScheduledNotificationRepository scheduledNotificationRepository;
+    @Autowired
+    private VideoMeetingRepository videoMeetingRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record PlanCheck(String name, Set<String> tables, Runnable query) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        if (seeded) {
+            return;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email, password, role, created_at)
+                SELECT 'user-' || i, 'user-' || i || '@test.local', 'password',
+                       CASE WHEN i <= %d THEN 'ROLE_TEACHER' ELSE 'ROLE_STUDENT' END, now()
+                FROM generate_series(1, %d) i
+                """.formatted(TEACHERS, USERS));
+        jdbcTemplate.update("""
+                INSERT INTO groups (name, description, created_at, teacher_id)
+                SELECT 'group-' || i, 'description', now(), 1 + i %% %d
+                FROM generate_series(1, %d) i
+                """.formatted(TEACHERS, GROUPS));
+        jdbcTemplate.update("""
+                INSERT INTO user_groups (user_id, group_id, created_at)
+                SELECT u, 1 + u %% %d, now()
+                FROM generate_series(%d, %d) u
+                """.formatted(GROUPS, TEACHERS + 1, USERS));
+        // дедлайны на год вокруг текущей даты, по 2-3 задачи на час
+        jdbcTemplate.update("""
+                INSERT INTO tasks (title, description, deadline, priority, author_id, created_at)
+                SELECT 'task-' || i, 'description', now() + make_interval(days => i %% 365 - 180, hours => i %% 24),
+                       'HIGH', 1 + i %% %d, now() - interval '200 days'
+                FROM generate_series(1, %d) i
+                """.formatted(TEACHERS, TASKS));
+        // большая часть назначений уже завершена, как в живой базе
+        jdbcTemplate.update("""
+                INSERT INTO task_assignments (task_id, user_id, assigned_by, status, assigned_at, updated_at)
+                SELECT t, %1$d + 1 + (t * %2$d + k) %% %3$d, 1 + t %% %1$d,
+                       CASE WHEN (t + k) %% 10 < 6 THEN 'COMPLETED'
+                            WHEN (t + k) %% 10 = 6 THEN 'OVERDUE'
+                            WHEN (t + k) %% 10 < 9 THEN 'IN_PROGRESS'
+                            ELSE 'NOT_STARTED' END,
+                       now() - interval '200 days', now() - make_interval(days => (t * 7 + k) %% 60)
+                FROM generate_series(1, %4$d) t, generate_series(0, %2$d - 1) k
+                """.formatted(TEACHERS, ASSIGNEES_PER_TASK, STUDENTS, TASKS));
+        // по минуте на напоминание: почти все отправлены, 5% ждут отправки, 1% упали
+        jdbcTemplate.update("""
+                INSERT INTO scheduled_notifications (user_id, task_id, event_type, scheduled_time, status,
+                                                     attempt_count, created_at, updated_at)
+                SELECT %1$d + 1 + i %% %2$d, 1 + i %% %3$d, 'DEADLINE_REMINDER', now() - make_interval(mins => %4$d - i),
+                       CASE WHEN i %% 100 = 0 THEN 'FAILED' WHEN i %% 100 < 5 THEN 'PENDING' ELSE 'SENT' END,
+                       i %% 5, now(), now()
+                FROM generate_series(1, %4$d) i
+                """.formatted(TEACHERS, STUDENTS, TASKS, NOTIFICATIONS));
+        // встречи раз в 10 минут за год, активны последние 5%, каждая 50-я без группы
+        jdbcTemplate.update("""
+                INSERT INTO video_meetings (title, description, meeting_url, meeting_id, start_time, end_time,
+                                            created_by, group_id, is_active, created_at, updated_at, reminder_sent)
+                SELECT 'meeting-' || i, 'description', 'https://meet.local/' || i, 'meeting-' || i,
+                       now() - make_interval(mins => (%1$d - i) * 10), now() - make_interval(mins => (%1$d - i) * 10 - 60),
+                       1 + i %% %2$d, CASE WHEN i %% 50 = 0 THEN NULL ELSE 1 + i %% %3$d END,
+                       i > %1$d * 19 / 20, now(), now(), false
+                FROM generate_series(1, %1$d) i
+                """.formatted(MEETINGS, TEACHERS, GROUPS));
+
+        // индексы строятся поверх уже заполненных таблиц той же миграцией Flyway, что и на рабочей базе:
+        // схему создал Hibernate, поэтому V1-V2 отмечаются как применённые
+        FluentConfiguration flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("2")
+                .target("3");
+        new FlywayConfig().postgresqlMigrationsCustomizer().customize(flyway);
+        assertThat(flyway.load().migrate().migrationsExecuted).isEqualTo(1);
+        jdbcTemplate.execute("ANALYZE");
+        seeded = true;
+    }
+
+    @Test
+    void taskAssignmentQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> assignments = Set.of("task_assignments");
+
+        List<String> seqScans = seqScans(List.of(
+                new PlanCheck("findMyTaskRowsByUserId", assignments,
+                        () -> taskAssignmentRepository.findMyTaskRowsByUserId(STUDENT_ID)),
+                new PlanCheck("findMyTaskRowsByUserIdAndTaskIds", assignments,
+                        () -> taskAssignmentRepository.findMyTaskRowsByUserIdAndTaskIds(STUDENT_ID, List.of(TASK_ID))),
+                new PlanCheck("countStatusesByUserIds", assignments,
+                        () -> taskAssignmentRepository.countStatusesByUserIds(
+                                List.of(STUDENT_ID, STUDENT_ID + 1, STUDENT_ID + 2))),
+                new PlanCheck("findUserIdsByTaskId", assignments,
+                        () -> taskAssignmentRepository.findUserIdsByTaskId(TASK_ID)),
+                new PlanCheck("findNextDeadline", assignments,
+                        () -> taskAssignmentRepository.findNextDeadline(STUDENT_ID)),
+                new PlanCheck("countOverdueByTeacherIds", Set.of("task_assignments", "tasks"),
+                        () -> taskAssignmentRepository.countOverdueByTeacherIds(List.of(TEACHER_ID), now)),
+                new PlanCheck("countStuckByTeacherId", assignments,
+                        () -> taskAssignmentRepository.countStuckByTeacherId(TEACHER_ID, now.minusWeeks(2))),
+                new PlanCheck("findStuckByTeacherId", assignments,
+                        () -> taskAssignmentRepository.findStuckByTeacherId(TEACHER_ID, now.minusWeeks(2))),
+                new PlanCheck("findByUserIdAndTaskId", assignments,
+                        () -> taskAssignmentRepository.findByUserIdAndTaskId(STUDENT_ID, TASK_ID)),
+                new PlanCheck("findByGroupIdAndTaskId", assignments,
+                        () -> taskAssignmentRepository.findByGroupIdAndTaskId(GROUP_ID, TASK_ID)),
+                new PlanCheck("findSolutionFilesByTaskId", assignments,
+                        () -> taskAssignmentRepository.findSolutionFilesByTaskId(TASK_ID)),
+                new PlanCheck("countStatusesByGroupIdAndTaskId", assignments,
+                        () -> taskAssignmentRepository.countStatusesByGroupIdAndTaskId(GROUP_ID, TASK_ID)),
+                new PlanCheck("findAssigneesInTeacherGroups", assignments,
+                        () -> taskAssignmentRepository.findAssigneesInTeacherGroups(TASK_ID, TEACHER_ID)),
+                new PlanCheck("findAssigneesInGroup", assignments,
+                        () -> taskAssignmentRepository.findAssigneesInGroup(TASK_ID, GROUP_ID, STUDENT_ID)),
+                new PlanCheck("existsByTaskAndUser", assignments,
+                        () -> taskAssignmentRepository.existsByTaskAndUser(
+                                entityManager.getReference(Task.class, TASK_ID),
+                                entityManager.getReference(Person.class, STUDENT_ID))),
+                new PlanCheck("findExistingIds", assignments,
+                        () -> taskAssignmentRepository.findExistingIds(List.of(TASK_ID, TASK_ID + 1),
+                                List.of(STUDENT_ID, STUDENT_ID + 1))),
+                new PlanCheck("findTasksWithDeadlineInWindow", Set.of("task_assignments", "tasks"),
+                        () -> taskAssignmentRepository.findTasksWithDeadlineInWindow(
+                                now.plusHours(24), now.plusHours(25), now)),
+                new PlanCheck("findByTaskId", assignments,
+                        () -> taskAssignmentRepository.findByTaskId(TASK_ID)),
+                new PlanCheck("findByUserId", assignments,
+                        () -> taskAssignmentRepository.findByUserId(STUDENT_ID)),
+                new PlanCheck("existsValidTaskForNotification", assignments,
+                        () -> taskAssignmentRepository.existsValidTaskForNotification(TASK_ID, STUDENT_ID, now))
+        ));
+
+        assertThat(seqScans).isEmpty();
+    }
+
+    @Test
+    void scheduledNotificationQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        int userId = TEACHERS + 1 + TASK_ID % STUDENTS;
+        Set<String> notifications = Set.of("scheduled_notifications");
+
+        List<String> seqScans = seqScans(List.of(
+                new PlanCheck("findByStatusAndScheduledTimeBetween", notifications,
+                        () -> scheduledNotificationRepository.findByStatusAndScheduledTimeBetween(
+                                "PENDING", now.minusMinutes(10), now.plusMinutes(10))),
+                new PlanCheck("findByTaskIdAndUserIdAndStatus", notifications,
+                        () -> scheduledNotificationRepository.findByTaskIdAndUserIdAndStatus(TASK_ID, userId, "PENDING")),
+                new PlanCheck("findByTaskIdAndUserIdInAndStatus", notifications,
+                        () -> scheduledNotificationRepository.findByTaskIdAndUserIdInAndStatus(
+                                TASK_ID, List.of(userId, userId + 1), "PENDING")),
+                new PlanCheck("existsByTaskIdAndUserIdAndEventTypeAndStatus", notifications,
+                        () -> scheduledNotificationRepository.existsByTaskIdAndUserIdAndEventTypeAndStatus(
+                                TASK_ID, userId, "DEADLINE_REMINDER", "PENDING")),
+                new PlanCheck("claimDue", notifications,
+                        () -> scheduledNotificationRepository.claimDue(now.minusMinutes(10), now.plusMinutes(2),
+                                now.minusMinutes(5), now.minusHours(24), 3, 100)),
+                new PlanCheck("findByTaskAndUser", notifications,
+                        () -> scheduledNotificationRepository.findByTaskAndUser(TASK_ID, userId)),
+                new PlanCheck("findScheduledByTaskId", notifications,
+                        () -> scheduledNotificationRepository.findByTaskId(TASK_ID)),
+                new PlanCheck("cancelPendingByTaskIds", notifications,
+                        () -> scheduledNotificationRepository.cancelPendingByTaskIds(List.of(TASK_ID, TASK_ID + 1), now))
+        ));
+
+        assertThat(seqScans).isEmpty();
+    }
+
+    @Test
+    void videoMeetingQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> meetings = Set.of("video_meetings");
+
+        List<String> seqScans = seqScans(List.of(
+                new PlanCheck("findByCreatedById", meetings,
+                        () -> videoMeetingRepository.findByCreatedById(TEACHER_ID)),
+                new PlanCheck("findMeetingsByGroupId", meetings,
+                        () -> videoMeetingRepository.findByGroupId(GROUP_ID)),
+                new PlanCheck("findActiveByGroupId", meetings,
+                        () -> videoMeetingRepository.findActiveByGroupId(GROUP_ID)),
+                new PlanCheck("findActiveByCreatedById", meetings,
+                        () -> videoMeetingRepository.findActiveByCreatedById(TEACHER_ID)),
+                new PlanCheck("findActiveForStudent", meetings,
+                        () -> videoMeetingRepository.findActiveForStudent(GROUP_ID)),
+                new PlanCheck("findActiveWithoutGroup", meetings,
+                        () -> videoMeetingRepository.findActiveWithoutGroup()),
+                new PlanCheck("findByCreatedByAndIsActive", meetings,
+                        () -> videoMeetingRepository.findByCreatedByAndIsActive(
+                                entityManager.getReference(Person.class, TEACHER_ID), true)),
+                new PlanCheck("findByIsActiveTrueAndGroupIdOrGroupIsNull", meetings,
+                        () -> videoMeetingRepository.findByIsActiveTrueAndGroupIdOrGroupIsNull(GROUP_ID)),
+                new PlanCheck("findMeetingsEndedBefore", meetings,
+                        () -> videoMeetingRepository.findMeetingsEndedBefore(now.minusDays(1))),
+                new PlanCheck("findByIsActiveTrueAndReminderSentFalseAndStartTimeBetween", meetings,
+                        () -> videoMeetingRepository.findByIsActiveTrueAndReminderSentFalseAndStartTimeBetween(
+                                now.minusMinutes(15), now.plusMinutes(15)))
+        ));
+
+        assertThat(seqScans).isEmpty();
+    }
+
+    /**
+     * Выполняет запросы (изменяющие - с откатом) и возвращает найденные в их планах Seq Scan по проверяемым таблицам.
+     * Перед каждым запросом выполняется SELECT с меткой: по меткам лог делится на планы отдельных запросов.
+     */
+    private List<String> seqScans(List<PlanCheck> checks) {
+        int logStart = PostgresTestDatabase.serverLog().length();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (PlanCheck check : checks) {
+            mark(check.name());
+            transactionTemplate.executeWithoutResult(status -> {
+                check.query().run();
+                status.setRollbackOnly();
+            });
+        }
+        String endMarker = "end-" + System.nanoTime();
+        mark(endMarker);
+        String logs = awaitLogs(MARKER + endMarker).substring(logStart);
+
+        List<String> seqScans = new ArrayList<>();
+        for (PlanCheck check : checks) {
+            int start = logs.indexOf("'" + MARKER + check.name() + "'");
+            assertThat(start).as("plan of %s is missing in the log", check.name()).isNotNegative();
+            int end = logs.indexOf("'" + MARKER, start + 1);
+
+            Matcher matcher = SEQ_SCAN.matcher(logs.substring(start, end));
+            while (matcher.find()) {
+                if (check.tables().contains(matcher.group(1))) {
+                    seqScans.add(check.name() + ": " + matcher.group());
+                }
+            }
+        }
+        return seqScans;
+    }
+
+    private void mark(String name) {
+        jdbcTemplate.queryForObject("SELECT '" + MARKER + name + "'", String.class);
+    }
+
+    // сервер пишет лог асинхронно - ждём, пока в нём появится последняя метка
+    private String awaitLogs(String marker) {
+        long deadline = System.currentTimeMillis() + LOG_WAIT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            String logs = PostgresTestDatabase.serverLog();
+            if (logs.contains(marker)) {
+                return logs;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("auto_explain output did not reach the server log");
+    }
+}
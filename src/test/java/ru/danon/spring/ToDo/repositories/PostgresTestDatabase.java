@@ -0,0 +1,92 @@
+package ru.danon.spring.ToDo.repositories;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PostgreSQL для тестов, которые H2 не воспроизводит (планы запросов, частичные индексы, секционирование).
+ * Если задана TEST_POSTGRES_URL (JDBC-адрес служебной базы, пользователь - TEST_POSTGRES_USER / TEST_POSTGRES_PASSWORD,
+ * нужны права суперпользователя), тесты идут на этом сервере, иначе - в общем контейнере postgres:15.
+ * Каждый тестовый класс получает свою пустую базу. Лог сервера внешнего PostgreSQL читается
+ * из файла TEST_POSTGRES_LOG. Без внешнего сервера и без Docker тесты пропускаются.
+ */
+final class PostgresTestDatabase {
+
+    private static final String EXTERNAL_URL = System.getenv("TEST_POSTGRES_URL");
+    private static final String EXTERNAL_USER = System.getenv().getOrDefault("TEST_POSTGRES_USER", "postgres");
+    private static final String EXTERNAL_PASSWORD = System.getenv().getOrDefault("TEST_POSTGRES_PASSWORD", "");
+    private static final String EXTERNAL_LOG = System.getenv("TEST_POSTGRES_LOG");
+
+    private static PostgreSQLContainer<?> container;
+
+    private PostgresTestDatabase() {
+    }
+
+    static boolean isAvailable() {
+        return EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    // лог контейнера доступен всегда, лог внешнего сервера - только если указан файл
+    static boolean isServerLogAvailable() {
+        return EXTERNAL_URL != null ? EXTERNAL_LOG != null : DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    /**
+     * Пересоздаёт базу database и направляет в неё datasource теста.
+     * auto_explain загружается в каждое соединение и пишет в лог сервера планы всех запросов.
+     */
+    static void register(DynamicPropertyRegistry registry, String database) {
+        String adminUrl = EXTERNAL_URL != null ? EXTERNAL_URL : container().getJdbcUrl();
+        String user = EXTERNAL_URL != null ? EXTERNAL_USER : container().getUsername();
+        String password = EXTERNAL_URL != null ? EXTERNAL_PASSWORD : container().getPassword();
+
+        try (Connection connection = DriverManager.getConnection(adminUrl, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + database + " WITH (FORCE)");
+            statement.execute("CREATE DATABASE " + database);
+        } catch (SQLException e) {
+            throw new RuntimeException("Не удалось создать тестовую базу " + database, e);
+        }
+
+        registry.add("spring.datasource.url", () -> adminUrl.replaceFirst("/[^/?]*(\\?|$)", "/" + database + "$1"));
+        registry.add("spring.datasource.username", () -> user);
+        registry.add("spring.datasource.password", () -> password);
+        registry.add("spring.datasource.hikari.connection-init-sql",
+                () -> "LOAD 'auto_explain'; SET auto_explain.log_min_duration = 0");
+    }
+
+    /**
+     * Весь лог сервера на текущий момент. Лог общий для всех баз и запусков,
+     * поэтому читать его нужно начиная с длины, запомненной перед проверкой.
+     */
+    static String serverLog() {
+        if (EXTERNAL_URL == null) {
+            return container().getLogs();
+        }
+        try {
+            return new String(Files.readAllBytes(Path.of(EXTERNAL_LOG)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:15")
+                    .withCommand("postgres", "-c", "fsync=off");
+            container.start();
+        }
+        return container;
+    }
+}
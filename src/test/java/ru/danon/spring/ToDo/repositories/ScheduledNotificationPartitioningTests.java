@@ -0,0 +1,269 @@
+package ru.danon.spring.ToDo.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.danon.spring.ToDo.config.FlywayConfig;
+import ru.danon.spring.ToDo.models.ScheduledNotification;
+import ru.danon.spring.ToDo.repositories.jpa.ScheduledNotificationRepository;
+import ru.danon.spring.ToDo.services.ScheduledNotificationRetentionService;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * V4__Scheduled_notifications_partitioning.sql на таблице с данными и обслуживание секций.
+ * Схема, как и в рабочей базе, создаётся Hibernate с baseline Flyway на V2, затем применяются V3,
+ * строки в старой таблице и V4. Секционирование H2 не поддерживает, поэтому тест идёт на PostgreSQL
+ * (см. PostgresTestDatabase) и пропускается, если его нет.
+ */
+@DataJpaTest
+@EnabledIf("ru.danon.spring.ToDo.repositories.PostgresTestDatabase#isAvailable")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.flyway.enabled=false"
+})
+// без транзакции теста: миграции и DDL секций выполняются как на рабочей базе
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ScheduledNotificationPartitioningTests {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Configuration
+    @EntityScan(basePackages = "ru.danon.spring.ToDo.models")
+    @EnableJpaRepositories(basePackages = "ru.danon.spring.ToDo.repositories.jpa")
+    static class JpaConfig {
+    }
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, "scheduled_notification_partitioning_tests");
+    }
+
+    @Autowired
+    private ScheduledNotificationRepository scheduledNotificationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private LocalDateTime now;
+    private YearMonth currentMonth;
+    // id строк старой таблицы по назначению
+    private int dueId;
+    private int failedRecentId;
+    private int failedOldId;
+    private int staleId;
+    private int futureId;
+    private int farFutureId;
+
+    @BeforeEach
+    void setUp() {
+        // TIMESTAMP(6) хранит микросекунды
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        currentMonth = YearMonth.from(now);
+
+        jdbcTemplate.execute("DROP SCHEMA public CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA public");
+        entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true);
+        migrate("3");
+
+        // отправленные напоминания прошлых месяцев
+        for (int day = 1; day <= 3; day++) {
+            insertSent(currentMonth.minusMonths(8).atDay(day).atTime(12, 0));
+        }
+        insertSent(currentMonth.minusMonths(7).atDay(1).atTime(12, 0));
+        insertSent(currentMonth.minusMonths(7).atDay(2).atTime(12, 0));
+        insertSent(currentMonth.minusMonths(2).atDay(1).atTime(12, 0));
+        // кандидаты на отправку и повтор
+        dueId = insert(now.minusMinutes(5), "PENDING", 0, now.minusDays(1));
+        failedRecentId = insert(now.minusHours(2), "FAILED", 1, now.minusHours(2));
+        failedOldId = insert(now.minusDays(3), "FAILED", 1, now.minusDays(3));
+        staleId = insert(now.minusHours(1), "PROCESSING", 1, now.minusMinutes(30));
+        futureId = insert(now.plusDays(1), "PENDING", 0, now.minusDays(1));
+        // дальше заранее созданных секций - остаётся в DEFAULT
+        farFutureId = insert(now.plusMonths(6), "PENDING", 0, now.minusDays(1));
+
+        migrate(null);
+    }
+
+    @Test
+    void migrationMovesExistingRowsIntoMonthlyPartitions() {
+        assertThat(scheduledNotificationRepository.isPartitioned()).isTrue();
+        assertThat(count("scheduled_notifications")).isEqualTo(12);
+        assertThat(ids("scheduled_notifications_default")).containsExactly(farFutureId);
+
+        List<YearMonth> expectedMonths = new ArrayList<>();
+        for (YearMonth month = currentMonth.minusMonths(8); !month.isAfter(currentMonth.plusMonths(3));
+             month = month.plusMonths(1)) {
+            expectedMonths.add(month);
+        }
+        assertThat(scheduledNotificationRepository.findPartitionMonths()).isEqualTo(expectedMonths);
+        assertThat(count(partition(currentMonth.minusMonths(8)))).isEqualTo(3);
+
+        // последовательность продолжает id старой таблицы
+        ScheduledNotification notification = new ScheduledNotification();
+        notification.setUserId(1);
+        notification.setTaskId(1);
+        notification.setEventType("DEADLINE_REMINDER");
+        notification.setScheduledTime(now.plusHours(3));
+        notification.setStatus("PENDING");
+        ScheduledNotification saved = scheduledNotificationRepository.save(notification);
+        assertThat(saved.getId()).isGreaterThan(farFutureId);
+        assertThat(ids(partition(YearMonth.from(now.plusHours(3))))).contains(saved.getId());
+    }
+
+    @Test
+    void claimDueAndUpdateStatusesFindRowsByScheduledTime() {
+        List<ScheduledNotification> claimed = scheduledNotificationRepository.claimDue(
+                now.minusMinutes(10), now.plusMinutes(2), now.minusMinutes(5), now.minusHours(24), 3, 100);
+
+        assertThat(claimed).extracting(ScheduledNotification::getId)
+                .containsExactlyInAnyOrder(dueId, failedRecentId, staleId);
+        assertThat(status(dueId)).containsEntry("status", "PROCESSING").containsEntry("attempt_count", 1);
+        assertThat(status(failedRecentId)).containsEntry("status", "PROCESSING").containsEntry("attempt_count", 2);
+        assertThat(status(failedOldId)).containsEntry("status", "FAILED");
+        assertThat(status(futureId)).containsEntry("status", "PENDING");
+
+        for (ScheduledNotification notification : claimed) {
+            notification.setStatus(notification.getId() == failedRecentId ? "FAILED" : "SENT");
+            notification.setNotificationTime(now);
+        }
+        scheduledNotificationRepository.updateStatuses(claimed);
+
+        assertThat(status(dueId)).containsEntry("status", "SENT");
+        assertThat(status(staleId)).containsEntry("status", "SENT");
+        assertThat(status(failedRecentId)).containsEntry("status", "FAILED");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT notification_time FROM scheduled_notifications WHERE id = ?", Timestamp.class, dueId))
+                .isEqualTo(Timestamp.valueOf(now));
+    }
+
+    @Test
+    void ensurePartitionsMovesRowsOutOfDefault() {
+        YearMonth farMonth = YearMonth.from(now.plusMonths(6));
+
+        assertThat(scheduledNotificationRepository.ensurePartitions(farMonth, farMonth)).isEqualTo(1);
+        assertThat(scheduledNotificationRepository.ensurePartitions(farMonth, farMonth)).isZero();
+
+        assertThat(ids(partition(farMonth))).containsExactly(farFutureId);
+        assertThat(count("scheduled_notifications_default")).isZero();
+        assertThat(scheduledNotificationRepository.findPartitionMonths()).contains(farMonth);
+    }
+
+    @Test
+    void retentionDropsExpiredPartitionsAndOldDefaultRows() {
+        // секция, созданная вручную не по шаблону имени, и строка старше всех секций в DEFAULT
+        jdbcTemplate.execute("CREATE TABLE scheduled_notifications_pmanual PARTITION OF scheduled_notifications "
+                + "FOR VALUES FROM ('2000-01-01') TO ('2000-02-01')");
+        int orphanId = insertSent(currentMonth.minusMonths(10).atDay(1).atTime(12, 0));
+
+        retention(false).maintainPartitions();
+
+        List<YearMonth> months = scheduledNotificationRepository.findPartitionMonths();
+        assertThat(months.get(0)).isEqualTo(currentMonth.minusMonths(6));
+        assertThat(months).contains(currentMonth.plusMonths(3));
+        assertThat(tableExists(partition(currentMonth.minusMonths(8)))).isFalse();
+        assertThat(tableExists(partition(currentMonth.minusMonths(7)))).isFalse();
+        assertThat(tableExists("scheduled_notifications_pmanual")).isTrue();
+        assertThat(ids("scheduled_notifications_default")).doesNotContain(orphanId).contains(farFutureId);
+        assertThat(count("scheduled_notifications")).isEqualTo(12 - 5);
+    }
+
+    @Test
+    void retentionArchivesExpiredPartitions() {
+        retention(true).maintainPartitions();
+
+        String archive = "scheduled_notifications_archive_" + currentMonth.minusMonths(8).format(PARTITION_SUFFIX);
+        assertThat(tableExists(partition(currentMonth.minusMonths(8)))).isFalse();
+        assertThat(count(archive)).isEqualTo(3);
+        assertThat(count("scheduled_notifications")).isEqualTo(12 - 5);
+        // архив отсоединён и в выборки по scheduled_notifications не попадает
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_inherits WHERE inhrelid = ?::regclass", Integer.class, archive)).isZero();
+    }
+
+    private ScheduledNotificationRetentionService retention(boolean archive) {
+        return new ScheduledNotificationRetentionService(scheduledNotificationRepository,
+                new TransactionTemplate(transactionManager), 3, 6, archive);
+    }
+
+    // target=null - все миграции; схему создал Hibernate, поэтому V1-V2 отмечаются как применённые
+    private void migrate(String target) {
+        FluentConfiguration flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("2");
+        if (target != null) {
+            flyway.target(target);
+        }
+        new FlywayConfig().postgresqlMigrationsCustomizer().customize(flyway);
+        flyway.load().migrate();
+    }
+
+    private int insert(LocalDateTime scheduledTime, String status, int attempts, LocalDateTime updatedAt) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO scheduled_notifications (user_id, task_id, event_type, scheduled_time, status,
+                                                     attempt_count, created_at, updated_at)
+                VALUES (1, 1, 'DEADLINE_REMINDER', ?, ?, ?, ?, ?) RETURNING id
+                """, Integer.class, Timestamp.valueOf(scheduledTime), status, attempts,
+                Timestamp.valueOf(scheduledTime.minusDays(1)), Timestamp.valueOf(updatedAt));
+    }
+
+    private int insertSent(LocalDateTime scheduledTime) {
+        return insert(scheduledTime, "SENT", 1, scheduledTime);
+    }
+
+    private String partition(YearMonth month) {
+        return "scheduled_notifications_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+
+    private List<Integer> ids(String table) {
+        return jdbcTemplate.queryForList("SELECT id FROM " + table + " ORDER BY id", Integer.class);
+    }
+
+    private Map<String, Object> status(int id) {
+        return jdbcTemplate.queryForMap(
+                "SELECT status, attempt_count FROM scheduled_notifications WHERE id = ?", id);
+    }
+
+    private boolean tableExists(String table) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+    }
+}
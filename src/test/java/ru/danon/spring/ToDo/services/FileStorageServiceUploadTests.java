@@ -0,0 +1,241 @@
+package ru.danon.spring.ToDo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.danon.spring.ToDo.util.Bulkhead;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Потоковая загрузка в S3 на заглушках клиентов: выбор PUT / multipart, отмена multipart upload
+ * при ошибке части и при превышении max-stream-size-mb, переиспользование буферов частей
+ * и возврат разрешений storage-ограничителя.
+ */
+@Timeout(60)
+class FileStorageServiceUploadTests {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+    private static final String FILE_PATH = "tasks/1/solutions/2/file.bin";
+
+    private final S3Client s3Client = mock(S3Client.class);
+    private final S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // части завершаются в другом потоке и с задержкой, как у настоящего асинхронного клиента
+    private final ScheduledExecutorService completions = Executors.newSingleThreadScheduledExecutor();
+
+    // номер части -> содержимое, прочитанное из тела запроса в момент отправки
+    private final Map<Integer, byte[]> uploadedParts = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int failingPart = -1;
+
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        Bulkhead storageBulkhead = new Bulkhead("storage", 8, 16, Duration.ofSeconds(5), meterRegistry);
+        fileStorageService = new FileStorageService(s3Client, s3AsyncClient, storageBulkhead, mock(S3Presigner.class));
+        ReflectionTestUtils.setField(fileStorageService, "bucketName", "todo");
+        ReflectionTestUtils.setField(fileStorageService, "partSizeMb", 5);
+        ReflectionTestUtils.setField(fileStorageService, "parallelParts", 1);
+        ReflectionTestUtils.setField(fileStorageService, "maxStreamSizeMb", 2048L);
+
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenAnswer(invocation -> uploadPart(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        completions.shutdownNow();
+    }
+
+    @Test
+    void streamUnderOnePartIsUploadedWithSinglePut() {
+        byte[] content = content(PART_SIZE - 1);
+
+        long size = fileStorageService.uploadStream(new ByteArrayInputStream(content), FILE_PATH, "application/pdf");
+
+        assertThat(size).isEqualTo(content.length);
+        verify(s3Client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        verifyNoInteractions(s3AsyncClient);
+        assertThat(activePermits()).isZero();
+    }
+
+    @Test
+    void streamOfExactlyOnePartIsCompletedAsOnePartUpload() throws InterruptedException {
+        byte[] content = content(PART_SIZE);
+
+        long size = fileStorageService.uploadStream(new ByteArrayInputStream(content), FILE_PATH, "application/pdf");
+
+        assertThat(size).isEqualTo(PART_SIZE);
+        assertThat(uploadedParts).containsOnlyKeys(1);
+        assertThat(uploadedParts.get(1)).isEqualTo(content);
+        CompleteMultipartUploadRequest complete = capturedComplete();
+        assertThat(complete.multipartUpload().parts()).extracting(CompletedPart::partNumber).containsExactly(1);
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        awaitPermitsReleased();
+    }
+
+    @Test
+    void largeStreamReusesPartBuffersAndKeepsContent() throws InterruptedException {
+        // частей больше, чем буферов (parallel-parts + 1): без возврата буферов загрузка встала бы
+        byte[] content = content(PART_SIZE * 6 + 123);
+
+        long size = fileStorageService.uploadStream(new ByteArrayInputStream(content), FILE_PATH, "video/mp4");
+
+        assertThat(size).isEqualTo(content.length);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+        assertThat(uploadedParts).hasSize(7);
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+        for (int partNumber = 1; partNumber <= 7; partNumber++) {
+            reassembled.writeBytes(uploadedParts.get(partNumber));
+        }
+        assertThat(reassembled.toByteArray()).isEqualTo(content);
+        assertThat(capturedComplete().multipartUpload().parts())
+                .extracting(CompletedPart::partNumber)
+                .containsExactly(1, 2, 3, 4, 5, 6, 7);
+        verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        awaitPermitsReleased();
+    }
+
+    @Test
+    void failedPartAbortsMultipartUpload() throws InterruptedException {
+        failingPart = 2;
+
+        assertThatThrownBy(() -> fileStorageService.uploadStream(
+                new ByteArrayInputStream(content(PART_SIZE * 5)), FILE_PATH, "video/mp4"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Не удалось загрузить файл")
+                .hasRootCauseMessage("part 2 failed");
+
+        verify(s3Client).abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket("todo").key(FILE_PATH).uploadId("upload-1").build());
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        awaitPermitsReleased();
+    }
+
+    @Test
+    void streamOverMaxSizeAbortsMultipartUpload() throws InterruptedException {
+        ReflectionTestUtils.setField(fileStorageService, "maxStreamSizeMb", 12L);
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 7;
+            }
+        };
+
+        assertThatThrownBy(() -> fileStorageService.uploadStream(endless, FILE_PATH, "video/mp4"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Файл слишком большой. Максимальный размер: 12MB");
+
+        // третья часть уже не помещается в лимит и не отправляется
+        verify(s3AsyncClient, times(2)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        awaitPermitsReleased();
+    }
+
+    private CompletableFuture<UploadPartResponse> uploadPart(UploadPartRequest request, AsyncRequestBody body) {
+        int running = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(running, Math::max);
+        // тело читается сразу: после завершения части её буфер отдаётся под следующую
+        uploadedParts.put(request.partNumber(), read(body));
+
+        CompletableFuture<UploadPartResponse> response = new CompletableFuture<>();
+        completions.schedule(() -> {
+            inFlight.decrementAndGet();
+            if (request.partNumber() == failingPart) {
+                response.completeExceptionally(new IllegalStateException("part " + failingPart + " failed"));
+            } else {
+                response.complete(UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build());
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    private byte[] read(AsyncRequestBody body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        body.subscribe(new Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                out.writeBytes(bytes);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.join();
+        return out.toByteArray();
+    }
+
+    private CompleteMultipartUploadRequest capturedComplete() {
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(captor.capture());
+        return captor.getValue();
+    }
+
+    private double activePermits() {
+        return meterRegistry.get("bulkhead.active").tag("bulkhead", "storage").gauge().value();
+    }
+
+    // части, отменённые при abort, всё равно завершаются в клиенте и только тогда отдают разрешение
+    private void awaitPermitsReleased() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (activePermits() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(activePermits()).isZero();
+    }
+
+    private byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        return content;
+    }
+}
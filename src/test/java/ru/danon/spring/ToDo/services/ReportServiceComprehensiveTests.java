@@ -0,0 +1,150 @@
+package ru.danon.spring.ToDo.services;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.danon.spring.ToDo.dto.ReportRequestDTO;
+import ru.danon.spring.ToDo.models.Group;
+import ru.danon.spring.ToDo.repositories.jpa.GroupRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskAssignmentRepository;
+import ru.danon.spring.ToDo.repositories.jpa.TaskRepository;
+import ru.danon.spring.ToDo.repositories.jpa.projections.ReportRow;
+import ru.danon.spring.ToDo.repositories.mongo.CommentRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Комплексный отчёт: секции загружаются параллельно через ограниченные очереди,
+ * в файл попадают по порядку и целиком, ошибка загрузки секции доходит до вызывающего.
+ */
+@Timeout(30)
+class ReportServiceComprehensiveTests {
+
+    private static final int GROUPS = 3;
+    private static final int ROWS_PER_GROUP = 50;
+    private static final int UNGROUPED_ROWS = 7;
+    // очередь меньше секции: воркеры упираются в неё и ждут писателя
+    private static final int BUFFER_ROWS = 4;
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final TaskAssignmentRepository taskAssignmentRepository = mock(TaskAssignmentRepository.class);
+    private final GroupRepository groupRepository = mock(GroupRepository.class);
+    private ReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        List<Group> groups = new ArrayList<>();
+        for (int g = 1; g <= GROUPS; g++) {
+            Group group = new Group();
+            group.setId(g);
+            group.setName("Группа " + g);
+            groups.add(group);
+            int groupId = g;
+            when(taskAssignmentRepository.streamReportRows(eq(groupId), any(), anyBoolean()))
+                    .thenAnswer(invocation -> rows("Группа " + groupId, ROWS_PER_GROUP).stream());
+        }
+        when(groupRepository.findAll(any(Sort.class))).thenReturn(groups);
+        when(taskAssignmentRepository.streamUngroupedReportRows(any(), anyBoolean()))
+                .thenAnswer(invocation -> rows(null, UNGROUPED_ROWS).stream());
+        when(taskRepository.findTaskStatusCounts(any(), any())).thenReturn(List.of());
+
+        reportService = new ReportService(taskRepository, taskAssignmentRepository, groupRepository,
+                mock(CommentRepository.class), mock(PlatformTransactionManager.class), 100, 2, BUFFER_ROWS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportService.shutdown();
+    }
+
+    @Test
+    void writesEverySectionInOrderIncludingUngroupedStudents() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.writeReport(comprehensiveRequest(), out);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThat(workbook.getNumberOfSheets()).isEqualTo(GROUPS * 3 + 2);
+            assertThat(workbook.getSheetName(0)).isEqualTo("Группа 1 - Прогресс студентов");
+            assertThat(workbook.getSheetName(GROUPS * 3)).isEqualTo("Нет группы - Прогресс студентов");
+            assertThat(workbook.getSheetName(GROUPS * 3 + 1)).isEqualTo("Нет группы - Обзор оценок");
+
+            for (int g = 1; g <= GROUPS; g++) {
+                assertThat(usernames(workbook.getSheetAt((g - 1) * 3))).isEqualTo(expectedUsernames(ROWS_PER_GROUP));
+                assertThat(usernames(workbook.getSheetAt((g - 1) * 3 + 2))).isEqualTo(expectedUsernames(ROWS_PER_GROUP));
+            }
+            assertThat(usernames(workbook.getSheetAt(GROUPS * 3))).isEqualTo(expectedUsernames(UNGROUPED_ROWS));
+        }
+    }
+
+    @Test
+    void failedSectionLoadFailsTheReport() {
+        when(taskAssignmentRepository.streamReportRows(eq(2), any(), anyBoolean()))
+                .thenAnswer(invocation -> Stream.concat(rows("Группа 2", ROWS_PER_GROUP).stream(),
+                        Stream.<ReportRow>generate(() -> {
+                            throw new IllegalStateException("cursor failed");
+                        }).limit(1)));
+
+        assertThatThrownBy(() -> reportService.writeReport(comprehensiveRequest(), new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("cursor failed");
+    }
+
+    private ReportRequestDTO comprehensiveRequest() {
+        ReportRequestDTO request = new ReportRequestDTO();
+        request.setReportType("COMPREHENSIVE");
+        request.setGroupId("all");
+        request.setPeriod("ALL_TIME");
+        request.setFormat("excel");
+        return request;
+    }
+
+    // имена студентов со строк данных листа: первые две строки - заголовок листа и пустая, третья - шапка таблицы
+    private List<String> usernames(Sheet sheet) {
+        List<String> result = new ArrayList<>();
+        for (Row row : sheet) {
+            String value = row.getCell(0) != null ? row.getCell(0).getStringCellValue() : "";
+            if (value.startsWith("student-")) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private List<String> expectedUsernames(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "student-" + i).toList();
+    }
+
+    private List<ReportRow> rows(String groupName, int count) {
+        LocalDateTime now = LocalDateTime.now();
+        return IntStream.range(0, count)
+                .<ReportRow>mapToObj(i -> new Line("student-" + i, groupName, "Задача " + i, now,
+                        "COMPLETED", 5, null, now))
+                .toList();
+    }
+
+    private record Line(String getUsername, String getGroupName, String getTaskTitle, LocalDateTime getDeadline,
+                        String getStatus, Integer getGrade, String getTeacherComment,
+                        LocalDateTime getUpdatedAt) implements ReportRow {
+    }
+}
@@ -0,0 +1,235 @@
+package ru.danon.spring.ToDo.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.danon.spring.ToDo.cache.PeopleCache;
+import ru.danon.spring.ToDo.cache.TagCache;
+import ru.danon.spring.ToDo.dto.MyTaskDTO;
+import ru.danon.spring.ToDo.dto.PersonResponseDTO;
+import ru.danon.spring.ToDo.dto.TaskStatDTO;
+import ru.danon.spring.ToDo.models.Group;
+import ru.danon.spring.ToDo.models.Person;
+import ru.danon.spring.ToDo.models.Tag;
+import ru.danon.spring.ToDo.models.Task;
+import ru.danon.spring.ToDo.models.TaskTag;
+import ru.danon.spring.ToDo.security.TokenRevocationService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Регрессионный тест на N+1: список задач студента должен строиться
+ * фиксированным числом запросов независимо от количества задач и тегов,
+ * а подсчёты и проверки членства - выполняться в БД, без загрузки сущностей по одной.
+ */
+@DataJpaTest
+@ActiveProfiles("jpa-test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TaskService.class, PeopleService.class, TagService.class})
+class TaskServiceQueryCountTests {
+
+    private static final int TASKS = 30;
+    private static final int TAGS_PER_TASK = 3;
+    private static final int CLASSMATES = 10;
+
+    // поиск пользователя + один запрос на задачи с тегами
+    private static final long MAX_STATEMENTS = 2;
+
+    @Configuration
+    @EntityScan(basePackages = "ru.danon.spring.ToDo.models")
+    @EnableJpaRepositories(basePackages = "ru.danon.spring.ToDo.repositories.jpa")
+    static class JpaConfig {
+    }
+
+    @MockitoBean
+    private GroupService groupService;
+    @MockitoBean
+    private NotificationProducerService notificationProducerService;
+    @MockitoBean
+    private NotificationSchedulingService notificationSchedulingService;
+    @MockitoBean
+    private TaskFileService taskFileService;
+    @MockitoBean
+    private FileStorageService fileStorageService;
+    @MockitoBean
+    private MLClient mlClient;
+    @MockitoBean
+    private PeopleCache peopleCache;
+    @MockitoBean
+    private TagCache tagCache;
+    @MockitoBean
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private TaskService taskService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Person student;
+    private Task firstTask;
+    private Group group;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        // кэш без Redis: всегда идём в загрузчик, чтобы считать реальные запросы к БД
+        when(peopleCache.findByUsername(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Optional<Person>>>getArgument(1).get());
+        when(peopleCache.findById(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Optional<Person>>>getArgument(1).get());
+
+        when(groupService.isTeacher(any()))
+                .thenAnswer(invocation -> "ROLE_TEACHER".equals(invocation.<Person>getArgument(0).getRole()));
+
+        Person teacher = entityManager.persist(person("teacher", "ROLE_TEACHER"));
+        student = entityManager.persist(person("student", "ROLE_STUDENT"));
+        group = entityManager.persist(new Group("group", "description", teacher));
+
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < TAGS_PER_TASK; i++) {
+            Tag tag = new Tag();
+            tag.setName("tag-" + i);
+            tags.add(entityManager.persist(tag));
+        }
+
+        for (int i = 0; i < TASKS; i++) {
+            Task task = new Task();
+            task.setTitle("task-" + i);
+            task.setDeadline(LocalDateTime.now().plusDays(i + 1));
+            task.setPriority("HIGH");
+            task.setAuthor(teacher);
+            task.setCreatedAt(LocalDateTime.now());
+            task = entityManager.persist(task);
+
+            for (Tag tag : tags) {
+                entityManager.persist(new TaskTag(task.getId(), tag.getId()));
+            }
+            entityManager.flush();
+
+            assign(task, student, teacher, "NOT_STARTED");
+            if (firstTask == null) {
+                firstTask = task;
+            }
+        }
+
+        // одногруппники с той же первой задачей в разных статусах
+        addToGroup(student);
+        for (int i = 0; i < CLASSMATES; i++) {
+            Person classmate = entityManager.persist(person("classmate-" + i, "ROLE_STUDENT"));
+            entityManager.flush();
+            addToGroup(classmate);
+            assign(firstTask, classmate, teacher, i % 2 == 0 ? "COMPLETED" : "IN_PROGRESS");
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findMyTasksRunsConstantNumberOfQueries() {
+        List<MyTaskDTO> tasks = taskService.findMyTasks("student");
+
+        assertThat(tasks).hasSize(TASKS);
+        assertThat(tasks).allSatisfy(task -> {
+            assertThat(task.getTags()).hasSize(TAGS_PER_TASK);
+            assertThat(task.getAuthorId()).isNotNull();
+            assertThat(task.getUserStatus()).isEqualTo("NOT_STARTED");
+        });
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @Test
+    void findUserTasksRunsConstantNumberOfQueries() {
+        List<MyTaskDTO> tasks = taskService.findUserTasks(student.getId());
+
+        assertThat(tasks).hasSize(TASKS);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @Test
+    void getUsersWithTaskForTeacherRunsConstantNumberOfQueries() {
+        List<PersonResponseDTO> users = taskService.getUsersWithTask(firstTask.getId(), authentication("teacher"));
+
+        assertThat(users).hasSize(CLASSMATES + 1);
+        // поиск пользователя + один запрос на назначенных студентов
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void getUsersWithTaskForStudentRunsConstantNumberOfQueries() {
+        when(groupService.getUserGroup("student")).thenReturn(group.getId());
+
+        List<PersonResponseDTO> users = taskService.getUsersWithTask(firstTask.getId(), authentication("student"));
+
+        assertThat(users).hasSize(CLASSMATES);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void findStatusTaskForGroupCountsInDatabase() {
+        TaskStatDTO stat = taskService.findStatusTask(group.getId(), firstTask.getId(), "group");
+
+        assertThat(stat.getStatusStatistics())
+                .containsEntry("NOT_STARTED", 1)
+                .containsEntry("COMPLETED", CLASSMATES / 2)
+                .containsEntry("IN_PROGRESS", CLASSMATES / 2);
+        // один агрегирующий запрос, назначения как сущности не загружаются
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private void assign(Task task, Person user, Person assignedBy, String status) {
+        jdbcTemplate.update("INSERT INTO task_assignments (task_id, user_id, assigned_by, status, assigned_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                task.getId(), user.getId(), assignedBy.getId(), status, LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    private void addToGroup(Person user) {
+        jdbcTemplate.update("INSERT INTO user_groups (user_id, group_id, created_at) VALUES (?, ?, ?)",
+                user.getId(), group.getId(), LocalDateTime.now());
+    }
+
+    private Authentication authentication(String username) {
+        return new UsernamePasswordAuthenticationToken(username, null);
+    }
+
+    private Person person(String username, String role) {
+        Person person = new Person();
+        person.setUsername(username);
+        person.setEmail(username + "@example.com");
+        person.setPassword("password");
+        person.setRole(role);
+        person.setCreatedAt(LocalDateTime.now());
+        return person;
+    }
+}